@@ -0,0 +1,53 @@
+package com.pluralsight;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+// Generates synthetic ledgers for the benchmarks
+// Rows are in time order over ten years, with a few hundred vendors and descriptions like a real ledger
+public class LedgerData {
+    public static final LocalDate firstDay = LocalDate.of(2015, 1, 1);
+    public static final int days = 3650;
+    public static final int vendorCount = 200;
+    public static final int descriptionCount = 1000;
+
+    // Writes a ledger file with the given number of rows
+    public static Path writeLedger(int rows) throws IOException {
+        Path file = Files.createTempFile("ledger-" + rows + "-", ".csv");
+        file.toFile().deleteOnExit();
+        Random random = new Random(42);
+        long secondsPerRow = Math.max(1, (long) days * 86400 / rows);
+        LocalDateTime dateTime = firstDay.atStartOfDay();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                dateTime = dateTime.plusSeconds(secondsPerRow);
+                long cents = random.nextInt(5) == 0 ? random.nextInt(500000) : -random.nextInt(50000);
+                Transaction transaction = Transaction.ofCents(dateTime, description(random.nextInt(descriptionCount)),
+                        vendor(random.nextInt(vendorCount)), cents);
+                writer.write(transaction.toString());
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    public static String vendor(int id) {
+        return "Vendor " + id + " Inc.";
+    }
+
+    public static String description(int id) {
+        return "Payment for order " + id;
+    }
+
+    // Last day of the generated data, used to pick the report ranges
+    public static LocalDate lastDay(int rows) {
+        long secondsPerRow = Math.max(1, (long) days * 86400 / rows);
+        return firstDay.atStartOfDay().plusSeconds(secondsPerRow * rows).toLocalDate();
+    }
+}
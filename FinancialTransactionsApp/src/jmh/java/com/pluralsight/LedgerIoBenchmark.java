@@ -0,0 +1,70 @@
+package com.pluralsight;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Loading and saving the whole ledger file, and parsing a single line
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class LedgerIoBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private Path file;
+    private Path saveFile;
+    private TransactionList loaded;
+    private String line;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        file = LedgerData.writeLedger(rows);
+        saveFile = Files.createTempFile("ledger-save-", ".csv");
+        loaded = new TransactionList();
+        loaded.loadTransactions(file.toString());
+        line = loaded.getTransactions().get(rows / 2).toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(saveFile);
+    }
+
+    @Benchmark
+    public TransactionList loadTransactions() throws Exception {
+        TransactionList transactionList = new TransactionList();
+        transactionList.loadTransactions(file.toString());
+        return transactionList;
+    }
+
+    @Benchmark
+    public void saveTransactions() throws Exception {
+        loaded.saveTransactions(saveFile.toString());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Transaction parsedTransaction() {
+        return Transaction.parsedTransaction(line);
+    }
+}
@@ -0,0 +1,128 @@
+package com.pluralsight;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Query and report paths over an already loaded ledger
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules=jdk.incubator.vector"})
+public class LedgerQueryBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private Path file;
+    private TransactionList transactionList;
+    private ColumnarTransactionStore columnarStore;
+    private OffHeapTransactionStore offHeapStore;
+    private LocalDate monthStart;
+    private LocalDate monthEnd;
+    private LocalDate yearStart;
+    private LocalDate yearEnd;
+    private List<Transaction> monthTransactions;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        file = LedgerData.writeLedger(rows);
+        transactionList = new TransactionList();
+        transactionList.loadTransactions(file.toString());
+        columnarStore = new ColumnarTransactionStore();
+        columnarStore.loadTransactions(file.toString());
+        offHeapStore = OffHeapTransactionStore.allocate();
+        offHeapStore.loadTransactions(file.toString());
+
+        // Same kind of ranges as the previous month and previous year reports
+        LocalDate lastDay = LedgerData.lastDay(rows);
+        LocalDate[] month = DateUtils.getPreviousMonthRange(lastDay);
+        LocalDate[] year = DateUtils.getPrevYearRange(lastDay);
+        monthStart = month[0];
+        monthEnd = month[1];
+        yearStart = year[0];
+        yearEnd = year[1];
+        monthTransactions = transactionList.getTransactions(monthStart, monthEnd);
+
+        // printFormattedList writes to System.out, which goes to a null sink while benchmarking
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.setOut(originalOut);
+        offHeapStore.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsRange() {
+        return transactionList.getTransactions(monthStart, monthEnd);
+    }
+
+    @Benchmark
+    public double getTotalTransactions() {
+        return transactionList.getTotalTransactions(yearStart, yearEnd);
+    }
+
+    // Full scan of the date and amount columns (vectorized when the incubator module is added)
+    @Benchmark
+    public RangeSummary columnarSummary() {
+        return columnarStore.getSummary(yearStart, yearEnd);
+    }
+
+    // Same scan over the 24 byte off-heap rows
+    @Benchmark
+    public RangeSummary offHeapSummary() {
+        return offHeapStore.getSummary(yearStart, yearEnd);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByVendor() {
+        return transactionList.getTransactionsByVendor(LedgerData.vendor(7).toLowerCase());
+    }
+
+    @Benchmark
+    public List<Transaction> searchTransactions() {
+        return transactionList.searchTransactions(yearStart, yearEnd, "order 12", "vendor 3");
+    }
+
+    // First page of the year, the query stops after 20 rows instead of collecting the range
+    @Benchmark
+    public List<Transaction> queryFirstPage() {
+        return transactionList.query().from(yearStart).to(yearEnd).limit(20).toList();
+    }
+
+    // Largest payments of the year, kept in a 20 row heap instead of sorting the range
+    @Benchmark
+    public List<Transaction> queryTopPayments() {
+        return transactionList.query().from(yearStart).to(yearEnd).payments()
+                .sortBy(TransactionQuery.Sort.AMOUNT).limit(20).toList();
+    }
+
+    @Benchmark
+    public void printFormattedList() {
+        DisplayUtils.printFormattedList(monthTransactions, "Previous month");
+    }
+}
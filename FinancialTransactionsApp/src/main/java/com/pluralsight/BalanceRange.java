@@ -0,0 +1,40 @@
+package com.pluralsight;
+
+import java.time.LocalDate;
+
+// Lowest and highest end of day balance over a date range, with the first day each was reached
+// The dates are null when the ledger is empty or the range is
+public class BalanceRange {
+    private final long minCents;
+    private final LocalDate minDate;
+    private final long maxCents;
+    private final LocalDate maxDate;
+
+    public BalanceRange(long minCents, LocalDate minDate, long maxCents, LocalDate maxDate) {
+        this.minCents = minCents;
+        this.minDate = minDate;
+        this.maxCents = maxCents;
+        this.maxDate = maxDate;
+    }
+
+    public long getMinCents() {
+        return minCents;
+    }
+
+    public LocalDate getMinDate() {
+        return minDate;
+    }
+
+    public long getMaxCents() {
+        return maxCents;
+    }
+
+    public LocalDate getMaxDate() {
+        return maxDate;
+    }
+
+    @Override
+    public String toString() {
+        return "min=" + Money.format(minCents) + " on " + minDate + " max=" + Money.format(maxCents) + " on " + maxDate;
+    }
+}
@@ -0,0 +1,52 @@
+package com.pluralsight;
+
+// Bloom filter over 64-bit hashes
+// Answers "definitely not added" or "maybe added" using a few bits per value, so a lookup that would
+// usually find nothing can be skipped without keeping the values themselves in memory
+public class BloomFilter {
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    // Sized for the expected number of values and the wanted false positive rate (e.g. 0.01)
+    public BloomFilter(long expectedValues, double falsePositiveRate) {
+        long n = Math.max(1, expectedValues);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+        this.bits = new long[words];
+        this.bitCount = (long) words * 64;
+        this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitCount / n * Math.log(2))));
+    }
+
+    public void add(long hash) {
+        long h1 = hash;
+        long h2 = mix(hash);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    // False means the hash was never added, true means it probably was
+    public boolean mightContain(long hash) {
+        long h1 = hash;
+        long h2 = mix(hash);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Second hash for double hashing (the finalizer of MurmurHash3), made odd so it never repeats bits
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value | 1;
+    }
+}
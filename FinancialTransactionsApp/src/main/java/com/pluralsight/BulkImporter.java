@@ -0,0 +1,425 @@
+package com.pluralsight;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Imports transactions from an external file into the ledger
+// The work runs as a pipeline of three stages connected by small bounded queues:
+//   reader thread  -> batches of lines  -> parser thread -> batches of transactions -> calling thread (dedupe)
+// When a later stage falls behind, the queue fills up and the stage before it waits (backpressure),
+// so memory stays bounded no matter how big the file is.
+// Transactions that are already in the ledger (or earlier in the same file) with the same date/time,
+// description, vendor and amount are skipped. A Bloom filter of the ledger's transactions answers
+// "definitely new" for most rows, only the rest are checked against the ledger through the time index.
+// The new transactions are added and written to the journal once, at the end
+public class BulkImporter {
+    // Supported input formats
+    public enum Format {
+        PIPE, // the transactions.csv format: yyyy-MM-dd HH:mm:ss|description|vendor|amount
+        CSV;  // comma separated, "dateTime,description,vendor,amount" or "date,time,description,vendor,amount",
+              // fields may be quoted, a header line is skipped
+
+        // Picks the format from the first line: the ledger format has "|" separators, anything else is CSV
+        public static Format detect(Path file) throws IOException {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String firstLine = reader.readLine();
+                return firstLine != null && firstLine.indexOf('|') >= 0 ? PIPE : CSV;
+            }
+        }
+    }
+
+    private static final int batchSize = 1024;
+    private static final int queueCapacity = 16;
+    private static final double bloomFalsePositiveRate = 0.01;
+    private static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Lines read by the reader stage, an empty batch marks the end of the file
+    private static class LineBatch {
+        private final long firstLineNumber;
+        private final List<String> lines;
+
+        private LineBatch(long firstLineNumber, List<String> lines) {
+            this.firstLineNumber = firstLineNumber;
+            this.lines = lines;
+        }
+    }
+
+    private static final LineBatch endOfLines = new LineBatch(0, List.of());
+    private static final List<Transaction> endOfTransactions = List.of();
+
+    private final TransactionList transactionList;
+    private final TransactionJournal journal;
+    private final LoadReport report = new LoadReport();
+    private long addedCount;
+    private long duplicateCount;
+
+    public BulkImporter(TransactionList transactionList, TransactionJournal journal) {
+        this.transactionList = transactionList;
+        this.journal = journal;
+    }
+
+    // Runs the import and returns the report of the lines that couldn't be parsed
+    public LoadReport importFile(Path file, Format format) throws IOException {
+        long startNanos = System.nanoTime();
+        BlockingQueue<LineBatch> lineQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<List<Transaction>> transactionQueue = new ArrayBlockingQueue<>(queueCapacity);
+        // What stopped a stage thread, passed on to the caller once the pipeline is done
+        Throwable[] readError = new Throwable[1];
+        Throwable[] parseError = new Throwable[1];
+
+        Thread reader = new Thread(() -> readLines(file, lineQueue, readError), "import-reader");
+        Thread parser = new Thread(() -> parseLines(format, lineQueue, transactionQueue, parseError), "import-parser");
+        reader.setDaemon(true);
+        parser.setDaemon(true);
+        reader.start();
+        parser.start();
+
+        List<Transaction> accepted = new ArrayList<>();
+        try {
+            dedupe(file, transactionQueue, accepted);
+            parser.join();
+            // A failed parser stopped taking lines, so the reader may be waiting on a full queue
+            if (parseError[0] != null) {
+                rethrow(parseError[0]);
+            }
+            reader.join();
+            if (readError[0] != null) {
+                rethrow(readError[0]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } finally {
+            // Stops the stages if the import ended early, they may be waiting on a full queue
+            reader.interrupt();
+            parser.interrupt();
+        }
+
+        // One persist for the whole import: everything is appended as one batch and only then added
+        // to the list, like every other write path
+        journal.appendAll(accepted);
+        transactionList.addTransactions(accepted);
+        addedCount = accepted.size();
+        LedgerMetrics.addBytesRead(Files.size(file));
+        LedgerMetrics.record("importFile", startNanos, report.getLoadedCount() + report.getMalformedCount(), addedCount);
+        return report;
+    }
+
+    public long getAddedCount() {
+        return addedCount;
+    }
+
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    //   === Stages ===
+
+    // Stage 1: reads the file in batches of lines
+    private static void readLines(Path file, BlockingQueue<LineBatch> lineQueue, Throwable[] readError) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> lines = new ArrayList<>(batchSize);
+            long firstLineNumber = 1;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                lines.add(line);
+                if (lines.size() == batchSize) {
+                    lineQueue.put(new LineBatch(firstLineNumber, lines));
+                    lines = new ArrayList<>(batchSize);
+                    firstLineNumber = lineNumber + 1;
+                }
+            }
+            if (!lines.isEmpty()) {
+                lineQueue.put(new LineBatch(firstLineNumber, lines));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException | Error e) {
+            readError[0] = e;
+        } finally {
+            putEndMarker(lineQueue, endOfLines);
+        }
+    }
+
+    // Stage 2: parses and validates the lines, bad lines go to the report
+    // Anything else going wrong stops the stage, the error is passed on through parseError
+    private void parseLines(Format format, BlockingQueue<LineBatch> lineQueue,
+                            BlockingQueue<List<Transaction>> transactionQueue, Throwable[] parseError) {
+        try {
+            while (true) {
+                LineBatch batch = lineQueue.take();
+                if (batch == endOfLines) {
+                    break;
+                }
+                List<Transaction> transactions = new ArrayList<>(batch.lines.size());
+                for (int i = 0; i < batch.lines.size(); i++) {
+                    String line = batch.lines.get(i);
+                    long lineNumber = batch.firstLineNumber + i;
+                    if (line.isBlank() || (lineNumber == 1 && format == Format.CSV && isHeader(line))) {
+                        continue;
+                    }
+                    try {
+                        transactions.add(format == Format.PIPE ? Transaction.parsedTransaction(line) : parseCsvLine(line));
+                        report.addLoaded();
+                    } catch (IllegalArgumentException e) {
+                        report.addMalformed(lineNumber, e.getMessage(), line);
+                    }
+                }
+                transactionQueue.put(transactions);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            parseError[0] = e;
+        } finally {
+            putEndMarker(transactionQueue, endOfTransactions);
+        }
+    }
+
+    // Posts a stage's end marker whether the stage finished or failed, so the next stage doesn't wait forever
+    // Skipped when the thread was interrupted, the import is being stopped then
+    private static <T> void putEndMarker(BlockingQueue<T> queue, T marker) {
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        try {
+            queue.put(marker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Throws an error saved by a stage thread on the calling thread
+    private static void rethrow(Throwable error) throws IOException {
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        throw (Error) error;
+    }
+
+    // Stage 3 (calling thread): drops the transactions that are already in the ledger or earlier in the file
+    private void dedupe(Path file, BlockingQueue<List<Transaction>> transactionQueue, List<Transaction> accepted)
+            throws InterruptedException, IOException {
+        TransactionList.ReadView ledger = transactionList.view();
+        List<Transaction> rows = ledger.getRows();
+        // About 50 bytes per line is a good guess for the size of the import
+        BloomFilter existing = new BloomFilter(rows.size() + Files.size(file) / 50, bloomFalsePositiveRate);
+        for (Transaction transaction : rows) {
+            existing.add(fingerprint(transaction));
+        }
+        // Transactions accepted from this file by fingerprint, a list only when different ones share a fingerprint
+        Map<Long, Object> imported = new HashMap<>();
+
+        while (true) {
+            List<Transaction> batch = transactionQueue.take();
+            if (batch == endOfTransactions) {
+                return;
+            }
+            for (Transaction transaction : batch) {
+                long fingerprint = fingerprint(transaction);
+                if (existing.mightContain(fingerprint)
+                        && (isInLedger(ledger, transaction) || isImported(imported, fingerprint, transaction))) {
+                    duplicateCount++;
+                    continue;
+                }
+                existing.add(fingerprint);
+                addImported(imported, fingerprint, transaction);
+                accepted.add(transaction);
+            }
+        }
+    }
+
+    // Exact check: looks at the ledger rows with the same date/time
+    private static boolean isInLedger(TransactionList.ReadView ledger, Transaction transaction) {
+        TimeIndex timeIndex = ledger.getTimeIndex();
+        long key = TimeIndex.toKey(transaction.getDateTime());
+        int end = timeIndex.upperBound(key);
+        for (int position = timeIndex.lowerBound(key); position < end; position++) {
+            if (isSame(ledger.getRows().get(timeIndex.rowAt(position)), transaction)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean isImported(Map<Long, Object> imported, long fingerprint, Transaction transaction) {
+        Object entry = imported.get(fingerprint);
+        if (entry instanceof Transaction) {
+            return isSame((Transaction) entry, transaction);
+        }
+        if (entry != null) {
+            for (Transaction other : (List<Transaction>) entry) {
+                if (isSame(other, transaction)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addImported(Map<Long, Object> imported, long fingerprint, Transaction transaction) {
+        Object entry = imported.putIfAbsent(fingerprint, transaction);
+        if (entry instanceof Transaction) {
+            List<Transaction> sameFingerprint = new ArrayList<>(2);
+            sameFingerprint.add((Transaction) entry);
+            sameFingerprint.add(transaction);
+            imported.put(fingerprint, sameFingerprint);
+        } else if (entry != null) {
+            ((List<Transaction>) entry).add(transaction);
+        }
+    }
+
+    // 64-bit hash of date/time, description, vendor and amount
+    static long fingerprint(Transaction transaction) {
+        long hash = BloomFilter.mix(TimeIndex.toKey(transaction.getDateTime()));
+        hash = BloomFilter.mix(hash ^ transaction.getAmountCents());
+        hash = BloomFilter.mix(hash ^ hashOf(transaction.getDescription()));
+        return BloomFilter.mix(hash ^ hashOf(transaction.getVendor()));
+    }
+
+    private static long hashOf(String text) {
+        return text == null ? 0 : ((long) text.hashCode() << 32) | text.length();
+    }
+
+    private static boolean isSame(Transaction a, Transaction b) {
+        return a.getAmountCents() == b.getAmountCents()
+                && a.getDateTime().equals(b.getDateTime())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getVendor(), b.getVendor());
+    }
+
+    //   === CSV ===
+
+    // A header line starts with a letter (after an optional quote) instead of a date
+    private static boolean isHeader(String line) {
+        int i = line.startsWith("\"") ? 1 : 0;
+        return i < line.length() && Character.isLetter(line.charAt(i));
+    }
+
+    // Parses "dateTime,description,vendor,amount" or "date,time,description,vendor,amount"
+    static Transaction parseCsvLine(String line) {
+        List<String> fields = splitCsv(line);
+        int dateFields = fields.size() - 3;
+        if (dateFields != 1 && dateFields != 2) {
+            throw new IllegalArgumentException("expected 4 or 5 fields");
+        }
+        LocalDateTime dateTime;
+        try {
+            if (dateFields == 1) {
+                String text = fields.get(0).trim();
+                dateTime = text.length() == 19 && text.charAt(10) == ' '
+                        ? parseDateTime(text.substring(0, 10), text.substring(11))
+                        : LocalDateTime.parse(text, dateTimeFormatter);
+            } else {
+                dateTime = parseDateTime(fields.get(0).trim(), fields.get(1).trim());
+            }
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("invalid date/time");
+        }
+        String description = fields.get(dateFields);
+        String vendor = fields.get(dateFields + 1);
+        if (description.indexOf('|') >= 0 || vendor.indexOf('|') >= 0) {
+            throw new IllegalArgumentException("description and vendor can't contain '|'");
+        }
+        try {
+            return Transaction.ofCents(dateTime, description, vendor, Money.parseCents(fields.get(dateFields + 2).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid amount");
+        }
+    }
+
+    // Reads "yyyy-MM-dd" and "HH:mm:ss" (or "HH:mm") digit by digit, other spellings go through java.time
+    private static LocalDateTime parseDateTime(String date, String time) {
+        if (date.length() == 10 && date.charAt(4) == '-' && date.charAt(7) == '-'
+                && (time.length() == 8 && time.charAt(5) == ':' || time.length() == 5) && time.charAt(2) == ':') {
+            int year = digits(date, 0, 4);
+            int month = digits(date, 5, 2);
+            int day = digits(date, 8, 2);
+            int hour = digits(time, 0, 2);
+            int minute = digits(time, 3, 2);
+            int second = time.length() == 8 ? digits(time, 6, 2) : 0;
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0) {
+                return LocalDateTime.of(year, month, day, hour, minute, second);
+            }
+        }
+        return LocalDate.parse(date).atTime(LocalTime.parse(time));
+    }
+
+    // Value of count digits starting at from, -1 if one of them isn't a digit
+    private static int digits(String text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // Splits a CSV line at the commas outside of quotes, "" inside quotes is a quote
+    // Lines without quotes are cut with substring, without copying character by character
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(5);
+        if (line.indexOf('"') < 0) {
+            int start = 0;
+            for (int comma = line.indexOf(','); comma >= 0; comma = line.indexOf(',', start)) {
+                fields.add(line.substring(start, comma));
+                start = comma + 1;
+            }
+            fields.add(line.substring(start));
+            return fields;
+        }
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quote");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,76 @@
+package com.pluralsight;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Append-only storage for the rows of TransactionList, in chunks of 4096 rows
+// A chunk never moves once it is allocated and a row never changes once it is added, only the
+// directory of chunks is copied when it fills up. The row count is published after the row is stored,
+// so a reader that reads the count first can look at every row below it without taking a lock.
+// Only one thread may add at a time (TransactionList adds while holding its write lock)
+public class ChunkedRows {
+    private static final int chunkBits = 12;
+    private static final int chunkSize = 1 << chunkBits;
+
+    private volatile Transaction[][] chunks = new Transaction[16][];
+    private volatile int size;
+
+    public void add(Transaction transaction) {
+        int row = size;
+        int chunk = row >>> chunkBits;
+        Transaction[][] directory = chunks;
+        if (chunk == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+        }
+        if (directory[chunk] == null) {
+            directory[chunk] = new Transaction[chunkSize];
+        }
+        directory[chunk][row & (chunkSize - 1)] = transaction;
+        chunks = directory;
+        size = row + 1;
+    }
+
+    // Number of rows added so far
+    public int size() {
+        return size;
+    }
+
+    public Transaction get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+        }
+        return chunks[row >>> chunkBits][row & (chunkSize - 1)];
+    }
+
+    // Read-only list of the rows added so far, rows added later don't show up in it
+    public List<Transaction> view() {
+        int count = size;
+        Transaction[][] directory = chunks;
+        return new RowView(directory, count);
+    }
+
+    private static class RowView extends AbstractList<Transaction> implements RandomAccess {
+        private final Transaction[][] directory;
+        private final int count;
+
+        private RowView(Transaction[][] directory, int count) {
+            this.directory = directory;
+            this.count = count;
+        }
+
+        @Override
+        public Transaction get(int row) {
+            if (row < 0 || row >= count) {
+                throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + count);
+            }
+            return directory[row >>> chunkBits][row & (chunkSize - 1)];
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Stores transactions column by column in primitive arrays instead of one object per transaction
+// Date/times are epoch seconds, amounts are cents and vendors/descriptions are ids into a StringDictionary.
+// That takes about 24 bytes per row (plus the distinct strings once) and scans run over plain arrays.
+// Transaction objects are only created for the rows a query returns.
+// Rows stay in the order they were added and range queries scan the date column. Results still come sorted by
+// date/time like TransactionList's: when every row was added in time order they are already, otherwise each
+// query sorts its matches. LedgerCli's --columnar option runs the report, vendor and search commands on it
+public class ColumnarTransactionStore implements TransactionStore {
+    private static final int initialCapacity = 1024;
+
+    private final StringDictionary descriptions = new StringDictionary();
+    private final StringDictionary vendors = new StringDictionary();
+
+    private long[] epochSeconds = new long[initialCapacity];
+    private long[] amountCents = new long[initialCapacity];
+    private int[] descriptionIds = new int[initialCapacity];
+    private int[] vendorIds = new int[initialCapacity];
+    private int size;
+    // True while every row is at or after the one before it, so range results need no sorting
+    private boolean inTimeOrder = true;
+    private long lastSeconds = Long.MIN_VALUE;
+
+    // Adds transaction as a new row
+    // Amounts are kept in whole cents, so anything past the second decimal is rounded
+    @Override
+    public void addTransaction(Transaction transaction) {
+        if (size == epochSeconds.length) {
+            int capacity = size * 2;
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            amountCents = Arrays.copyOf(amountCents, capacity);
+            descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+            vendorIds = Arrays.copyOf(vendorIds, capacity);
+        }
+        long seconds = transaction.getDateTime().toEpochSecond(ZoneOffset.UTC);
+        inTimeOrder &= seconds >= lastSeconds;
+        lastSeconds = Math.max(lastSeconds, seconds);
+        epochSeconds[size] = seconds;
+        amountCents[size] = transaction.getAmountCents();
+        descriptionIds[size] = descriptions.getOrAdd(transaction.getDescription());
+        vendorIds[size] = vendors.getOrAdd(transaction.getVendor());
+        size++;
+    }
+
+    // Loads transactions from the file, appending them as rows
+    // Nothing is printed, the report of skipped lines is returned for the caller to show
+    public LoadReport loadTransactions(String file) throws IOException {
+        return new TransactionFileReader().read(Path.of(file), this::addTransaction);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Gets all transactions as a read-only list, rows are turned into Transaction objects when accessed
+    @Override
+    public List<Transaction> getTransactions() {
+        return new AbstractList<>() {
+            @Override
+            public Transaction get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                return toTransaction(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Finds transactions within a specified date range, sorted by date/time
+    @Override
+    public List<Transaction> getTransactions(LocalDate startDate, LocalDate endDate) {
+        return searchTransactions(startDate, endDate, null, null);
+    }
+
+    public void forEachTransaction(LocalDate startDate, LocalDate endDate, Consumer<Transaction> action) {
+        searchTransactions(startDate, endDate, null, null, action);
+    }
+
+    // Finds transactions for specific vendors
+    @Override
+    public List<Transaction> getTransactionsByVendor(String vendor) {
+        List<Transaction> result = new ArrayList<>();
+        forEachByVendor(vendor, result::add);
+        return result;
+    }
+
+    // The vendor is compared once per distinct vendor, the rows only compare ids
+    public void forEachByVendor(String vendor, Consumer<Transaction> action) {
+        boolean[] vendorMatches = new boolean[vendors.size()];
+        for (int id = 0; id < vendorMatches.length; id++) {
+            String value = vendors.get(id);
+            vendorMatches[id] = value != null && value.equalsIgnoreCase(vendor);
+        }
+        for (int row = 0; row < size; row++) {
+            if (vendorMatches[vendorIds[row]]) {
+                action.accept(toTransaction(row));
+            }
+        }
+    }
+
+    // Finds amount of transactions within a date range
+    @Override
+    public double getTotalTransactions(LocalDate startDate, LocalDate endDate) {
+        return Money.toDouble(getTotalCents(startDate, endDate));
+    }
+
+    // Same as getTotalTransactions, but as exact cents
+    public long getTotalCents(LocalDate startDate, LocalDate endDate) {
+        return getSummary(startDate, endDate).getTotalCents();
+    }
+
+    // Total, deposits, payments and count for a date range (null bounds mean open ended)
+    // Scans the date and amount columns once with RangeSumKernel
+    public RangeSummary getSummary(LocalDate startDate, LocalDate endDate) {
+        long from = startDate == null ? Long.MIN_VALUE : startOfDay(startDate);
+        long to = endDate == null ? Long.MAX_VALUE : startOfDay(endDate.plusDays(1));
+        return RangeSumKernel.sum(epochSeconds, amountCents, size, from, to);
+    }
+
+    // Searches with the same optional criteria as TransactionList.searchTransactions, sorted by date/time
+    @Override
+    public List<Transaction> searchTransactions(LocalDate startDate, LocalDate endDate, String description, String vendor) {
+        List<Transaction> results = new ArrayList<>();
+        searchTransactions(startDate, endDate, description, vendor, results::add);
+        return results;
+    }
+
+    // Description and vendor terms are matched once per distinct string instead of once per row
+    // Matches are passed on sorted by date/time. Unless every row was added in time order, they are collected
+    // in a TimeIndex first, which sorts them once when it is read
+    public void searchTransactions(LocalDate startDate, LocalDate endDate, String description, String vendor,
+                                   Consumer<Transaction> action) {
+        long from = startDate == null ? Long.MIN_VALUE : startOfDay(startDate);
+        long to = endDate == null ? Long.MAX_VALUE : startOfDay(endDate.plusDays(1));
+        boolean[] descriptionMatches = containsMatches(descriptions, description);
+        boolean[] vendorMatches = containsMatches(vendors, vendor);
+
+        TimeIndex outOfOrder = inTimeOrder ? null : new TimeIndex();
+        for (int row = 0; row < size; row++) {
+            long seconds = epochSeconds[row];
+            if (seconds < from || seconds >= to) {
+                continue;
+            }
+            if (descriptionMatches != null && !descriptionMatches[descriptionIds[row]]) {
+                continue;
+            }
+            if (vendorMatches != null && !vendorMatches[vendorIds[row]]) {
+                continue;
+            }
+            if (outOfOrder != null) {
+                outOfOrder.insert(seconds, row);
+            } else {
+                action.accept(toTransaction(row));
+            }
+        }
+        for (int position = 0; outOfOrder != null && position < outOfOrder.size(); position++) {
+            action.accept(toTransaction(outOfOrder.rowAt(position)));
+        }
+    }
+
+    // Marks which dictionary entries contain the term (ignoring case), null means "no filter"
+    private static boolean[] containsMatches(StringDictionary dictionary, String term) {
+        if (term == null || term.isBlank()) {
+            return null;
+        }
+        String lowerTerm = term.toLowerCase();
+        boolean[] matches = new boolean[dictionary.size()];
+        for (int id = 0; id < matches.length; id++) {
+            String value = dictionary.get(id);
+            matches[id] = value != null && value.toLowerCase().contains(lowerTerm);
+        }
+        return matches;
+    }
+
+    // Builds a Transaction object from a row
+    private Transaction toTransaction(int row) {
+        return Transaction.ofCents(LocalDateTime.ofEpochSecond(epochSeconds[row], 0, ZoneOffset.UTC),
+                descriptions.get(descriptionIds[row]), vendors.get(vendorIds[row]), amountCents[row]);
+    }
+
+    // Date/times are stored as if they were UTC, so a day starts at a multiple of 86400 seconds
+    private static long startOfDay(LocalDate date) {
+        return date.toEpochDay() * 86400;
+    }
+}
@@ -0,0 +1,235 @@
+package com.pluralsight;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// A closed segment of the ledger stored as Deflater-compressed blocks of transactions.csv lines
+// The lines are sorted by date/time and cut into blocks of about 64KB before compressing, and an index at the
+// end of the file keeps each block's first and last date/time, position and totals. A date range query only
+// reads and inflates the blocks overlapping it, and totals of blocks that are fully inside the range come
+// from the index without inflating anything.
+//
+// Layout (big endian):
+//   blocks: the deflated lines of every block, one after the other
+//   index: per block first key, last key (epoch seconds), offset, compressed length, raw length, count,
+//          total cents, deposit cents, payment cents
+//   trailer: index offset, block count, magic
+public class CompressedSegment {
+    private static final int magic = 0x4C424C4B; // "LBLK"
+    private static final int targetBlockBytes = 64 * 1024;
+    private static final int indexEntryBytes = 8 + 8 + 8 + 4 + 4 + 4 + 8 + 8 + 8;
+    private static final int trailerBytes = 8 + 4 + 4;
+
+    private final Path file;
+    private final long[] firstKeys;
+    private final long[] lastKeys;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+    private final int[] counts;
+    private final long[] totalCents;
+    private final long[] depositCents;
+    private final long[] paymentCents;
+
+    private CompressedSegment(Path file, int blockCount) {
+        this.file = file;
+        this.firstKeys = new long[blockCount];
+        this.lastKeys = new long[blockCount];
+        this.offsets = new long[blockCount];
+        this.compressedLengths = new int[blockCount];
+        this.rawLengths = new int[blockCount];
+        this.counts = new int[blockCount];
+        this.totalCents = new long[blockCount];
+        this.depositCents = new long[blockCount];
+        this.paymentCents = new long[blockCount];
+    }
+
+    // Writes the rows, which must be sorted by date/time, and returns the size of the file
+    public static long write(Path file, List<Transaction> sortedRows) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        List<long[]> index = new ArrayList<>();
+        long offset = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), 64 * 1024))) {
+            StringBuilder lines = new StringBuilder(targetBlockBytes + 256);
+            byte[] compressed = new byte[targetBlockBytes];
+            int first = 0;
+            for (int row = 0; row < sortedRows.size(); row++) {
+                lines.append(sortedRows.get(row).toString()).append('\n');
+                if (lines.length() >= targetBlockBytes || row == sortedRows.size() - 1) {
+                    byte[] raw = lines.toString().getBytes(StandardCharsets.UTF_8);
+                    deflater.reset();
+                    deflater.setInput(raw);
+                    deflater.finish();
+                    int length = 0;
+                    while (!deflater.finished()) {
+                        if (length == compressed.length) {
+                            compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                        }
+                        length += deflater.deflate(compressed, length, compressed.length - length);
+                    }
+                    out.write(compressed, 0, length);
+                    index.add(blockEntry(sortedRows, first, row + 1, offset, length, raw.length));
+                    offset += length;
+                    lines.setLength(0);
+                    first = row + 1;
+                }
+            }
+            for (long[] entry : index) {
+                out.writeLong(entry[0]);
+                out.writeLong(entry[1]);
+                out.writeLong(entry[2]);
+                out.writeInt((int) entry[3]);
+                out.writeInt((int) entry[4]);
+                out.writeInt((int) entry[5]);
+                out.writeLong(entry[6]);
+                out.writeLong(entry[7]);
+                out.writeLong(entry[8]);
+            }
+            out.writeLong(offset);
+            out.writeInt(index.size());
+            out.writeInt(magic);
+        } finally {
+            deflater.end();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        return Files.size(file);
+    }
+
+    // Index entry of the rows from..to of a block
+    private static long[] blockEntry(List<Transaction> sortedRows, int from, int to, long offset,
+                                     int compressedLength, int rawLength) {
+        long total = 0;
+        long deposits = 0;
+        long payments = 0;
+        for (int row = from; row < to; row++) {
+            long cents = sortedRows.get(row).getAmountCents();
+            total += cents;
+            deposits += cents > 0 ? cents : 0;
+            payments += cents < 0 ? cents : 0;
+        }
+        return new long[]{TimeIndex.toKey(sortedRows.get(from).getDateTime()),
+                TimeIndex.toKey(sortedRows.get(to - 1).getDateTime()),
+                offset, compressedLength, rawLength, to - from, total, deposits, payments};
+    }
+
+    // Reads the index of a block file, the blocks themselves are read when they are needed
+    public static CompressedSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < trailerBytes) {
+                throw new IOException(file + " is too short for a block file");
+            }
+            ByteBuffer trailer = read(channel, size - trailerBytes, trailerBytes);
+            long indexOffset = trailer.getLong();
+            int blockCount = trailer.getInt();
+            if (trailer.getInt() != magic || indexOffset + (long) blockCount * indexEntryBytes + trailerBytes != size) {
+                throw new IOException(file + " is not a block file");
+            }
+            CompressedSegment segment = new CompressedSegment(file, blockCount);
+            ByteBuffer index = read(channel, indexOffset, blockCount * indexEntryBytes);
+            for (int block = 0; block < blockCount; block++) {
+                segment.firstKeys[block] = index.getLong();
+                segment.lastKeys[block] = index.getLong();
+                segment.offsets[block] = index.getLong();
+                segment.compressedLengths[block] = index.getInt();
+                segment.rawLengths[block] = index.getInt();
+                segment.counts[block] = index.getInt();
+                segment.totalCents[block] = index.getLong();
+                segment.depositCents[block] = index.getLong();
+                segment.paymentCents[block] = index.getLong();
+            }
+            return segment;
+        }
+    }
+
+    public int getBlockCount() {
+        return firstKeys.length;
+    }
+
+    // Bytes of the lines before compressing
+    public long getRawBytes() {
+        long bytes = 0;
+        for (int rawLength : rawLengths) {
+            bytes += rawLength;
+        }
+        return bytes;
+    }
+
+    // The block has rows with keys between fromKey (inclusive) and toKey (exclusive)
+    public boolean overlaps(int block, long fromKey, long toKey) {
+        return lastKeys[block] >= fromKey && firstKeys[block] < toKey;
+    }
+
+    // Every row of the block has a key between fromKey (inclusive) and toKey (exclusive)
+    public boolean isInside(int block, long fromKey, long toKey) {
+        return firstKeys[block] >= fromKey && lastKeys[block] < toKey;
+    }
+
+    public RangeSummary getSummary(int block) {
+        return new RangeSummary(totalCents[block], depositCents[block], paymentCents[block], counts[block]);
+    }
+
+    // Reads, inflates and parses one block, the rows are sorted by date/time
+    public Transaction[] readBlock(int block) throws IOException {
+        ByteBuffer compressed;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            compressed = read(channel, offsets[block], compressedLengths[block]);
+        }
+        byte[] raw = new byte[rawLengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != raw.length) {
+                throw new IOException("Block " + block + " of " + file + " is damaged");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Block " + block + " of " + file + " is damaged", e);
+        } finally {
+            inflater.end();
+        }
+        Transaction[] rows = new Transaction[counts[block]];
+        int[] count = new int[1];
+        LoadReport report = new LoadReport();
+        new TransactionFileReader().parseLines(ByteBuffer.wrap(raw), 0, raw.length, 1,
+                transaction -> rows[count[0]++] = transaction, report);
+        if (count[0] != rows.length) {
+            throw new IOException("Block " + block + " of " + file + " has " + count[0] + " rows instead of " + rows.length);
+        }
+        LedgerMetrics.addBytesRead(compressedLengths[block]);
+        return rows;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of block file");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -41,6 +41,24 @@ public class Console {
         return result;
     }
 
+    // Reads a money amount like 12.5 or 1725.00 as whole cents, without rounding it through a float
+    public long promptForCents(String prompt){
+        boolean hasResult = false;
+        long result = 0;
+        while (!hasResult){
+            try{
+                System.out.print(prompt);
+                result = Money.parseCents(scanner.next());
+                scanner.nextLine();
+                hasResult = true;
+
+            }catch (Exception e){
+                System.out.println("Invalid entry");
+            }
+        }
+        return result;
+    }
+
     public float promptForFloat(String prompt){
         boolean hasResult = false;
         float result = 0;
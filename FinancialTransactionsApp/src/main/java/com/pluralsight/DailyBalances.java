@@ -0,0 +1,294 @@
+package com.pluralsight;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+// The balance at the end of every day, kept in a segment tree with lazy range adds
+// A transaction changes the balance of its own day and every day after it, so adding one (back-dated or not)
+// is a range add over the tail of the tree: O(log days). The balance on a day and the lowest and highest
+// balance over a date range are answered in O(log days) as well.
+// Every node keeps the min and max of its days including its own pending add, and the pending adds are never
+// pushed down, so queries only read the arrays (TransactionList reads them optimistically, like DailyTotals)
+// The tree spans the days from the first to the last transaction. Transaction only accepts the years minYear
+// to maxYear, so it stays around 6MB at most, however far apart they are
+public class DailyBalances {
+    // Extra days kept around the stored range so the tree doesn't have to be rebuilt on every new day
+    private static final int slackDays = 366;
+
+    // Leaf 0 of the tree is this epoch day, leaves is a power of two
+    private long baseDay;
+    private int leaves;
+
+    // Heap layout, node 1 is the root and node i has children 2i and 2i + 1
+    private long[] minTree;
+    private long[] maxTree;
+    private long[] pendingAdds;
+
+    private long totalCents;
+    private long firstDay = Long.MAX_VALUE;
+    private long lastDay = Long.MIN_VALUE;
+
+    // Adds a transaction's amount (in cents) to the balance of its day and all later days
+    public void add(LocalDate date, long amountCents) {
+        long day = date.toEpochDay();
+        ensureCapacity(day);
+        addToTail(1, 0, leaves, (int) (day - baseDay), amountCents);
+        totalCents += amountCents;
+        firstDay = Math.min(firstDay, day);
+        lastDay = Math.max(lastDay, day);
+    }
+
+    // Balance at the end of the date, everything on or before it
+    public long getBalance(LocalDate date) {
+        long day = date.toEpochDay();
+        if (minTree == null || day < baseDay) {
+            return 0;
+        }
+        if (day >= baseDay + leaves) {
+            return totalCents;
+        }
+        int leaf = (int) (day - baseDay);
+        long balance = 0;
+        int node = 1;
+        int from = 0;
+        int to = leaves;
+        while (to - from > 1) {
+            balance += pendingAdds[node];
+            int middle = (from + to) >>> 1;
+            if (leaf < middle) {
+                node = 2 * node;
+                to = middle;
+            } else {
+                node = 2 * node + 1;
+                from = middle;
+            }
+        }
+        return balance + minTree[node];
+    }
+
+    // Lowest and highest end of day balance from the start date through the end date
+    // Null dates stand for the first and last day with a transaction
+    public BalanceRange getRange(LocalDate startDate, LocalDate endDate) {
+        if (minTree == null) {
+            return new BalanceRange(0, null, 0, null);
+        }
+        long from = startDate == null ? firstDay : startDate.toEpochDay();
+        long to = endDate == null ? lastDay : endDate.toEpochDay();
+        if (from > to) {
+            return new BalanceRange(0, null, 0, null);
+        }
+
+        long minCents = Long.MAX_VALUE;
+        long minDay = from;
+        long maxCents = Long.MIN_VALUE;
+        long maxDay = from;
+        // Days before the tree have nothing before them
+        if (from < baseDay) {
+            minCents = 0;
+            maxCents = 0;
+        }
+        long storedFrom = Math.max(from, baseDay);
+        long storedTo = Math.min(to, baseDay + leaves - 1);
+        if (storedFrom <= storedTo) {
+            int first = (int) (storedFrom - baseDay);
+            int last = (int) (storedTo - baseDay) + 1;
+            long storedMin = min(1, 0, leaves, first, last, 0);
+            if (storedMin < minCents) {
+                minCents = storedMin;
+                minDay = baseDay + findFirst(1, 0, leaves, first, last, 0, storedMin, true);
+            }
+            long storedMax = max(1, 0, leaves, first, last, 0);
+            if (storedMax > maxCents) {
+                maxCents = storedMax;
+                maxDay = baseDay + findFirst(1, 0, leaves, first, last, 0, storedMax, false);
+            }
+        }
+        // Days after the tree have everything before them
+        if (to >= baseDay + leaves) {
+            long afterDay = Math.max(from, baseDay + leaves);
+            if (totalCents < minCents) {
+                minCents = totalCents;
+                minDay = afterDay;
+            }
+            if (totalCents > maxCents) {
+                maxCents = totalCents;
+                maxDay = afterDay;
+            }
+        }
+        return new BalanceRange(minCents, LocalDate.ofEpochDay(minDay), maxCents, LocalDate.ofEpochDay(maxDay));
+    }
+
+    // Copy that doesn't change when transactions are added to this one
+    public DailyBalances copy() {
+        DailyBalances copy = new DailyBalances();
+        copy.baseDay = baseDay;
+        copy.leaves = leaves;
+        copy.totalCents = totalCents;
+        copy.firstDay = firstDay;
+        copy.lastDay = lastDay;
+        if (minTree != null) {
+            copy.minTree = minTree.clone();
+            copy.maxTree = maxTree.clone();
+            copy.pendingAdds = pendingAdds.clone();
+        }
+        return copy;
+    }
+
+    // Writes the tree as it is (used by LedgerSnapshot), readFrom gets it back without adding a row
+    // Layout: base day, leaves (0 when empty), total, first and last day, then the min, max and pending add
+    // arrays of 2 * leaves longs each
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(baseDay);
+        out.writeInt(minTree == null ? 0 : leaves);
+        out.writeLong(totalCents);
+        out.writeLong(firstDay);
+        out.writeLong(lastDay);
+        if (minTree != null) {
+            for (long[] tree : new long[][] {minTree, maxTree, pendingAdds}) {
+                for (long value : tree) {
+                    out.writeLong(value);
+                }
+            }
+        }
+    }
+
+    public static DailyBalances readFrom(ByteBuffer buffer) {
+        DailyBalances balances = new DailyBalances();
+        balances.baseDay = buffer.getLong();
+        balances.leaves = buffer.getInt();
+        balances.totalCents = buffer.getLong();
+        balances.firstDay = buffer.getLong();
+        balances.lastDay = buffer.getLong();
+        if (balances.leaves > 0) {
+            balances.minTree = readTree(buffer, 2 * balances.leaves);
+            balances.maxTree = readTree(buffer, 2 * balances.leaves);
+            balances.pendingAdds = readTree(buffer, 2 * balances.leaves);
+        }
+        return balances;
+    }
+
+    private static long[] readTree(ByteBuffer buffer, int length) {
+        long[] tree = new long[length];
+        buffer.asLongBuffer().get(tree);
+        buffer.position(buffer.position() + length * Long.BYTES);
+        return tree;
+    }
+
+    // Adds the amount to the leaves from start to the end of the tree
+    private void addToTail(int node, int from, int to, int start, long amountCents) {
+        if (to <= start) {
+            return;
+        }
+        if (from >= start) {
+            pendingAdds[node] += amountCents;
+            minTree[node] += amountCents;
+            maxTree[node] += amountCents;
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        addToTail(2 * node, from, middle, start, amountCents);
+        addToTail(2 * node + 1, middle, to, start, amountCents);
+        minTree[node] = pendingAdds[node] + Math.min(minTree[2 * node], minTree[2 * node + 1]);
+        maxTree[node] = pendingAdds[node] + Math.max(maxTree[2 * node], maxTree[2 * node + 1]);
+    }
+
+    // Lowest balance of the leaves first..last (last excluded), added is the pending adds of the ancestors
+    private long min(int node, int from, int to, int first, int last, long added) {
+        if (to <= first || from >= last) {
+            return Long.MAX_VALUE;
+        }
+        if (from >= first && to <= last) {
+            return added + minTree[node];
+        }
+        int middle = (from + to) >>> 1;
+        added += pendingAdds[node];
+        return Math.min(min(2 * node, from, middle, first, last, added),
+                min(2 * node + 1, middle, to, first, last, added));
+    }
+
+    private long max(int node, int from, int to, int first, int last, long added) {
+        if (to <= first || from >= last) {
+            return Long.MIN_VALUE;
+        }
+        if (from >= first && to <= last) {
+            return added + maxTree[node];
+        }
+        int middle = (from + to) >>> 1;
+        added += pendingAdds[node];
+        return Math.max(max(2 * node, from, middle, first, last, added),
+                max(2 * node + 1, middle, to, first, last, added));
+    }
+
+    // First leaf within first..last whose balance is the target (a min or max found before), -1 if none
+    // Only goes into subtrees whose min (or max) reaches the target
+    private int findFirst(int node, int from, int to, int first, int last, long added, long target, boolean lowest) {
+        if (to <= first || from >= last) {
+            return -1;
+        }
+        long extreme = added + (lowest ? minTree[node] : maxTree[node]);
+        if (lowest ? extreme > target : extreme < target) {
+            return -1;
+        }
+        if (to - from == 1) {
+            return from;
+        }
+        int middle = (from + to) >>> 1;
+        added += pendingAdds[node];
+        int leaf = findFirst(2 * node, from, middle, first, last, added, target, lowest);
+        return leaf >= 0 ? leaf : findFirst(2 * node + 1, middle, to, first, last, added, target, lowest);
+    }
+
+    // Makes sure the day falls within the tree, rebuilding it over a bigger range if it doesn't
+    private void ensureCapacity(long day) {
+        if (minTree == null) {
+            baseDay = day - slackDays;
+            build(new long[Integer.highestOneBit(2 * slackDays) * 2]);
+            return;
+        }
+        if (day >= baseDay && day < baseDay + leaves) {
+            return;
+        }
+
+        long newBaseDay = day < baseDay ? day - slackDays : baseDay;
+        long newEndDay = day < baseDay ? baseDay + leaves : Math.max(day + slackDays, baseDay + 2L * leaves);
+        int newLeaves = Integer.highestOneBit(Math.toIntExact(newEndDay - newBaseDay - 1)) * 2;
+        int shift = (int) (baseDay - newBaseDay);
+
+        // Days before the old tree stay 0, days after it get the balance of its last day
+        long[] balances = new long[newLeaves];
+        collectLeaves(1, 0, leaves, 0, balances, shift);
+        for (int leaf = shift + leaves; leaf < newLeaves; leaf++) {
+            balances[leaf] = totalCents;
+        }
+        baseDay = newBaseDay;
+        build(balances);
+    }
+
+    // Writes the balance of every leaf to balances, starting at offset
+    private void collectLeaves(int node, int from, int to, long added, long[] balances, int offset) {
+        if (to - from == 1) {
+            balances[offset + from] = added + minTree[node];
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        added += pendingAdds[node];
+        collectLeaves(2 * node, from, middle, added, balances, offset);
+        collectLeaves(2 * node + 1, middle, to, added, balances, offset);
+    }
+
+    // Builds the tree bottom up over the balances of its leaves
+    private void build(long[] balances) {
+        leaves = balances.length;
+        minTree = new long[2 * leaves];
+        maxTree = new long[2 * leaves];
+        pendingAdds = new long[2 * leaves];
+        System.arraycopy(balances, 0, minTree, leaves, leaves);
+        System.arraycopy(balances, 0, maxTree, leaves, leaves);
+        for (int node = leaves - 1; node > 0; node--) {
+            minTree[node] = Math.min(minTree[2 * node], minTree[2 * node + 1]);
+            maxTree[node] = Math.max(maxTree[2 * node], maxTree[2 * node + 1]);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.pluralsight;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+// Running totals per day, kept in Fenwick trees (binary indexed trees)
+// Adding a transaction updates O(log days) entries, and the total, deposits, payments and count
+// of any date range are answered in O(log days), no matter how many transactions are in the range
+public class DailyTotals {
+    // Extra days kept around the stored range so the trees don't have to be rebuilt on every new day
+    private static final int slackDays = 366;
+
+    // Index 0 of the trees is this epoch day
+    private long baseDay;
+    private int capacity;
+
+    // Fenwick trees, 1-based (index 0 is unused)
+    private long[] totalTree;
+    private long[] depositTree;
+    private long[] paymentTree;
+    private long[] countTree;
+
+    // Adds a transaction's amount (in cents) to the day it happened on
+    public void add(LocalDate date, long amountCents) {
+        long day = date.toEpochDay();
+        ensureCapacity(day);
+        int index = (int) (day - baseDay) + 1;
+        long deposit = amountCents > 0 ? amountCents : 0;
+        long payment = amountCents < 0 ? amountCents : 0;
+        for (int i = index; i <= capacity; i += i & -i) {
+            totalTree[i] += amountCents;
+            depositTree[i] += deposit;
+            paymentTree[i] += payment;
+            countTree[i]++;
+        }
+    }
+
+    // Totals from the start date through the end date (both included), null dates leave that side open
+    public RangeSummary getSummary(LocalDate startDate, LocalDate endDate) {
+        if (totalTree == null) {
+            return new RangeSummary(0, 0, 0, 0);
+        }
+        int from = startDate == null ? 0 : clamp(startDate.toEpochDay() - baseDay);
+        int to = endDate == null ? capacity : clamp(endDate.toEpochDay() - baseDay + 1);
+        if (from >= to) {
+            return new RangeSummary(0, 0, 0, 0);
+        }
+        return new RangeSummary(
+                prefix(totalTree, to) - prefix(totalTree, from),
+                prefix(depositTree, to) - prefix(depositTree, from),
+                prefix(paymentTree, to) - prefix(paymentTree, from),
+                prefix(countTree, to) - prefix(countTree, from));
+    }
+
+    // Copy that doesn't change when transactions are added to this one
+    public DailyTotals copy() {
+        DailyTotals copy = new DailyTotals();
+        copy.baseDay = baseDay;
+        copy.capacity = capacity;
+        if (totalTree != null) {
+            copy.totalTree = totalTree.clone();
+            copy.depositTree = depositTree.clone();
+            copy.paymentTree = paymentTree.clone();
+            copy.countTree = countTree.clone();
+        }
+        return copy;
+    }
+
+    // Writes the trees as they are (used by LedgerSnapshot), readFrom gets them back without adding a row
+    // Layout: base day, capacity (0 when empty), then the four trees of capacity + 1 longs each
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(baseDay);
+        out.writeInt(totalTree == null ? 0 : capacity);
+        if (totalTree != null) {
+            for (long[] tree : new long[][] {totalTree, depositTree, paymentTree, countTree}) {
+                for (long value : tree) {
+                    out.writeLong(value);
+                }
+            }
+        }
+    }
+
+    public static DailyTotals readFrom(ByteBuffer buffer) {
+        DailyTotals totals = new DailyTotals();
+        totals.baseDay = buffer.getLong();
+        totals.capacity = buffer.getInt();
+        if (totals.capacity > 0) {
+            totals.totalTree = readTree(buffer, totals.capacity + 1);
+            totals.depositTree = readTree(buffer, totals.capacity + 1);
+            totals.paymentTree = readTree(buffer, totals.capacity + 1);
+            totals.countTree = readTree(buffer, totals.capacity + 1);
+        }
+        return totals;
+    }
+
+    private static long[] readTree(ByteBuffer buffer, int length) {
+        long[] tree = new long[length];
+        buffer.asLongBuffer().get(tree);
+        buffer.position(buffer.position() + length * Long.BYTES);
+        return tree;
+    }
+
+    // Sum of the first days (tree positions 1 through days)
+    private static long prefix(long[] tree, int days) {
+        long sum = 0;
+        for (int i = days; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Turns a day offset into a count of days within the stored range
+    private int clamp(long days) {
+        return (int) Math.max(0, Math.min(capacity, days));
+    }
+
+    // Makes sure the day falls within the trees, rebuilding them over a bigger range if it doesn't
+    private void ensureCapacity(long day) {
+        if (totalTree == null) {
+            baseDay = day - slackDays;
+            capacity = 2 * slackDays;
+            totalTree = new long[capacity + 1];
+            depositTree = new long[capacity + 1];
+            paymentTree = new long[capacity + 1];
+            countTree = new long[capacity + 1];
+            return;
+        }
+        if (day >= baseDay && day < baseDay + capacity) {
+            return;
+        }
+
+        long newBaseDay = day < baseDay ? day - slackDays : baseDay;
+        long newEndDay = day < baseDay ? baseDay + capacity : Math.max(day + slackDays, baseDay + 2L * capacity);
+        int newCapacity = Math.toIntExact(newEndDay - newBaseDay);
+        int shift = (int) (baseDay - newBaseDay);
+
+        totalTree = rebuild(totalTree, capacity, newCapacity, shift);
+        depositTree = rebuild(depositTree, capacity, newCapacity, shift);
+        paymentTree = rebuild(paymentTree, capacity, newCapacity, shift);
+        countTree = rebuild(countTree, capacity, newCapacity, shift);
+        baseDay = newBaseDay;
+        capacity = newCapacity;
+    }
+
+    // Recovers the per-day values from a tree and builds a bigger tree from them
+    private static long[] rebuild(long[] tree, int capacity, int newCapacity, int shift) {
+        long[] values = new long[newCapacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            values[i + shift] = prefix(tree, i) - prefix(tree, i - 1);
+        }
+        for (int i = 1; i <= newCapacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= newCapacity) {
+                values[parent] += values[i];
+            }
+        }
+        return values;
+    }
+}
@@ -1,6 +1,8 @@
 package com.pluralsight;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
 
 public class DateUtils {
@@ -32,4 +34,20 @@ public class DateUtils {
         LocalDate endOfPrevYear = prevYear.with(TemporalAdjusters.lastDayOfYear());
         return new LocalDate[]{startOfPrevYear, endOfPrevYear};
     }
+
+    // Calculates the first day of the day, week (starting Monday), month or year the date is in
+    public static LocalDate getPeriodStart(LocalDate date, ChronoUnit period) {
+        switch (period) {
+            case DAYS:
+                return date;
+            case WEEKS:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHS:
+                return date.withDayOfMonth(1);
+            case YEARS:
+                return date.withDayOfYear(1);
+            default:
+                throw new IllegalArgumentException("Unsupported period: " + period);
+        }
+    }
 }
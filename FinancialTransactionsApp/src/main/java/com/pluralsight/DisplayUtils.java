@@ -1,8 +1,17 @@
 package com.pluralsight;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class DisplayUtils {
     //   === Column width initialization ===
@@ -10,6 +19,11 @@ public class DisplayUtils {
     private static final int descWidth = 40;
     private static final int vendorWidth = 30;
     private static final int amountWidth = 15;
+    private static final int periodWidth = 12;
+    private static final int typeWidth = 10;
+    private static final int countWidth = 9;
+    // Period columns per pivot table, more periods are split over several tables
+    private static final int pivotColumns = 6;
 
     //   === Box drawing characters ===
     private static final char horizontal = '─';
@@ -24,22 +38,18 @@ public class DisplayUtils {
     private static final char crossRight = '┤';
     private static final char crossMiddle = '┼';
 
-    //   === Format strings for data rows ===
-    // Uses %s for the amount column since we not pre-format with "$"
+    //   === Date/time formatter, created once instead of on every call ===
+    private static final DateTimeFormatter dtFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    private static final String dataRowFormat =
-            vertical + "%-" + dateTimeWidth + "s" +
-            vertical + "%-" + descWidth + "s" +
-            vertical + "%-" + vendorWidth + "s" +
-            vertical + "%" + amountWidth + "s" +
-            vertical + "%n";
-
-    // Pattern used to remove escape codes for length calculation
-    private static final Pattern escapePattern = Pattern.compile("\u001B\\[[;\\d]*m");
     //   === Border and separator strings ===
     private static final String topBorder = buildBorder(topLeft, topRight, crossTop);
     private static final String headerSeparator = buildBorder(crossLeft, crossRight, crossMiddle);
     private static final String bottomBorder = buildBorder(bottomLeft, bottomRight, crossBottom);
+    // Same borders with the balance column
+    private static final List<Integer> balanceWidths = List.of(dateTimeWidth, descWidth, vendorWidth, amountWidth, amountWidth);
+    private static final String balanceTopBorder = buildBorder(topLeft, topRight, crossTop, balanceWidths);
+    private static final String balanceHeaderSeparator = buildBorder(crossLeft, crossRight, crossMiddle, balanceWidths);
+    private static final String balanceBottomBorder = buildBorder(bottomLeft, bottomRight, crossBottom, balanceWidths);
 
     //   === Helper method to build border/separator lines ===
     private static String buildBorder(char left, char right, char cross) {
@@ -56,13 +66,27 @@ public class DisplayUtils {
         return sb.toString();
     }
 
+    // Border for any columns, used by the group and pivot tables
+    private static String buildBorder(char left, char right, char cross, List<Integer> widths) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(left);
+        for (int i = 0; i < widths.size(); i++) {
+            if (i > 0) {
+                sb.append(cross);
+            }
+            sb.append(String.valueOf(horizontal).repeat(widths.get(i)));
+        }
+        sb.append(right);
+        return sb.toString();
+    }
+
     //   === Helper method to center text within the width ===
     private static String centerText(String text, int width) {
         if (text == null){
             text = "";
         }
 
-        int visibleLength = escapePattern.matcher(text).replaceAll("").length();
+        int visibleLength = visibleLength(text);
         if (visibleLength >= width) {
             return text.substring(0, width);
         }
@@ -73,89 +97,368 @@ public class DisplayUtils {
         return " ".repeat(padLeft) + text + " ".repeat(padRight);
     }
 
-    //   === Main printing method ===
+    //   === Helper method to count the characters that show up on screen ===
+    // Skips ANSI color codes (ESC [ digits/; m) with a simple loop instead of a regex
+    static int visibleLength(CharSequence text) {
+        int length = 0;
+        int i = 0;
+        while (i < text.length()) {
+            if (text.charAt(i) == '\u001B' && i + 1 < text.length() && text.charAt(i + 1) == '[') {
+                int j = i + 2;
+                while (j < text.length() && (Character.isDigit(text.charAt(j)) || text.charAt(j) == ';')) {
+                    j++;
+                }
+                if (j < text.length() && text.charAt(j) == 'm') {
+                    i = j + 1;
+                    continue;
+                }
+            }
+            length++;
+            i++;
+        }
+        return length;
+    }
+
+    //   === Main printing methods ===
     // Prints a formatted list of transactions within a box table.
     //Displays the provided title and handle null or empty lists
     public static void printFormattedList(List<Transaction> transactions, String title) {
-        System.out.println();
+        printFormattedList(transactions, title, 0, Integer.MAX_VALUE);
+    }
+
+    // Prints the list with a balance column, closingBalanceCents is the balance after the newest row
+    // The list must be sorted by date/time and hold every transaction between its first and last one
+    public static void printFormattedList(List<Transaction> transactions, String title, long closingBalanceCents) {
+        printFormattedList(transactions, title, 0, Integer.MAX_VALUE, closingBalanceCents);
+    }
+
+    // Prints one page of the list: skips the first offset rows (newest first) and prints at most limit rows
+    public static void printFormattedList(List<Transaction> transactions, String title, int offset, int limit) {
+        printFormattedList(transactions, title, offset, limit, null);
+    }
+
+    private static void printFormattedList(List<Transaction> transactions, String title, int offset, int limit,
+                                           Long balanceCents) {
+        // Everything goes through one buffered writer that is flushed once at the end
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 64 * 1024);
+        try {
+            writeFormattedList(out, transactions, title, offset, limit, balanceCents);
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Error printing transactions: " + e.getMessage());
+        }
+    }
+
+    // Writes the table to any writer, rows are built in one reusable buffer
+    public static void writeFormattedList(Writer out, List<Transaction> transactions, String title,
+                                          int offset, int limit) throws IOException {
+        writeFormattedList(out, transactions, title, offset, limit, null);
+    }
+
+    // Same table with a balance column when balanceCents isn't null, balanceCents is the balance after the
+    // newest row printed. Rows are printed newest first, so the balance before each row is its balance
+    // minus its amount and nothing is added up again
+    public static void writeFormattedList(Writer out, List<Transaction> transactions, String title,
+                                          int offset, int limit, Long balanceCents) throws IOException {
+        out.write(System.lineSeparator());
         if (title != null && !title.isBlank()){
             String titleSeparator = "=".repeat(title.length() + 4);
-            System.out.println(titleSeparator);
-            System.out.println("= " + title + " =");
-            System.out.println(titleSeparator);
+            writeLine(out, titleSeparator);
+            writeLine(out, "= " + title + " =");
+            writeLine(out, titleSeparator);
         }
 
         // Handles empty lists
         if (transactions == null || transactions.isEmpty()) {
-            System.out.println("No transactions to display." + "\n");
+            writeLine(out, "No transactions to display." + "\n");
             return;
         }
 
         // Print table header
-        System.out.println(topBorder);
+        boolean withBalance = balanceCents != null;
+        writeLine(out, withBalance ? balanceTopBorder : topBorder);
         //Prints centered header title within vertical bars
-        System.out.printf("%c%s%c%s%c%s%c%s%c%n",
-                vertical, centerText("Date/Time", dateTimeWidth),
-                vertical, centerText("Description", descWidth),
-                vertical, centerText("Vendor", vendorWidth),
-                vertical, centerText("Amount", amountWidth),
-                vertical);
-        System.out.println(headerSeparator);
-
-        DateTimeFormatter DtFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        for (int i = transactions.size() - 1; i >= 0; i--) {
+        writeLine(out, vertical + centerText("Date/Time", dateTimeWidth)
+                + vertical + centerText("Description", descWidth)
+                + vertical + centerText("Vendor", vendorWidth)
+                + vertical + centerText("Amount", amountWidth)
+                + (withBalance ? vertical + centerText("Balance", amountWidth) : "")
+                + vertical);
+        writeLine(out, withBalance ? balanceHeaderSeparator : headerSeparator);
+        long balance = withBalance ? balanceCents : 0;
+
+        // Newest transactions are shown first, so the page starts counting from the end of the list
+        int first = transactions.size() - 1 - Math.max(0, offset);
+        int last = Math.max(-1, first - Math.max(0, limit));
+        StringBuilder row = new StringBuilder(256);
+        for (int i = first; i > last; i--) {
             Transaction t = transactions.get(i);
+            row.setLength(0);
 
-            String formattedDateTime = t.getDateTime().format(DtFormatter);
-            if (formattedDateTime.length() > dateTimeWidth) {
-                formattedDateTime = formattedDateTime.substring(0, dateTimeWidth);
+            row.append(vertical);
+            int start = row.length();
+            dtFormatter.formatTo(t.getDateTime(), row);
+            if (row.length() - start > dateTimeWidth) {
+                row.setLength(start + dateTimeWidth);
             }
+            pad(row, dateTimeWidth - (row.length() - start));
 
-            String displayDesc = t.getDescription();
-            if (displayDesc == null){
-                displayDesc = "";
-            }
-            if (displayDesc.length() > descWidth) {
-                displayDesc = displayDesc.substring(0, descWidth -3) + "...";
-            }
+            row.append(vertical);
+            appendTruncated(row, t.getDescription(), descWidth);
+
+            row.append(vertical);
+            appendTruncated(row, t.getVendor(), vendorWidth);
 
-            String displayVendor = t.getVendor();
-            if (displayVendor == null){
-                displayVendor = "";
+            row.append(vertical);
+            appendAmount(row, t.getAmountCents(), amountWidth);
+
+            if (withBalance) {
+                row.append(vertical);
+                appendAmount(row, balance, amountWidth);
+                balance -= t.getAmountCents();
             }
-            if (displayVendor.length() > vendorWidth) {
-                displayVendor = displayVendor.substring(0, vendorWidth - 3) + "...";
+
+            row.append(vertical).append(System.lineSeparator());
+            out.append(row);
+        }
+
+        writeLine(out, (withBalance ? balanceBottomBorder : bottomBorder) + "\n");
+    }
+
+    // Prints one row per group with its count, total, min, max and average
+    // The vendor, period and type columns are only shown for the parts the rows were grouped by
+    public static void printGroupTable(GroupBy groupBy, String title) {
+        List<GroupBy.Group> groups = groupBy.getGroups();
+        List<Integer> widths = new ArrayList<>();
+        List<String> headers = new ArrayList<>();
+        if (groupBy.isByVendor()) {
+            widths.add(vendorWidth);
+            headers.add("Vendor");
+        }
+        if (groupBy.getPeriod() != null) {
+            widths.add(periodWidth);
+            headers.add("Period");
+        }
+        if (groupBy.isBySign()) {
+            widths.add(typeWidth);
+            headers.add("Type");
+        }
+        widths.add(countWidth);
+        headers.add("Count");
+        for (String header : new String[]{"Total", "Min", "Max", "Average"}) {
+            widths.add(amountWidth);
+            headers.add(header);
+        }
+
+        printTable(title, groups.isEmpty(), out -> {
+            writeHeader(out, widths, headers);
+            StringBuilder row = new StringBuilder(256);
+            for (GroupBy.Group group : groups) {
+                row.setLength(0);
+                if (groupBy.isByVendor()) {
+                    row.append(vertical);
+                    appendTruncated(row, group.getVendor(), vendorWidth);
+                }
+                if (groupBy.getPeriod() != null) {
+                    row.append(vertical);
+                    appendTruncated(row, GroupBy.formatPeriod(group.getPeriodStart(), groupBy.getPeriod()), periodWidth);
+                }
+                if (groupBy.isBySign()) {
+                    row.append(vertical);
+                    appendTruncated(row, group.getSign() > 0 ? "Deposits" : "Payments", typeWidth);
+                }
+                row.append(vertical);
+                String count = Long.toString(group.getCount());
+                pad(row, countWidth - count.length());
+                row.append(count);
+                for (long cents : new long[]{group.getTotalCents(), group.getMinCents(), group.getMaxCents(),
+                        group.getAverageCents()}) {
+                    row.append(vertical);
+                    appendAmount(row, cents, amountWidth);
+                }
+                row.append(vertical).append(System.lineSeparator());
+                out.append(row);
             }
+            writeLine(out, buildBorder(bottomLeft, bottomRight, crossBottom, widths) + "\n");
+        });
+    }
 
-            //   === Formats amount color based on if it is a payment/deposit
-            double amount = t.getAmount();
-            String amountColor;
-            if (amount > 0) {
-                amountColor = ColorCodes.GREEN;
-            } else if (amount < 0) {
-                amountColor = ColorCodes.RED;
-            }else {
-                amountColor = ColorCodes.RESET;
+    // Prints totals of a vendor x period grouping with vendors as rows and periods as columns, plus a
+    // total per vendor and per period. More periods than fit next to each other are split over several tables
+    public static void printPivotTable(GroupBy groupBy, String title) {
+        List<GroupBy.Group> groups = groupBy.getGroups();
+        ChronoUnit period = groupBy.getPeriod();
+        // Groups come sorted by vendor, so the rows keep that order
+        Map<String, Integer> vendorRows = new LinkedHashMap<>();
+        TreeMap<LocalDate, Integer> periodColumns = new TreeMap<>();
+        for (GroupBy.Group group : groups) {
+            vendorRows.putIfAbsent(group.getVendor(), vendorRows.size());
+            periodColumns.putIfAbsent(group.getPeriodStart(), 0);
+        }
+        List<LocalDate> periods = new ArrayList<>(periodColumns.keySet());
+        for (int column = 0; column < periods.size(); column++) {
+            periodColumns.put(periods.get(column), column);
+        }
+        long[][] totals = new long[vendorRows.size()][periods.size()];
+        boolean[][] present = new boolean[vendorRows.size()][periods.size()];
+        for (GroupBy.Group group : groups) {
+            int vendorRow = vendorRows.get(group.getVendor());
+            int column = periodColumns.get(group.getPeriodStart());
+            totals[vendorRow][column] += group.getTotalCents();
+            present[vendorRow][column] = true;
+        }
+        List<String> vendors = new ArrayList<>(vendorRows.keySet());
+
+        printTable(title, groups.isEmpty(), out -> {
+            for (int first = 0; first < periods.size(); first += pivotColumns) {
+                int last = Math.min(periods.size(), first + pivotColumns);
+                boolean withTotals = last == periods.size();
+                List<Integer> widths = new ArrayList<>();
+                List<String> headers = new ArrayList<>();
+                widths.add(vendorWidth);
+                headers.add("Vendor");
+                for (int column = first; column < last; column++) {
+                    widths.add(amountWidth);
+                    headers.add(GroupBy.formatPeriod(periods.get(column), period));
+                }
+                if (withTotals) {
+                    widths.add(amountWidth);
+                    headers.add("Total");
+                }
+                writeHeader(out, widths, headers);
+
+                StringBuilder row = new StringBuilder(256);
+                long[] columnTotals = new long[periods.size()];
+                long grandTotal = 0;
+                for (int vendorRow = 0; vendorRow < vendors.size(); vendorRow++) {
+                    row.setLength(0);
+                    row.append(vertical);
+                    appendTruncated(row, vendors.get(vendorRow), vendorWidth);
+                    for (int column = first; column < last; column++) {
+                        row.append(vertical);
+                        if (present[vendorRow][column]) {
+                            appendAmount(row, totals[vendorRow][column], amountWidth);
+                        } else {
+                            pad(row, amountWidth);
+                        }
+                    }
+                    if (withTotals) {
+                        long vendorTotal = 0;
+                        for (long cents : totals[vendorRow]) {
+                            vendorTotal += cents;
+                        }
+                        row.append(vertical);
+                        appendAmount(row, vendorTotal, amountWidth);
+                    }
+                    for (int column = 0; column < periods.size(); column++) {
+                        columnTotals[column] += totals[vendorRow][column];
+                        grandTotal += totals[vendorRow][column];
+                    }
+                    row.append(vertical).append(System.lineSeparator());
+                    out.append(row);
+                }
+
+                writeLine(out, buildBorder(crossLeft, crossRight, crossMiddle, widths));
+                row.setLength(0);
+                row.append(vertical);
+                appendTruncated(row, "Total", vendorWidth);
+                for (int column = first; column < last; column++) {
+                    row.append(vertical);
+                    appendAmount(row, columnTotals[column], amountWidth);
+                }
+                if (withTotals) {
+                    row.append(vertical);
+                    appendAmount(row, grandTotal, amountWidth);
+                }
+                row.append(vertical).append(System.lineSeparator());
+                out.append(row);
+                writeLine(out, buildBorder(bottomLeft, bottomRight, crossBottom, widths) + "\n");
             }
+        });
+    }
 
+    // Writes a table of any layout
+    private interface TableWriter {
+        void write(Writer out) throws IOException;
+    }
 
-            // New formatted amount with dollar sign first
-            String formattedAmount = String.format("%s$%.2f%s",
-                    amountColor, amount, ColorCodes.RESET);
+    // Prints the title and then the table, or a message when there is nothing in it
+    private static void printTable(String title, boolean empty, TableWriter table) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 64 * 1024);
+        try {
+            out.write(System.lineSeparator());
+            if (title != null && !title.isBlank()) {
+                String titleSeparator = "=".repeat(title.length() + 4);
+                writeLine(out, titleSeparator);
+                writeLine(out, "= " + title + " =");
+                writeLine(out, titleSeparator);
+            }
+            if (empty) {
+                writeLine(out, "No transactions to display." + "\n");
+            } else {
+                table.write(out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Error printing table: " + e.getMessage());
+        }
+    }
 
-            // Calculate visible length (strips ANSI)
-            String visibleAmount = escapePattern.matcher(formattedAmount).replaceAll("");
-            int visibleLength = visibleAmount.length();
+    private static void writeHeader(Writer out, List<Integer> widths, List<String> headers) throws IOException {
+        writeLine(out, buildBorder(topLeft, topRight, crossTop, widths));
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < widths.size(); i++) {
+            header.append(vertical).append(centerText(headers.get(i), widths.get(i)));
+        }
+        writeLine(out, header.append(vertical).toString());
+        writeLine(out, buildBorder(crossLeft, crossRight, crossMiddle, widths));
+    }
 
-            // Creates padding based on the amount and visible length
-            int paddingNeeded = Math.max(0, amountWidth - visibleLength);
-            String padding = " ".repeat(paddingNeeded);
-            String finalAmountString = padding + formattedAmount;
+    //   === Helper methods for building rows ===
+    private static void writeLine(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write(System.lineSeparator());
+    }
 
-            System.out.printf(dataRowFormat, formattedDateTime, displayDesc, displayVendor, finalAmountString);
+    private static void pad(StringBuilder row, int count) {
+        for (int i = 0; i < count; i++) {
+            row.append(' ');
+        }
+    }
 
+    // Amount with the dollar sign first, right aligned by its visible length (the color codes take no space)
+    // Green for deposits, red for payments
+    private static void appendAmount(StringBuilder row, long amountCents, int width) {
+        String amountColor;
+        if (amountCents > 0) {
+            amountColor = ColorCodes.GREEN;
+        } else if (amountCents < 0) {
+            amountColor = ColorCodes.RED;
+        }else {
+            amountColor = ColorCodes.RESET;
         }
 
-        System.out.println(bottomBorder + "\n");
+        int amountStart = row.length();
+        row.append('$');
+        Money.appendTo(row, amountCents);
+        int visibleAmountLength = row.length() - amountStart;
+        row.setLength(amountStart);
+        pad(row, width - visibleAmountLength);
+        row.append(amountColor).append('$');
+        Money.appendTo(row, amountCents);
+        row.append(ColorCodes.RESET);
+    }
+
+    // Appends the text left aligned in the column, shortened with "..." when it doesn't fit
+    private static void appendTruncated(StringBuilder row, String text, int width) {
+        if (text == null){
+            text = "";
+        }
+        if (text.length() > width) {
+            row.append(text, 0, width - 3).append("...");
+        } else {
+            row.append(text);
+            pad(row, width - text.length());
+        }
     }
 }
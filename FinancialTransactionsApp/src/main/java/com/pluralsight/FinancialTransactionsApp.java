@@ -5,31 +5,70 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 public class FinancialTransactionsApp {
 
     // Creating variables that should remain the same throughout the entirety of the programs runtime
     private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final String transactionFile = "transactions.csv";
+    private static final String snapshotFile = "transactions.snapshot";
+    // A new snapshot is written after this many added transactions (and when exiting)
+    private static final int snapshotInterval = 1000;
+    // Number of rows shown at a time by the paged ledger views
+    private static final int pageSize = 50;
 
     // Uses the TransactionList class to initialize a new transaction list array
     private static TransactionList transactionList = new TransactionList();
+    private static TransactionJournal journal;
+    private static int addedSinceSnapshot = 0;
     private static Console console = new Console();
 
     //   === Main application methods ===
 
     // Application start point
     // Loads data and starts main loop, also handle errors
+    // With arguments it runs a single command without prompting instead (see LedgerCli)
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(new LedgerCli(transactionFile, snapshotFile).run(args));
+        }
         try {
-            transactionList.loadTransactions(transactionFile);
+            // The journal locks the ledger, so it is opened first and nobody else can append during the load
+            journal = new TransactionJournal(transactionFile, TransactionJournal.FsyncPolicy.fromSystemProperty());
+            LedgerSnapshot.LoadResult snapshot = LedgerSnapshot.load(transactionList, transactionFile, snapshotFile);
+            if (snapshot.getReason() != null) {
+                System.out.println(snapshot.getReason());
+            }
+            LoadReport report = snapshot.isLoaded() ? snapshot.getReplayReport()
+                    : transactionList.loadTransactions(transactionFile);
+            report.printSummary(10);
+            if (Boolean.getBoolean("ledger.textIndex")) {
+                transactionList.enableTextIndex();
+            }
             runApp();
         } catch (IOException e) {
             System.out.println("Error accessing transaction file:" + transactionFile + "\n" + e.getMessage());
         } catch (Exception e) {
             System.out.println("An unexpected error occurred: " + e.getMessage());
+        } finally {
+            // Releases the ledger lock however the app ends (closing an already closed journal does nothing)
+            closeJournal();
+        }
+    }
+
+    private static void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Error closing transaction file:" + transactionFile + "\n" + e.getMessage());
         }
     }
 
@@ -37,7 +76,7 @@ public class FinancialTransactionsApp {
     private static void runApp() throws IOException {
         while (true) {
             displayHomeScreen();
-            String choice = console.promptForString("Please make a selection (D, P, L, X): ");
+            String choice = console.promptForString("Please make a selection (D, P, L, C, X): ");
             switch (choice.toLowerCase()) {
                 case "d":
                     addTransaction(true);
@@ -48,9 +87,17 @@ public class FinancialTransactionsApp {
                 case "l":
                     displayLedger();
                     break;
+                case "c":
+                    compactLedger();
+                    break;
                 case "x":
                     System.out.println("\nExiting application.");
-                    transactionList.saveTransactions(transactionFile);
+                    // Saved while the journal still holds the ledger lock
+                    try {
+                        LedgerSnapshot.save(transactionList, transactionFile, snapshotFile);
+                    } finally {
+                        journal.close();
+                    }
                     return;
                 default:
                     System.out.println("\nInvalid choice, please try again.");
@@ -64,6 +111,7 @@ public class FinancialTransactionsApp {
                 "\nD) Add Deposit" +
                 "\nP) Make Payment" +
                 "\nL) Ledger" +
+                "\nC) Compact ledger file" +
                 "\nX) Exit");
     }
 
@@ -75,8 +123,9 @@ public class FinancialTransactionsApp {
                     "\nD) Deposits - Only display deposits" +
                     "\nP) Payments - Only display payments" +
                     "\nR) Reports - Display reports" +
+                    "\nS) Stats - Display ledger operation statistics" +
                     "\nH) Home - Go back to the home page");
-            String choice = console.promptForString("Please make a selection (A, D, P, R, H):");
+            String choice = console.promptForString("Please make a selection (A, D, P, R, S, H):");
             switch (choice.toLowerCase()) {
                 case "a":
                     displayAllTransactions();
@@ -90,6 +139,9 @@ public class FinancialTransactionsApp {
                 case "r":
                     displayReports();
                     break;
+                case "s":
+                    LedgerMetrics.printStats();
+                    break;
                 case "h":
                     return;
                 default:
@@ -108,8 +160,10 @@ public class FinancialTransactionsApp {
                     "\n4) Previous Year" +
                     "\n5) Search by Vendor" +
                     "\n6) Custom Search" +
+                    "\n7) Pivot Report (vendor x period)" +
+                    "\n8) Group Summary (count, total, min, max, average)" +
                     "\n0) Back to Ledger page");
-            String choice = console.promptForString("Please make a selection (1, 2, 3, 4, 5, 0):");
+            String choice = console.promptForString("Please make a selection (1, 2, 3, 4, 5, 6, 7, 8, 0):");
 
             switch (choice.toLowerCase()) {
                 case "1":
@@ -130,6 +184,12 @@ public class FinancialTransactionsApp {
                 case "6":
                     customSearch();
                     break;
+                case "7":
+                    displayPivotReport();
+                    break;
+                case "8":
+                    displayGroupSummary();
+                    break;
                 case "0":
                     return;
                 default:
@@ -145,116 +205,215 @@ public class FinancialTransactionsApp {
         LocalDateTime now = LocalDateTime.now();
         String description = console.promptForString("Enter " + (isDeposit ? "deposit" : "payment") + " description: ");
         String vendor = console.promptForString("Enter vendor: ");
-        double amount = console.promptForFloat("Enter " + (isDeposit ? "deposit" : "payment") + " amount:");
+        // The ledger file separates the fields with "|" and the lines with newlines
+        if (containsSeparator(description) || containsSeparator(vendor)) {
+            System.out.println("\nDescription and vendor can't contain '|' or line breaks, nothing was added.");
+            return;
+        }
+        long amountCents = console.promptForCents("Enter " + (isDeposit ? "deposit" : "payment") + " amount:");
 
         if (!isDeposit) {
-            amount = -Math.abs(amount);
+            amountCents = -Math.abs(amountCents);
 
         } else {
-            amount = Math.abs(amount);
+            amountCents = Math.abs(amountCents);
+        }
+        Transaction transaction = Transaction.ofCents(now, description, vendor, amountCents);
+        // Written to the file first, the list only gets transactions that were saved
+        try {
+            journal.append(transaction);
+        } catch (IOException e) {
+            System.out.println("\nError saving to transaction file:" + transactionFile + "\n" + e.getMessage()
+                    + "\n" + (isDeposit ? "Deposit" : "Payment") + " was not added.");
+            return;
         }
-        Transaction transaction = new Transaction(now, description, vendor, amount);
         transactionList.addTransaction(transaction);
-        transactionList.saveTransactions(transactionFile);
+        if (++addedSinceSnapshot >= snapshotInterval) {
+            LedgerSnapshot.save(transactionList, transactionFile, snapshotFile);
+            addedSinceSnapshot = 0;
+        }
         System.out.println((isDeposit ? "\nDeposit" : "\nPayment") + " added successfully.");
     }
 
+    private static boolean containsSeparator(String text) {
+        return text.indexOf('|') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+    }
+
+    // Rewrites the transactions file from the in-memory list
+    // New transactions are only appended to the file, so this is the only place it gets fully rewritten
+    private static void compactLedger() throws IOException {
+        journal.compact(transactionList);
+        LedgerSnapshot.save(transactionList, transactionFile, snapshotFile);
+        addedSinceSnapshot = 0;
+        System.out.println("\nLedger file compacted (" + transactionList.getTransactions().size() + " transactions).");
+    }
+
     // Displays all transactions by iterating through the transactions list
     // Gets information directly from TransactionList.java
     private static void displayAllTransactions() {
         List<Transaction> transactions = transactionList.getTransactions();
-        DisplayUtils.printFormattedList(transactions, "All Transactions:");
+        displayPaged(transactions, "All Transactions:");
+
+    }
+
+    // Shows a list one page at a time (newest first) so big ledgers don't flood the screen
+    private static void displayPaged(List<Transaction> transactions, String title) {
+        displayPaged(transactions.size(), offset -> DisplayUtils.printFormattedList(transactions, title, offset, pageSize));
+    }
 
+    // Same paging for a query, only the page on screen is read from the ledger
+    // The query runs newest first, so each page is put back in date order for printing
+    private static void displayPaged(TransactionQuery query, String title) {
+        long total = query.count();
+        displayPaged(total, offset -> {
+            List<Transaction> page = new ArrayList<>(query.offset(offset).limit(pageSize).toList());
+            Collections.reverse(page);
+            DisplayUtils.printFormattedList(page, title);
+        });
+    }
+
+    // Page navigation, printPage shows the page starting at an offset (counted from the newest)
+    private static void displayPaged(long total, IntConsumer printPage) {
+        int offset = 0;
+        while (true) {
+            printPage.accept(offset);
+            if (total <= pageSize) {
+                return;
+            }
+            long lastShown = Math.min(offset + pageSize, total);
+            System.out.println("Showing " + (offset + 1) + "-" + lastShown + " of " + total);
+            String choice = console.promptForString("N) Next page, P) Previous page, Q) Done: ");
+            switch (choice.toLowerCase()) {
+                case "n":
+                    if (lastShown < total) {
+                        offset += pageSize;
+                    }
+                    break;
+                case "p":
+                    offset = Math.max(0, offset - pageSize);
+                    break;
+                case "q":
+                    return;
+                default:
+                    System.out.println("\nInvalid choice, please try again.");
+            }
+        }
     }
 
     // Displays only deposits or only payments using the formatted list
+    // The filter runs as a query, so no filtered copy of the ledger is built
     private static void displayFilteredTransactions(boolean showDeposits) {
-        List<Transaction> allTransactions = transactionList.getTransactions();
-        List<Transaction> filteredList = new ArrayList<>();
+        TransactionQuery query = transactionList.query().sortBy(TransactionQuery.Sort.DATE_DESCENDING);
         String reportTitle = showDeposits ? "Deposits" : "Payments";
 
-        for (Transaction transaction : allTransactions) {
-            boolean isPositive = transaction.getAmount() > 0;
-            if (showDeposits && isPositive) {
-                filteredList.add(transaction);
-
-            } else if (!showDeposits && !isPositive) {
-                    filteredList.add(transaction);
-            }
+        if (showDeposits) {
+            query.deposits();
+        } else {
+            query.payments();
         }
-        DisplayUtils.printFormattedList(filteredList, reportTitle);
+        displayPaged(query, reportTitle);
     }
 
     //   === Report generation methods ===
+    // The reports come from the report cache, so showing one again doesn't visit the ledger
+    // The balance column and the balance range come from the end of day balances, nothing is added up again
 
     // Displays a month to date report
     // Includes all transactions from the start of the month to the current day
     private static void displayMonthToDate() {
+        long startNanos = System.nanoTime();
         LocalDate today = LocalDate.now();
         LocalDate[] range = DateUtils.getMonthToDateRange(today);
         LocalDate startDate = range[0];
         LocalDate endDate = range[1];
-        List<Transaction> transactions = transactionList.getTransactions(startDate, endDate);
-        double total = transactionList.getTotalTransactions(startDate, endDate);
+        ReportCache.Report report = transactionList.getReport(startDate, endDate);
+        List<Transaction> transactions = report.getTransactions();
+        long totalCents = report.getSummary().getTotalCents();
 
         String title = "Month to date report (" + startDate.format(dateFormatter) + " - "
                 + endDate.format(dateFormatter) + ")";
 
-        DisplayUtils.printFormattedList(transactions, title);
-        System.out.printf("Total: $%.2f%n", total);
+        DisplayUtils.printFormattedList(transactions, title, transactionList.getBalanceCents(endDate));
+        System.out.println("Total: $" + Money.format(totalCents));
+        printBalanceRange(startDate, endDate);
+        LedgerMetrics.record("report.monthToDate", startNanos, transactions.size(), transactions.size());
     }
 
     // Displays all transactions from the previous month
     private static void displayPreviousMonth() {
+        long startNanos = System.nanoTime();
         LocalDate today = LocalDate.now();
         LocalDate[] range = DateUtils.getPreviousMonthRange(today);
         LocalDate startDate = range[0];
         LocalDate endDate = range[1];
 
-        List<Transaction> transactions = transactionList.getTransactions(startDate, endDate);
-        double total = transactionList.getTotalTransactions(startDate, endDate);
+        ReportCache.Report report = transactionList.getReport(startDate, endDate);
+        List<Transaction> transactions = report.getTransactions();
+        long totalCents = report.getSummary().getTotalCents();
 
         String title = "Previous month's report (" + startDate.format(dateFormatter) + " - "
                 + endDate.format(dateFormatter);
 
-        DisplayUtils.printFormattedList(transactions, title);
-        System.out.printf("Total: $%.2f%n", total);
+        DisplayUtils.printFormattedList(transactions, title, transactionList.getBalanceCents(endDate));
+        System.out.println("Total: $" + Money.format(totalCents));
+        printBalanceRange(startDate, endDate);
+        LedgerMetrics.record("report.previousMonth", startNanos, transactions.size(), transactions.size());
     }
 
     // Displays a year to date report
     // Includes all transactions from the start of the year to the current day
     private static void displayYearToDate() {
+        long startNanos = System.nanoTime();
         LocalDate today = LocalDate.now();
         LocalDate[] range = DateUtils.getYearToDateRange(today);
         LocalDate startDate = range[0];
         LocalDate endDate = range[1];
 
-        List<Transaction> transactions = transactionList.getTransactions(startDate, endDate);
-        double total = transactionList.getTotalTransactions(startDate, endDate);
+        ReportCache.Report report = transactionList.getReport(startDate, endDate);
+        List<Transaction> transactions = report.getTransactions();
+        long totalCents = report.getSummary().getTotalCents();
 
         String title = "Year to date report (" + startDate.format(dateFormatter)
                 + " - " + endDate.format(dateFormatter) + ")";
 
-        DisplayUtils.printFormattedList(transactions, title);
-        System.out.printf("Total: $%.2f%n", total);
+        DisplayUtils.printFormattedList(transactions, title, transactionList.getBalanceCents(endDate));
+        System.out.println("Total: $" + Money.format(totalCents));
+        printBalanceRange(startDate, endDate);
+        LedgerMetrics.record("report.yearToDate", startNanos, transactions.size(), transactions.size());
     }
 
     // Displays report of the previous year
     private static void displayPreviousYear() {
-
+        long startNanos = System.nanoTime();
         LocalDate today = LocalDate.now();
         LocalDate[] range = DateUtils.getPrevYearRange(today);
         LocalDate startDate = range[0];
         LocalDate endDate = range[1];
 
-        List<Transaction> transactions = transactionList.getTransactions(startDate, endDate);
-        double total = transactionList.getTotalTransactions(startDate, endDate);
+        ReportCache.Report report = transactionList.getReport(startDate, endDate);
+        List<Transaction> transactions = report.getTransactions();
+        long totalCents = report.getSummary().getTotalCents();
 
         String title = "Previous year report (" + startDate.format(dateFormatter) + " - "
                 + endDate.format(dateFormatter) + ")";
 
-        DisplayUtils.printFormattedList(transactions, title);
-        System.out.printf("Total: $%.2f%n", total);
+        DisplayUtils.printFormattedList(transactions, title, transactionList.getBalanceCents(endDate));
+        System.out.println("Total: $" + Money.format(totalCents));
+        printBalanceRange(startDate, endDate);
+        LedgerMetrics.record("report.previousYear", startNanos, transactions.size(), transactions.size());
+    }
+
+    // Prints the balance at the end of the range and its lowest and highest end of day balance
+    private static void printBalanceRange(LocalDate startDate, LocalDate endDate) {
+        BalanceRange range = transactionList.getBalanceRange(startDate, endDate);
+        String balance = "Balance: $" + Money.format(transactionList.getBalanceCents(endDate));
+        if (range.getMinDate() == null) {
+            System.out.println(balance);
+            return;
+        }
+        System.out.println(balance
+                + " (lowest $" + Money.format(range.getMinCents()) + " on " + range.getMinDate().format(dateFormatter)
+                + ", highest $" + Money.format(range.getMaxCents()) + " on " + range.getMaxDate().format(dateFormatter) + ")");
     }
 
     // Displays transactions matching a vendor name entered by the user
@@ -265,6 +424,10 @@ public class FinancialTransactionsApp {
         String title = "Transactions for Vendor '" + vendor + "'";
 
         DisplayUtils.printFormattedList(transactions, title);
+        if (!transactions.isEmpty()) {
+            System.out.println("Count: " + transactionList.getVendorCount(vendor)
+                    + ", Total: $" + Money.format(transactionList.getVendorTotalCents(vendor)));
+        }
     }
 
     //   === Custom search methods ===
@@ -297,4 +460,57 @@ public class FinancialTransactionsApp {
         List<Transaction> results = transactionList.searchTransactions(startDate, endDate, description, vendor);
         DisplayUtils.printFormattedList(results, "Custom search results");
     }
-}
\ No newline at end of file
+
+    //   === Group-by reports ===
+    // Prompts for a period until given day, week, month, year or a blank input (month)
+    private static ChronoUnit promptForPeriod() {
+        while (true) {
+            String input = console.promptForString("Group by period (day, week, month, year) [month]: ");
+            switch (input.trim().toLowerCase()) {
+                case "":
+                case "month":
+                    return ChronoUnit.MONTHS;
+                case "day":
+                    return ChronoUnit.DAYS;
+                case "week":
+                    return ChronoUnit.WEEKS;
+                case "year":
+                    return ChronoUnit.YEARS;
+                default:
+                    System.out.println("Invalid period, please enter day, week, month or year.");
+            }
+        }
+    }
+
+    // Totals per vendor and period over an optional date range, in one pass over the range
+    private static void displayPivotReport() {
+        System.out.println("\nPivot report (leave the dates blank for the whole ledger):");
+        LocalDate startDate = parseOptionalDate("Enter start date (yyyy-MM-dd): ");
+        LocalDate endDate = parseOptionalDate("Enter end date (yyyy-MM-dd): ");
+        ChronoUnit period = promptForPeriod();
+
+        GroupBy groupBy = transactionList.query().from(startDate).to(endDate)
+                .groupBy(new GroupBy().byVendor().byPeriod(period));
+        DisplayUtils.printPivotTable(groupBy, "Totals by vendor and period (" + period.toString().toLowerCase() + ")");
+    }
+
+    // Count, total, min, max and average per group, grouped by the parts the user picks
+    private static void displayGroupSummary() {
+        System.out.println("\nGroup summary (leave the dates blank for the whole ledger):");
+        LocalDate startDate = parseOptionalDate("Enter start date (yyyy-MM-dd): ");
+        LocalDate endDate = parseOptionalDate("Enter end date (yyyy-MM-dd): ");
+        GroupBy groupBy = new GroupBy();
+        if (console.promptForString("Group by vendor? (y/n): ").trim().equalsIgnoreCase("y")) {
+            groupBy.byVendor();
+        }
+        if (console.promptForString("Group by period? (y/n): ").trim().equalsIgnoreCase("y")) {
+            groupBy.byPeriod(promptForPeriod());
+        }
+        if (console.promptForString("Split deposits and payments? (y/n): ").trim().equalsIgnoreCase("y")) {
+            groupBy.bySign();
+        }
+
+        transactionList.query().from(startDate).to(endDate).groupBy(groupBy);
+        DisplayUtils.printGroupTable(groupBy, "Group summary");
+    }
+}
@@ -0,0 +1,203 @@
+package com.pluralsight;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Aggregates transactions into groups in one pass: count, total, min, max and average of the amounts per group
+// Groups are keyed by any mix of vendor (ignoring case), calendar period (day, week, month or year, see
+// DateUtils.getPeriodStart) and sign (deposits and payments, a zero amount counts as a payment like
+// TransactionQuery.payments()). For example, spend per vendor per month of a year:
+//   transactionList.query().from(start).to(end).payments().groupBy(new GroupBy().byVendor().byPeriod(ChronoUnit.MONTHS))
+// The parts of a group are packed into one long (vendor id, first day of the period, sign) and the aggregates
+// live in a LongGroupTable, so a row costs a few array reads and writes. Group objects are only created by
+// getGroups() at the end.
+// Set up the keys first, then add the rows; one GroupBy collects one aggregation
+public class GroupBy {
+    private static final DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter yearFormatter = DateTimeFormatter.ofPattern("yyyy");
+    // Shifts epoch days to positive numbers so they fit in 31 bits of the key
+    private static final long dayBias = 1L << 30;
+
+    // One group and its aggregates, parts the rows aren't grouped by are null (or 0 for the sign)
+    public static class Group {
+        private final String vendor;
+        private final LocalDate periodStart;
+        private final int sign;
+        private final long count;
+        private final long totalCents;
+        private final long minCents;
+        private final long maxCents;
+
+        private Group(String vendor, LocalDate periodStart, int sign, long count, long totalCents,
+                      long minCents, long maxCents) {
+            this.vendor = vendor;
+            this.periodStart = periodStart;
+            this.sign = sign;
+            this.count = count;
+            this.totalCents = totalCents;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+        }
+
+        // The vendor as first seen in the ledger
+        public String getVendor() {
+            return vendor;
+        }
+
+        // First day of the period
+        public LocalDate getPeriodStart() {
+            return periodStart;
+        }
+
+        // 1 for deposits, -1 for payments
+        public int getSign() {
+            return sign;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalCents() {
+            return totalCents;
+        }
+
+        public long getMinCents() {
+            return minCents;
+        }
+
+        public long getMaxCents() {
+            return maxCents;
+        }
+
+        // Rounded to whole cents
+        public long getAverageCents() {
+            return Math.round((double) totalCents / count);
+        }
+    }
+
+    private boolean byVendor;
+    private ChronoUnit period;
+    private boolean bySign;
+    private final LongGroupTable table = new LongGroupTable();
+    // Vendors are numbered by their lower case name, the exact spelling is looked up first so the usual
+    // case (the same spelling again) doesn't create a lower case copy
+    private final Map<String, Integer> vendorIds = new HashMap<>();
+    private final StringDictionary lowerVendors = new StringDictionary();
+    private final List<String> vendorNames = new ArrayList<>();
+    // Rows mostly come in date order, so the period of the last day is remembered
+    private long lastEpochDay = Long.MIN_VALUE;
+    private long lastPeriodDay;
+
+    public GroupBy byVendor() {
+        byVendor = true;
+        return this;
+    }
+
+    // DAYS, WEEKS, MONTHS or YEARS
+    public GroupBy byPeriod(ChronoUnit period) {
+        DateUtils.getPeriodStart(LocalDate.EPOCH, period);
+        this.period = period;
+        return this;
+    }
+
+    public GroupBy bySign() {
+        bySign = true;
+        return this;
+    }
+
+    public boolean isByVendor() {
+        return byVendor;
+    }
+
+    public ChronoUnit getPeriod() {
+        return period;
+    }
+
+    public boolean isBySign() {
+        return bySign;
+    }
+
+    // Adds one row to its group
+    public void add(Transaction transaction) {
+        long cents = transaction.getAmountCents();
+        long key = 0;
+        if (byVendor) {
+            key |= (long) vendorId(transaction.getVendor()) << 32;
+        }
+        if (period != null) {
+            key |= (periodDay(transaction.getDateTime().toLocalDate()) + dayBias) << 1;
+        }
+        if (bySign && cents > 0) {
+            key |= 1;
+        }
+        table.add(key, cents);
+    }
+
+    // Number of groups so far
+    public int size() {
+        return table.size();
+    }
+
+    // The groups sorted by vendor (ignoring case), period and sign (deposits first)
+    public List<Group> getGroups() {
+        List<Group> groups = new ArrayList<>(table.size());
+        for (int group = 0; group < table.size(); group++) {
+            long key = table.getKey(group);
+            String vendor = byVendor ? vendorNames.get((int) (key >>> 32)) : null;
+            LocalDate periodStart = period != null
+                    ? LocalDate.ofEpochDay(((key >>> 1) & 0x7FFFFFFFL) - dayBias)
+                    : null;
+            int sign = bySign ? ((key & 1) == 1 ? 1 : -1) : 0;
+            groups.add(new Group(vendor, periodStart, sign, table.getCount(group), table.getSum(group),
+                    table.getMin(group), table.getMax(group)));
+        }
+        groups.sort(Comparator.comparing(Group::getVendor, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                .thenComparing(Group::getPeriodStart, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Group::getSign, Comparator.reverseOrder()));
+        return groups;
+    }
+
+    // Label of a period: 2025-04-07 for days and weeks (the Monday), 2025-04 for months, 2025 for years
+    public static String formatPeriod(LocalDate periodStart, ChronoUnit period) {
+        switch (period) {
+            case MONTHS:
+                return periodStart.format(monthFormatter);
+            case YEARS:
+                return periodStart.format(yearFormatter);
+            default:
+                return periodStart.toString();
+        }
+    }
+
+    private int vendorId(String vendor) {
+        if (vendor == null) {
+            vendor = "";
+        }
+        Integer id = vendorIds.get(vendor);
+        if (id != null) {
+            return id;
+        }
+        int lowerId = lowerVendors.getOrAdd(vendor.toLowerCase());
+        if (lowerId == vendorNames.size()) {
+            vendorNames.add(vendor);
+        }
+        vendorIds.put(vendor, lowerId);
+        return lowerId;
+    }
+
+    private long periodDay(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        if (epochDay != lastEpochDay) {
+            lastEpochDay = epochDay;
+            lastPeriodDay = DateUtils.getPeriodStart(date, period).toEpochDay();
+        }
+        return lastPeriodDay;
+    }
+}
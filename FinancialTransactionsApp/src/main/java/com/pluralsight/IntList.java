@@ -0,0 +1,56 @@
+package com.pluralsight;
+
+import java.util.Arrays;
+
+// Growable list of ints without boxing, used for the posting lists of the indexes
+public class IntList {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(8);
+    }
+
+    public IntList(int initialCapacity) {
+        this.values = new int[Math.max(1, initialCapacity)];
+    }
+
+    private IntList(int[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Read-only copy of the values added so far that shares the array instead of copying it
+    // Adding to this list afterwards only writes past the copy's size (or into a new array), so the copy
+    // can be read by other threads while this list keeps growing. Nothing may be added to the copy itself
+    public IntList snapshot() {
+        return new IntList(values, size);
+    }
+
+    // Last value added, the list must not be empty
+    public int last() {
+        return values[size - 1];
+    }
+}
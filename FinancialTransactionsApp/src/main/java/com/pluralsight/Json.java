@@ -0,0 +1,210 @@
+package com.pluralsight;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Small JSON helpers for the command line and HTTP output
+// Only what the ledger needs: writing transactions and summaries, and reading flat objects
+// (string, number, true/false/null values) for new transactions. No nested objects are parsed
+public class Json {
+    private static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private Json() {}
+
+    // {"dateTime":"2025-04-29 09:57:31","description":"Gaming Pc","vendor":"Amazon","amount":-1500.00}
+    public static StringBuilder appendTransaction(StringBuilder sb, Transaction transaction) {
+        sb.append("{\"dateTime\":\"");
+        dateTimeFormatter.formatTo(transaction.getDateTime(), sb);
+        sb.append("\",\"description\":");
+        appendString(sb, transaction.getDescription());
+        sb.append(",\"vendor\":");
+        appendString(sb, transaction.getVendor());
+        sb.append(",\"amount\":");
+        return Money.appendTo(sb, transaction.getAmountCents()).append('}');
+    }
+
+    // {"total":12.35,"deposits":12.35,"payments":0.00,"count":1}
+    public static StringBuilder appendSummary(StringBuilder sb, RangeSummary summary) {
+        sb.append("{\"total\":");
+        Money.appendTo(sb, summary.getTotalCents()).append(",\"deposits\":");
+        Money.appendTo(sb, summary.getDepositCents()).append(",\"payments\":");
+        Money.appendTo(sb, summary.getPaymentCents()).append(",\"count\":");
+        return sb.append(summary.getCount()).append('}');
+    }
+
+    public static StringBuilder appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb.append("null");
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 15, 16));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+
+    // Parses one flat object, or an array of them, into maps from key to value text
+    // Numbers keep their exact text (so amounts can go to Money.parseCents), null becomes a null value.
+    // Throws IllegalArgumentException when the text isn't JSON of that shape
+    public static List<Map<String, String>> parseObjects(String text) {
+        Parser parser = new Parser(text);
+        List<Map<String, String>> objects = new ArrayList<>();
+        parser.skipSpace();
+        if (parser.peek() == '[') {
+            parser.expect('[');
+            parser.skipSpace();
+            if (parser.peek() == ']') {
+                parser.position++;
+            } else {
+                do {
+                    objects.add(parser.readObject());
+                    parser.skipSpace();
+                } while (parser.accept(','));
+                parser.expect(']');
+            }
+        } else {
+            objects.add(parser.readObject());
+        }
+        parser.skipSpace();
+        if (parser.position != text.length()) {
+            throw parser.error("unexpected text after the end");
+        }
+        return objects;
+    }
+
+    private static class Parser {
+        private final String text;
+        private int position;
+
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        private Map<String, String> readObject() {
+            skipSpace();
+            expect('{');
+            Map<String, String> object = new LinkedHashMap<>();
+            skipSpace();
+            if (accept('}')) {
+                return object;
+            }
+            do {
+                skipSpace();
+                String key = readString();
+                skipSpace();
+                expect(':');
+                skipSpace();
+                object.put(key, readValue());
+                skipSpace();
+            } while (accept(','));
+            expect('}');
+            return object;
+        }
+
+        private String readValue() {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            int start = position;
+            while (position < text.length() && "+-.0123456789eEtrufalsn".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            String value = text.substring(start, position);
+            if (value.isEmpty()) {
+                throw error("expected a value");
+            }
+            return value.equals("null") ? null : value;
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw error("unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw error("unterminated string");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("bad unicode escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("bad unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        sb.append(escaped);
+                }
+            }
+        }
+
+        private void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private char peek() {
+            return position < text.length() ? text.charAt(position) : '\0';
+        }
+
+        private boolean accept(char c) {
+            if (peek() == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!accept(c)) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at position " + position + ": " + message);
+        }
+    }
+}
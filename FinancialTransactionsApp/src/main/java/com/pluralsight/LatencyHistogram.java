@@ -0,0 +1,79 @@
+package com.pluralsight;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Low overhead latency histogram in the style of HdrHistogram
+// Every power of two is split into 8 linear buckets, so a recorded value is off by at most 12.5%
+// while the whole range from 1ns to hours fits in a few hundred counters. Recording is lock-free
+public class LatencyHistogram {
+    private static final int subBucketBits = 3;
+    private static final int subBuckets = 1 << subBucketBits;
+    private static final int bucketCount = (64 - subBucketBits + 1) * subBuckets;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucketCount);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    // Records one value in nanoseconds
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public double getMeanNanos() {
+        long total = count.sum();
+        return total == 0 ? 0 : (double) sum.sum() / total;
+    }
+
+    // Value at the given percentile (0-100), reported as the top of the bucket it falls in
+    public long getPercentileNanos(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketTop(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // Values below 8 get their own bucket, above that 8 buckets per power of two
+    private static int bucketIndex(long value) {
+        if (value < subBuckets) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - subBucketBits)) & (subBuckets - 1);
+        return (exponent - subBucketBits + 1) * subBuckets + subBucket;
+    }
+
+    // Highest value that lands in the bucket
+    private static long bucketTop(int index) {
+        if (index < subBuckets) {
+            return index;
+        }
+        int exponent = index / subBuckets + subBucketBits - 1;
+        int subBucket = index % subBuckets;
+        long width = 1L << (exponent - subBucketBits);
+        return ((long) (subBuckets + subBucket) << (exponent - subBucketBits)) + width - 1;
+    }
+}
@@ -0,0 +1,673 @@
+package com.pluralsight;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+// Non-interactive mode, used when the app is started with arguments (for scripts and scheduled jobs)
+// Reports are written to standard output as they are found instead of being collected first,
+// and everything that isn't a result (load warnings, errors) goes to standard error.
+//
+//   mtd | previous-month | ytd | previous-year   [--format csv|json|table] [--summary]
+//   vendor NAME                                  [--format csv|json|table] [--summary]
+//   search [--from yyyy-MM-dd] [--to yyyy-MM-dd] [--description TEXT] [--vendor TEXT] [--format ...] [--summary]
+//          [--type deposits|payments] [--min AMOUNT] [--max AMOUNT] [--sort date|date-desc|amount|amount-desc]
+//          [--offset N] [--limit N]
+//   append [FILE]   adds the lines of FILE (or standard input) in the transactions.csv format
+//   import FILE [--input pipe|csv]   imports a bank/export file, skipping transactions already in the ledger
+//   serve [--port 8080]   answers queries over HTTP until stopped (see LedgerHttpServer)
+//   segment [--period month|year]   builds (or brings up to date) the per-period segment files and
+//                                   compresses the closed periods into block files
+//   --segments   runs the report, vendor and search commands on the segments (SegmentedLedger),
+//                which only loads the periods the command needs instead of the whole ledger
+//   --offheap    runs the same commands on the off-heap rows (OffHeapTransactionStore), which are mapped from
+//                transactions.offheap/ instead of parsing the csv file
+//   --columnar   runs the same commands on a ColumnarTransactionStore loaded from the csv file, whose summaries
+//                scan primitive columns with RangeSumKernel (vectorized with --add-modules jdk.incubator.vector)
+//
+// Exit codes: 0 = ok, 1 = some lines couldn't be appended, 2 = bad arguments or a file error
+public class LedgerCli {
+    public static final int exitOk = 0;
+    public static final int exitRejectedLines = 1;
+    public static final int exitError = 2;
+
+    private static final Set<String> commands = Set.of("mtd", "previous-month", "ytd", "previous-year",
+            "vendor", "search", "append", "import", "serve", "segment");
+    // Commands that can run on the segments, the off-heap rows or the columnar store instead of the whole ledger
+    private static final Set<String> segmentCommands = Set.of("mtd", "previous-month", "ytd", "previous-year",
+            "vendor", "search");
+
+    // Appended lines are written to the journal in batches of this many transactions
+    private static final int appendBatchSize = 10_000;
+
+    private final String transactionFile;
+    private final String snapshotFile;
+    private final TransactionList transactionList = new TransactionList();
+
+    // Options shared by the report commands
+    private String format = "csv";
+    private boolean summaryOnly;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private String descriptionFilter;
+    private String vendorFilter;
+    private String typeFilter;
+    private Long minCents;
+    private Long maxCents;
+    private TransactionQuery.Sort sort = TransactionQuery.Sort.DATE;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+    private int port = 8080;
+    private BulkImporter.Format inputFormat;
+    private boolean useSegments;
+    private boolean useOffHeap;
+    private boolean useColumnar;
+    private SegmentedLedger.Period segmentPeriod = SegmentedLedger.Period.MONTH;
+
+    public LedgerCli(String transactionFile, String snapshotFile) {
+        this.transactionFile = transactionFile;
+        this.snapshotFile = snapshotFile;
+    }
+
+    // Runs one command and returns the exit code
+    public int run(String[] args) {
+        if (args.length == 0 || args[0].equals("help") || args[0].equals("--help")) {
+            printUsage(System.out);
+            return exitOk;
+        }
+        String command = args[0].toLowerCase();
+        List<String> operands = new ArrayList<>();
+        try {
+            if (!commands.contains(command)) {
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+            }
+            parseOptions(args, operands);
+            checkOperands(command, operands);
+            String storeOption = useSegments ? "--segments" : useOffHeap ? "--offheap" : useColumnar ? "--columnar" : null;
+            if ((useSegments ? 1 : 0) + (useOffHeap ? 1 : 0) + (useColumnar ? 1 : 0) > 1) {
+                throw new IllegalArgumentException("Only one of --segments, --offheap and --columnar can be used");
+            }
+            if (storeOption != null && !segmentCommands.contains(command)) {
+                throw new IllegalArgumentException(storeOption + " only works with the report, vendor and search commands");
+            }
+            if (storeOption != null && (typeFilter != null || minCents != null || maxCents != null
+                    || sort != TransactionQuery.Sort.DATE || offset != 0 || limit != Integer.MAX_VALUE)) {
+                throw new IllegalArgumentException(storeOption + " searches only take --from, --to, --description and --vendor");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage(System.err);
+            return exitError;
+        }
+
+        try {
+            if (command.equals("segment")) {
+                return segment();
+            }
+            if (useSegments) {
+                return runOnSegments(command, operands);
+            }
+            if (useOffHeap) {
+                return runOffHeap(command, operands);
+            }
+            if (useColumnar) {
+                return runColumnar(command, operands);
+            }
+            if (command.equals("serve")) {
+                return serve();
+            }
+            if (command.equals("append") || command.equals("import")) {
+                // The journal locks the ledger, so it is opened before the load and closed after the snapshot
+                try (TransactionJournal journal = openJournal()) {
+                    load();
+                    if (command.equals("import")) {
+                        return importFile(journal, Path.of(operands.get(0)));
+                    }
+                    return append(journal, operands.isEmpty() ? "-" : operands.get(0));
+                }
+            }
+            load();
+            switch (command) {
+                case "mtd":
+                case "previous-month":
+                case "ytd":
+                case "previous-year":
+                    return report(reportRange(command));
+                case "vendor":
+                    return vendor(operands.get(0));
+                default:
+                    return search();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error accessing transaction file:" + transactionFile + "\n" + e.getMessage());
+            return exitError;
+        }
+    }
+
+    // Reads the --options after the command, everything else is an operand
+    private void parseOptions(String[] args, List<String> operands) {
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                operands.add(arg);
+                continue;
+            }
+            if (arg.equals("--summary")) {
+                summaryOnly = true;
+                continue;
+            }
+            if (arg.equals("--segments")) {
+                useSegments = true;
+                continue;
+            }
+            if (arg.equals("--offheap")) {
+                useOffHeap = true;
+                continue;
+            }
+            if (arg.equals("--columnar")) {
+                useColumnar = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--format":
+                    format = value.toLowerCase();
+                    if (!format.equals("csv") && !format.equals("json") && !format.equals("table")) {
+                        throw new IllegalArgumentException("Unknown format: " + value);
+                    }
+                    break;
+                case "--from":
+                    fromDate = parseDate(value);
+                    break;
+                case "--to":
+                    toDate = parseDate(value);
+                    break;
+                case "--description":
+                    descriptionFilter = value;
+                    break;
+                case "--vendor":
+                    vendorFilter = value;
+                    break;
+                case "--type":
+                    typeFilter = value.toLowerCase();
+                    if (!typeFilter.equals("deposits") && !typeFilter.equals("payments")) {
+                        throw new IllegalArgumentException("Unknown type: " + value + " (use deposits or payments)");
+                    }
+                    break;
+                case "--min":
+                    minCents = parseAmount(value);
+                    break;
+                case "--max":
+                    maxCents = parseAmount(value);
+                    break;
+                case "--sort":
+                    sort = TransactionQuery.Sort.fromName(value);
+                    break;
+                case "--offset":
+                    offset = parseCount(arg, value);
+                    break;
+                case "--limit":
+                    limit = parseCount(arg, value);
+                    break;
+                case "--period":
+                    try {
+                        segmentPeriod = SegmentedLedger.Period.valueOf(value.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown period: " + value + " (use month or year)");
+                    }
+                    break;
+                case "--input":
+                    try {
+                        inputFormat = BulkImporter.Format.valueOf(value.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown input format: " + value);
+                    }
+                    break;
+                case "--port":
+                    try {
+                        port = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid port: " + value);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+    }
+
+    // Every command takes a fixed number of operands, anything extra is a mistake (like "mtd foo")
+    private static void checkOperands(String command, List<String> operands) {
+        switch (command) {
+            case "vendor":
+                if (operands.size() != 1) {
+                    throw new IllegalArgumentException("vendor needs exactly one vendor name");
+                }
+                break;
+            case "import":
+                if (operands.size() != 1) {
+                    throw new IllegalArgumentException("import needs exactly one file");
+                }
+                break;
+            case "append":
+                if (operands.size() > 1) {
+                    throw new IllegalArgumentException("append takes at most one file");
+                }
+                break;
+            default:
+                if (!operands.isEmpty()) {
+                    throw new IllegalArgumentException("Unexpected argument for " + command + ": " + operands.get(0));
+                }
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date '" + value + "', please use yyyy-MM-dd");
+        }
+    }
+
+    private static long parseAmount(String value) {
+        try {
+            return Money.parseCents(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + value);
+        }
+    }
+
+    private static int parseCount(String option, String value) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // falls through to the error below
+        }
+        throw new IllegalArgumentException(option + " needs a number of 0 or more, not " + value);
+    }
+
+    // Loads the ledger the same way as the interactive app
+    // Its warnings go to standard error, so the results on standard output stay machine readable
+    private void load() throws IOException {
+        LedgerSnapshot.LoadResult snapshot = LedgerSnapshot.load(transactionList, transactionFile, snapshotFile);
+        if (snapshot.getReason() != null) {
+            System.err.println(snapshot.getReason());
+        }
+        LoadReport report = snapshot.isLoaded() ? snapshot.getReplayReport()
+                : transactionList.loadTransactions(transactionFile);
+        printWarnings(report);
+        if (Boolean.getBoolean("ledger.textIndex")) {
+            transactionList.enableTextIndex();
+        }
+    }
+
+    // Prints the load report's summary (skipped and malformed lines) to standard error
+    private static void printWarnings(LoadReport report) {
+        for (String line : report.getSummaryLines(10)) {
+            System.err.println(line);
+        }
+    }
+
+    // Opens the journal, which holds the ledger lock until it is closed
+    private TransactionJournal openJournal() throws IOException {
+        return new TransactionJournal(transactionFile, TransactionJournal.FsyncPolicy.fromSystemProperty());
+    }
+
+    // Opens the segments next to the transactions file, with their warnings going to standard error
+    private SegmentedLedger openSegments() throws IOException {
+        SegmentedLedger ledger = SegmentedLedger.open(transactionFile,
+                SegmentedLedger.defaultDirectory(transactionFile), segmentPeriod);
+        for (String warning : ledger.getWarnings()) {
+            System.err.println(warning);
+        }
+        return ledger;
+    }
+
+    // Builds or updates the segments, compresses the closed periods and lists the segments as
+    // name|first day|last day|count|total|plain bytes|compressed bytes
+    private int segment() throws IOException {
+        try (SegmentedLedger ledger = openSegments(); Writer out = stdout()) {
+            int compressed = ledger.compressColdSegments(LocalDate.now());
+            if (compressed > 0) {
+                System.err.println("Compressed " + compressed + " closed segment(s).");
+            }
+            StringBuilder line = new StringBuilder(80);
+            for (SegmentedLedger.SegmentInfo info : ledger.getSegments()) {
+                line.setLength(0);
+                line.append(info.getName()).append('|').append(info.getStartDate()).append('|')
+                        .append(info.getEndDate()).append('|').append(info.getCount()).append('|');
+                Money.appendTo(line, info.getSummary().getTotalCents());
+                line.append('|').append(info.getPlainBytes()).append('|').append(info.getCompressedBytes());
+                out.append(line).append('\n');
+            }
+        }
+        return exitOk;
+    }
+
+    // Same commands as on the whole ledger, but only the segments they touch are loaded
+    private int runOnSegments(String command, List<String> operands) throws IOException {
+        try (SegmentedLedger ledger = openSegments()) {
+            switch (command) {
+                case "vendor":
+                    return writeResults(action -> ledger.forEachByVendor(operands.get(0), action));
+                case "search":
+                    return writeResults(action -> ledger.searchTransactions(fromDate, toDate,
+                            descriptionFilter, vendorFilter, action));
+                default:
+                    LocalDate[] range = reportRange(command);
+                    if (summaryOnly) {
+                        try (Writer out = stdout()) {
+                            writeSummary(out, ledger.getSummary(range[0], range[1]));
+                        }
+                        return exitOk;
+                    }
+                    return writeResults(action -> ledger.forEachTransaction(range[0], range[1], action));
+            }
+        }
+    }
+
+    // Same commands on the off-heap rows, which are mapped instead of parsed (only new csv lines are read)
+    private int runOffHeap(String command, List<String> operands) throws IOException {
+        OffHeapTransactionStore store = OffHeapTransactionStore.open(transactionFile,
+                OffHeapTransactionStore.defaultDirectory(transactionFile));
+        try (store) {
+            for (String warning : store.getWarnings()) {
+                System.err.println(warning);
+            }
+            switch (command) {
+                case "vendor":
+                    return writeResults(action -> store.forEachByVendor(operands.get(0), action));
+                case "search":
+                    return writeResults(action -> store.searchTransactions(fromDate, toDate,
+                            descriptionFilter, vendorFilter, action));
+                default:
+                    LocalDate[] range = reportRange(command);
+                    if (summaryOnly) {
+                        try (Writer writer = stdout()) {
+                            writeSummary(writer, store.getSummary(range[0], range[1]));
+                        }
+                        return exitOk;
+                    }
+                    return writeResults(action -> store.forEachTransaction(range[0], range[1], action));
+            }
+        }
+    }
+
+    // Same commands on the csv file loaded into primitive columns (ColumnarTransactionStore)
+    // It isn't kept anywhere, so every run parses the whole file like the default store does
+    private int runColumnar(String command, List<String> operands) throws IOException {
+        ColumnarTransactionStore store = new ColumnarTransactionStore();
+        printWarnings(store.loadTransactions(transactionFile));
+        switch (command) {
+            case "vendor":
+                return writeResults(action -> store.forEachByVendor(operands.get(0), action));
+            case "search":
+                return writeResults(action -> store.searchTransactions(fromDate, toDate,
+                        descriptionFilter, vendorFilter, action));
+            default:
+                LocalDate[] range = reportRange(command);
+                if (summaryOnly) {
+                    try (Writer writer = stdout()) {
+                        writeSummary(writer, store.getSummary(range[0], range[1]));
+                    }
+                    return exitOk;
+                }
+                return writeResults(action -> store.forEachTransaction(range[0], range[1], action));
+        }
+    }
+
+    private static LocalDate[] reportRange(String command) {
+        switch (command) {
+            case "mtd":
+                return DateUtils.getMonthToDateRange(LocalDate.now());
+            case "previous-month":
+                return DateUtils.getPreviousMonthRange(LocalDate.now());
+            case "ytd":
+                return DateUtils.getYearToDateRange(LocalDate.now());
+            default:
+                return DateUtils.getPrevYearRange(LocalDate.now());
+        }
+    }
+
+    // Date range reports, the summary comes straight from the per-day totals without visiting the rows
+    private int report(LocalDate[] range) throws IOException {
+        if (summaryOnly) {
+            try (Writer out = stdout()) {
+                writeSummary(out, transactionList.getSummary(range[0], range[1]));
+            }
+            return exitOk;
+        }
+        return writeResults(action -> transactionList.forEachTransaction(range[0], range[1], action));
+    }
+
+    private int vendor(String vendor) throws IOException {
+        return writeResults(action -> transactionList.forEachByVendor(vendor, action));
+    }
+
+    // Runs as a TransactionQuery: it stops once --limit results are written, and --summary is
+    // answered from the per-day totals when only dates are given
+    private int search() throws IOException {
+        TransactionQuery query = transactionList.query().from(fromDate).to(toDate)
+                .descriptionContains(descriptionFilter).vendorContains(vendorFilter)
+                .sortBy(sort).offset(offset).limit(limit);
+        if ("deposits".equals(typeFilter)) {
+            query.deposits();
+        } else if ("payments".equals(typeFilter)) {
+            query.payments();
+        }
+        if (minCents != null) {
+            query.minCents(minCents);
+        }
+        if (maxCents != null) {
+            query.maxCents(maxCents);
+        }
+        if (summaryOnly) {
+            try (Writer out = stdout()) {
+                writeSummary(out, query.summarize());
+            }
+            return exitOk;
+        }
+        return writeResults(query::forEach);
+    }
+
+    // Writes the transactions a query passes on, followed by nothing (or only the summary with --summary)
+    // The table format needs the column layout of the whole list, so it is the only one that collects the rows
+    private int writeResults(Consumer<Consumer<Transaction>> query) throws IOException {
+        try (Writer out = stdout()) {
+            if (format.equals("table") && !summaryOnly) {
+                List<Transaction> rows = new ArrayList<>();
+                query.accept(rows::add);
+                DisplayUtils.writeFormattedList(out, rows, "Results", 0, rows.size());
+                return exitOk;
+            }
+
+            long[] totals = new long[4]; // total, deposits, payments, count
+            query.accept(transaction -> {
+                long cents = transaction.getAmountCents();
+                totals[0] += cents;
+                totals[1] += cents > 0 ? cents : 0;
+                totals[2] += cents < 0 ? cents : 0;
+                totals[3]++;
+                if (!summaryOnly) {
+                    try {
+                        writeTransaction(out, transaction);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            if (summaryOnly) {
+                writeSummary(out, new RangeSummary(totals[0], totals[1], totals[2], totals[3]));
+            }
+        }
+        return exitOk;
+    }
+
+    // Adds transactions from a file (or standard input for "-"), one per line in the transactions.csv format
+    // Lines that can't be parsed are reported on standard error with their line number and skipped
+    private int append(TransactionJournal journal, String source) throws IOException {
+        long added = 0;
+        long rejected = 0;
+        try (BufferedReader reader = source.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8)) {
+            List<Transaction> batch = new ArrayList<>(appendBatchSize);
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(Transaction.parsedTransaction(line));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("line " + lineNumber + ": " + e.getMessage());
+                    rejected++;
+                    continue;
+                }
+                if (batch.size() == appendBatchSize) {
+                    added += appendBatch(journal, batch);
+                }
+            }
+            added += appendBatch(journal, batch);
+        }
+        LedgerSnapshot.save(transactionList, transactionFile, snapshotFile);
+        System.err.println("Appended " + added + " transaction(s), rejected " + rejected + " line(s).");
+        return rejected == 0 ? exitOk : exitRejectedLines;
+    }
+
+    // Writes the batch to the journal in one go and then adds it to the list
+    // If the write fails the list doesn't get rows the file doesn't have
+    private int appendBatch(TransactionJournal journal, List<Transaction> batch) throws IOException {
+        journal.appendAll(batch);
+        transactionList.addTransactions(batch);
+        int count = batch.size();
+        batch.clear();
+        return count;
+    }
+
+    // Imports a file through BulkImporter and saves a snapshot afterwards
+    private int importFile(TransactionJournal journal, Path file) throws IOException {
+        BulkImporter.Format format = inputFormat != null ? inputFormat : BulkImporter.Format.detect(file);
+        BulkImporter importer = new BulkImporter(transactionList, journal);
+        LoadReport report = importer.importFile(file, format);
+        printWarnings(report);
+        LedgerSnapshot.save(transactionList, transactionFile, snapshotFile);
+        System.err.println("Imported " + importer.getAddedCount() + " transaction(s), skipped "
+                + importer.getDuplicateCount() + " duplicate(s) and " + report.getMalformedCount() + " bad line(s).");
+        return report.getMalformedCount() == 0 ? exitOk : exitRejectedLines;
+    }
+
+    // Runs the HTTP service until the process is stopped (Ctrl+C)
+    // On the way out the server finishes open requests, a snapshot is saved and the journal is closed
+    private int serve() throws IOException {
+        TransactionJournal journal = openJournal();
+        LedgerHttpServer server;
+        try {
+            load();
+            server = new LedgerHttpServer(transactionList, journal, port);
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(2);
+            try {
+                LedgerSnapshot.save(transactionList, transactionFile, snapshotFile);
+            } catch (IOException e) {
+                System.err.println("Error saving the ledger: " + e.getMessage());
+            }
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing the journal: " + e.getMessage());
+            }
+            stopped.countDown();
+        }));
+        server.start();
+        System.err.println("Serving " + transactionFile + " on http://localhost:" + server.getPort() + "/");
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return exitOk;
+    }
+
+    //   === Output ===
+    private static Writer stdout() {
+        return new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 64 * 1024);
+    }
+
+    // csv uses the same line format as transactions.csv, json writes one object per line (JSON Lines)
+    private void writeTransaction(Writer out, Transaction transaction) throws IOException {
+        if (format.equals("json")) {
+            out.append(Json.appendTransaction(new StringBuilder(128), transaction).append('\n'));
+        } else {
+            out.write(transaction.toString());
+            out.write('\n');
+        }
+    }
+
+    private void writeSummary(Writer out, RangeSummary summary) throws IOException {
+        StringBuilder line = new StringBuilder(96);
+        if (format.equals("json")) {
+            Json.appendSummary(line, summary);
+        } else {
+            // total|deposits|payments|count
+            Money.appendTo(line, summary.getTotalCents()).append('|');
+            Money.appendTo(line, summary.getDepositCents()).append('|');
+            Money.appendTo(line, summary.getPaymentCents()).append('|').append(summary.getCount());
+        }
+        out.append(line).append('\n');
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: FinancialTransactionsApp [command] [options]\n" +
+                "\nWithout a command the interactive menus are started.\n" +
+                "\nCommands:" +
+                "\n  mtd | previous-month | ytd | previous-year   Date range reports" +
+                "\n  vendor NAME                                  Transactions of a vendor (ignoring case)" +
+                "\n  search [--from yyyy-MM-dd] [--to yyyy-MM-dd] [--description TEXT] [--vendor TEXT]" +
+                "\n         [--type deposits|payments] [--min AMOUNT] [--max AMOUNT]" +
+                "\n         [--sort date|date-desc|amount|amount-desc] [--offset N] [--limit N]" +
+                "\n  append [FILE]                                Adds transactions from FILE or standard input" +
+                "\n  import FILE [--input pipe|csv]               Imports new transactions, skipping duplicates" +
+                "\n  serve [--port 8080]                          Answers JSON queries over HTTP on localhost" +
+                "\n  segment [--period month|year]                Builds/updates the per-period segment files" +
+                "\n                                               and compresses the closed periods" +
+                "\n\nOptions:" +
+                "\n  --format csv|json|table   Output format (default csv, the transactions.csv line format)" +
+                "\n  --summary                 Only print total|deposits|payments|count" +
+                "\n  --segments                Run reports, vendor and search on the segments, loading only" +
+                "\n                            the periods they need" +
+                "\n  --offheap                 Run reports, vendor and search on off-heap rows mapped from" +
+                "\n                            transactions.offheap/" +
+                "\n  --columnar                Run reports, vendor and search on the ledger loaded into" +
+                "\n                            primitive columns (vectorized summaries)" +
+                "\n\nExit codes: 0 ok, 1 some lines couldn't be appended, 2 bad arguments or file error");
+    }
+}
@@ -0,0 +1,422 @@
+package com.pluralsight;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Local HTTP service answering ledger queries with JSON, started with the "serve" command
+// Every request runs on its own virtual thread, and the queries read TransactionList snapshots without
+// blocking each other, so thousands of report requests can be open at once.
+// Transaction lists are paged (offset/limit) and written to the response while they are visited.
+//
+//   GET  /transactions?from=yyyy-MM-dd&to=yyyy-MM-dd&offset=0&limit=100   date range, sorted by date/time
+//   GET  /vendor?name=NAME&offset=0&limit=100                             transactions of a vendor
+//   GET  /search?from=&to=&description=&vendor=&offset=0&limit=100        custom search, can also filter on
+//        &type=deposits|payments&minAmount=&maxAmount= and sort with &sort=date|date-desc|amount|amount-desc
+//   GET  /totals?from=yyyy-MM-dd&to=yyyy-MM-dd                            total, deposits, payments, count
+//   POST /transactions   one object or an array of {"dateTime","description","vendor","amount"}
+public class LedgerHttpServer {
+    private static final int defaultLimit = 100;
+    private static final int maxLimit = 10_000;
+    // Request bodies bigger than this are refused
+    private static final int maxBodyBytes = 16 * 1024 * 1024;
+    private static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // A request handler that can fail with a bad request (IllegalArgumentException) or an I/O error
+    private interface Handler {
+        void handle(HttpExchange exchange, Map<String, String> parameters) throws IOException;
+    }
+
+    private final TransactionList transactionList;
+    private final TransactionJournal journal;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // Appends hold the read lock while they write the journal and add to the list, stop() takes the write lock
+    private final ReentrantReadWriteLock appendLock = new ReentrantReadWriteLock();
+    private boolean stopped;
+
+    // Listens on the loopback address only, the service is meant for tools on the same machine
+    public LedgerHttpServer(TransactionList transactionList, TransactionJournal journal, int port) throws IOException {
+        this.transactionList = transactionList;
+        this.journal = journal;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/transactions", exchange -> dispatch(exchange, "/transactions", this::transactions));
+        server.createContext("/vendor", exchange -> dispatch(exchange, "/vendor", this::vendor));
+        server.createContext("/search", exchange -> dispatch(exchange, "/search", this::search));
+        server.createContext("/totals", exchange -> dispatch(exchange, "/totals", this::totals));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Stops accepting requests and waits up to delaySeconds for the open ones, then for appends in progress
+    // Request threads are not interrupted: an interrupt during a journal write or force closes the channel
+    // the whole journal shares (ClosedByInterruptException). Appends arriving after this fail with 503,
+    // so the list and the journal agree when the snapshot is saved
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appendLock.writeLock().lock();
+        try {
+            stopped = true;
+        } finally {
+            appendLock.writeLock().unlock();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    //   === Handlers ===
+
+    // GET pages through a date range, POST appends transactions
+    private void transactions(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        if (exchange.getRequestMethod().equals("POST")) {
+            append(exchange);
+            return;
+        }
+        requireGet(exchange);
+        LocalDate from = dateParameter(parameters, "from");
+        LocalDate to = dateParameter(parameters, "to");
+        int offset = intParameter(parameters, "offset", 0, Integer.MAX_VALUE);
+        int limit = intParameter(parameters, "limit", defaultLimit, maxLimit);
+        try (PageWriter page = new PageWriter(exchange, 0, limit)) {
+            page.begin(offset, limit);
+            int total = transactionList.forEachTransaction(from, to, offset, limit, page);
+            page.end("\"total\":" + total);
+        }
+    }
+
+    private void vendor(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        requireGet(exchange);
+        String name = parameters.get("name");
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        int offset = intParameter(parameters, "offset", 0, Integer.MAX_VALUE);
+        int limit = intParameter(parameters, "limit", defaultLimit, maxLimit);
+        try (PageWriter page = new PageWriter(exchange, offset, limit)) {
+            page.begin(offset, limit);
+            transactionList.forEachByVendor(name, page);
+            StringBuilder totals = new StringBuilder("\"total\":").append(page.getSeen()).append(",\"totalAmount\":");
+            page.end(Money.appendTo(totals, page.getSeenCents()).toString());
+        }
+    }
+
+    // Runs as a TransactionQuery, so only the requested page is visited in order and the total is counted
+    // separately (from the per-day totals when there are only date bounds)
+    private void search(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        requireGet(exchange);
+        TransactionQuery query = transactionList.query()
+                .from(dateParameter(parameters, "from"))
+                .to(dateParameter(parameters, "to"))
+                .descriptionContains(parameters.get("description"))
+                .vendorContains(parameters.get("vendor"));
+        String type = parameters.getOrDefault("type", "");
+        if (type.equalsIgnoreCase("deposits")) {
+            query.deposits();
+        } else if (type.equalsIgnoreCase("payments")) {
+            query.payments();
+        } else if (!type.isBlank()) {
+            throw new IllegalArgumentException("type must be deposits or payments");
+        }
+        if (parameters.containsKey("minAmount")) {
+            query.minCents(centsParameter(parameters, "minAmount"));
+        }
+        if (parameters.containsKey("maxAmount")) {
+            query.maxCents(centsParameter(parameters, "maxAmount"));
+        }
+        if (parameters.containsKey("sort")) {
+            query.sortBy(TransactionQuery.Sort.fromName(parameters.get("sort")));
+        }
+        int offset = intParameter(parameters, "offset", 0, Integer.MAX_VALUE);
+        int limit = intParameter(parameters, "limit", defaultLimit, maxLimit);
+        try (PageWriter page = new PageWriter(exchange, 0, limit)) {
+            page.begin(offset, limit);
+            query.offset(offset).limit(limit).forEach(page);
+            page.end("\"total\":" + query.count());
+        }
+    }
+
+    // Answered from the per-day totals, it doesn't visit any rows
+    private void totals(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        requireGet(exchange);
+        RangeSummary summary = transactionList.getSummary(dateParameter(parameters, "from"), dateParameter(parameters, "to"));
+        sendJson(exchange, 200, Json.appendSummary(new StringBuilder(), summary).toString());
+    }
+
+    // Adds the posted transactions, either all of them or (when one is invalid) none
+    // They are written to the journal as one batch first and only then added to the list, so when the write
+    // fails the client gets a 500 and nothing was added that a retry would duplicate
+    // (the server never compacts, which is the one journal operation that expects the list to be ahead)
+    private void append(HttpExchange exchange) throws IOException {
+        List<Map<String, String>> objects = Json.parseObjects(readBody(exchange));
+        List<Transaction> batch = new ArrayList<>(objects.size());
+        for (int i = 0; i < objects.size(); i++) {
+            try {
+                batch.add(toTransaction(objects.get(i)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("transaction " + i + ": " + e.getMessage());
+            }
+        }
+        appendLock.readLock().lock();
+        try {
+            if (stopped) {
+                sendError(exchange, 503, "The service is stopping");
+                return;
+            }
+            journal.appendAll(batch);
+            transactionList.addTransactions(batch);
+        } finally {
+            appendLock.readLock().unlock();
+        }
+        sendJson(exchange, 201, "{\"added\":" + batch.size() + "}");
+    }
+
+    // dateTime is optional (defaults to now), amount is required and may be a JSON number or string
+    private static Transaction toTransaction(Map<String, String> object) {
+        String amount = object.get("amount");
+        if (amount == null) {
+            throw new IllegalArgumentException("amount is required");
+        }
+        long amountCents;
+        try {
+            amountCents = Money.parseCents(amount);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid amount '" + amount + "'");
+        }
+        String dateTimeText = object.get("dateTime");
+        LocalDateTime dateTime;
+        try {
+            dateTime = dateTimeText == null ? LocalDateTime.now().withNano(0)
+                    : LocalDateTime.parse(dateTimeText, dateTimeFormatter);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid dateTime '" + dateTimeText + "', please use yyyy-MM-dd HH:mm:ss");
+        }
+        String description = object.getOrDefault("description", "");
+        String vendor = object.getOrDefault("vendor", "");
+        // The ledger file separates the fields with "|" and the lines with newlines
+        if (containsSeparator(description) || containsSeparator(vendor)) {
+            throw new IllegalArgumentException("description and vendor can't contain '|' or line breaks");
+        }
+        return Transaction.ofCents(dateTime, description, vendor, amountCents);
+    }
+
+    private static boolean containsSeparator(String text) {
+        return text != null && (text.indexOf('|') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0);
+    }
+
+    //   === Request helpers ===
+
+    // Runs a handler for an exact path and turns its errors into JSON error responses
+    private void dispatch(HttpExchange exchange, String path, Handler handler) throws IOException {
+        long startNanos = System.nanoTime();
+        try (exchange) {
+            if (!exchange.getRequestURI().getPath().equals(path)) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+            try {
+                handler.handle(exchange, queryParameters(exchange));
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (UnsupportedOperationException e) {
+                sendError(exchange, 405, e.getMessage());
+            } catch (UncheckedIOException e) {
+                // The client went away while the response was being written
+                return;
+            } catch (IOException e) {
+                // A journal write that failed, or a client that went away (then nothing can be sent anyway)
+                sendError(exchange, 500, "I/O error: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+            } catch (RuntimeException e) {
+                sendError(exchange, 500, "Internal error: " + e.getMessage());
+            }
+        } finally {
+            LedgerMetrics.record("http " + path, startNanos, 0, 0);
+        }
+    }
+
+    private static void requireGet(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            exchange.getResponseHeaders().set("Allow", "GET");
+            throw new UnsupportedOperationException("Method not allowed");
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.put(key, value);
+        }
+        return parameters;
+    }
+
+    private static LocalDate dateParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be a date (yyyy-MM-dd)");
+        }
+    }
+
+    private static long centsParameter(Map<String, String> parameters, String name) {
+        try {
+            return Money.parseCents(parameters.get(name).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an amount");
+        }
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue, int max) {
+        String value = parameters.get(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if (number < 0 || number > max) {
+                throw new IllegalArgumentException(name + " must be between 0 and " + max);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(maxBodyBytes + 1);
+            if (body.length > maxBodyBytes) {
+                throw new IllegalArgumentException("Request body is too large");
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    // Does nothing when the handler already sent its status line (a streamed page), the client then sees the
+    // response end early instead
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        sendJson(exchange, status, Json.appendString(new StringBuilder("{\"error\":"), message).append('}').toString());
+    }
+
+    // Streams a page of transactions as {"offset":..,"limit":..,"transactions":[...], ...}
+    // It is passed every matching transaction, skips the first skip of them and writes the next limit ones,
+    // counting the rest so the response can tell how many there are in total.
+    // The response is sent chunked, so it starts going out before the query is finished
+    private static class PageWriter implements Consumer<Transaction>, AutoCloseable {
+        private final HttpExchange exchange;
+        private final int skip;
+        private final int limit;
+        private final StringBuilder line = new StringBuilder(160);
+        private Writer out;
+        private long seen;
+        private long seenCents;
+        private int written;
+
+        private PageWriter(HttpExchange exchange, int skip, int limit) {
+            this.exchange = exchange;
+            this.skip = skip;
+            this.limit = limit;
+        }
+
+        private void begin(int offset, int limit) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024);
+            out.write("{\"offset\":" + offset + ",\"limit\":" + limit + ",\"transactions\":[");
+        }
+
+        @Override
+        public void accept(Transaction transaction) {
+            seen++;
+            seenCents += transaction.getAmountCents();
+            if (seen <= skip || written == limit) {
+                return;
+            }
+            line.setLength(0);
+            if (written > 0) {
+                line.append(',');
+            }
+            Json.appendTransaction(line, transaction);
+            written++;
+            try {
+                out.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private long getSeen() {
+            return seen;
+        }
+
+        private long getSeenCents() {
+            return seenCents;
+        }
+
+        // Closes the array and adds the extra fields (like the total)
+        private void end(String fields) throws IOException {
+            out.write("]," + fields + "}");
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.pluralsight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Exclusive lock that makes one process at a time the writer of a ledger file
+// The lock is taken on "transactions.csv.lock" next to the ledger instead of the ledger itself, because
+// compaction replaces transactions.csv and a lock on the old file would no longer keep anybody out.
+// A second writer fails right away instead of writing over the first one's lines, or saving a snapshot
+// that claims lines it never loaded
+public class LedgerLock implements Closeable {
+    private final FileChannel channel;
+
+    private LedgerLock(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    // Locks the ledger, throws an IOException when another process (or another journal in this one) holds it
+    public static LedgerLock acquire(Path ledgerFile) throws IOException {
+        Path lockFile = ledgerFile.resolveSibling(ledgerFile.getFileName() + ".lock");
+        FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException(ledgerFile + " is already open for writing by another process (" + lockFile + ")");
+        }
+        return new LedgerLock(channel);
+    }
+
+    // Releases the lock, the lock file itself is left in place for the next writer
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
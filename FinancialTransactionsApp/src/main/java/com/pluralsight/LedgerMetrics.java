@@ -0,0 +1,161 @@
+package com.pluralsight;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Counters and latency histograms for the ledger operations (loads, saves, searches, reports)
+// Each operation records how long it took, how many rows it looked at and how many it returned.
+// When rows scanned keeps growing much faster than rows returned, the ledger has outgrown linear scans.
+// Everything is published over JMX under "com.pluralsight:type=LedgerMetrics" and shown by the ledger's Stats screen
+public class LedgerMetrics {
+
+    // Published over JMX for every operation
+    public interface OperationStatsMXBean {
+        long getCount();
+        double getMeanMicros();
+        double getP50Micros();
+        double getP99Micros();
+        double getMaxMicros();
+        long getRowsScanned();
+        long getRowsReturned();
+    }
+
+    // Published over JMX for the whole ledger
+    public interface LedgerStatsMXBean {
+        long getBytesRead();
+        long getBytesWritten();
+    }
+
+    // Latency and row counters of one operation
+    public static class OperationStats implements OperationStatsMXBean {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rowsScanned = new LongAdder();
+        private final LongAdder rowsReturned = new LongAdder();
+
+        @Override
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latency.getMeanNanos() / 1000.0;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return latency.getPercentileNanos(50) / 1000.0;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return latency.getPercentileNanos(99) / 1000.0;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return latency.getMaxNanos() / 1000.0;
+        }
+
+        @Override
+        public long getRowsScanned() {
+            return rowsScanned.sum();
+        }
+
+        @Override
+        public long getRowsReturned() {
+            return rowsReturned.sum();
+        }
+    }
+
+    private static class LedgerStats implements LedgerStatsMXBean {
+        @Override
+        public long getBytesRead() {
+            return bytesRead.sum();
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return bytesWritten.sum();
+        }
+    }
+
+    private static final String domain = "com.pluralsight";
+    private static final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private static final LongAdder bytesRead = new LongAdder();
+    private static final LongAdder bytesWritten = new LongAdder();
+
+    static {
+        register(domain + ":type=LedgerMetrics,name=ledger", new LedgerStats());
+    }
+
+    private LedgerMetrics() {}
+
+    // Records a finished operation, startNanos is the System.nanoTime() taken when it started
+    public static void record(String operation, long startNanos, long rowsScanned, long rowsReturned) {
+        OperationStats stats = operations.computeIfAbsent(operation, LedgerMetrics::createOperation);
+        stats.latency.record(System.nanoTime() - startNanos);
+        stats.rowsScanned.add(rowsScanned);
+        stats.rowsReturned.add(rowsReturned);
+    }
+
+    public static void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    public static void addBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    // Snapshot of the operations recorded so far, sorted by name
+    public static Map<String, OperationStats> getOperations() {
+        return new TreeMap<>(operations);
+    }
+
+    public static long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public static long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    // Prints a table of every operation for the Stats screen
+    public static void printStats() {
+        System.out.println("\nLedger statistics:");
+        System.out.printf("%-28s %8s %12s %12s %12s %12s %14s %14s%n",
+                "Operation", "Count", "Mean (us)", "p50 (us)", "p99 (us)", "Max (us)", "Rows scanned", "Rows returned");
+        for (Map.Entry<String, OperationStats> entry : getOperations().entrySet()) {
+            OperationStats stats = entry.getValue();
+            System.out.printf("%-28s %8d %12.1f %12.1f %12.1f %12.1f %14d %14d%n",
+                    entry.getKey(), stats.getCount(), stats.getMeanMicros(), stats.getP50Micros(),
+                    stats.getP99Micros(), stats.getMaxMicros(), stats.getRowsScanned(), stats.getRowsReturned());
+        }
+        System.out.printf("Bytes read: %d, bytes written: %d%n", getBytesRead(), getBytesWritten());
+    }
+
+    private static OperationStats createOperation(String operation) {
+        OperationStats stats = new OperationStats();
+        register(domain + ":type=LedgerMetrics,name=" + ObjectName.quote(operation), stats);
+        return stats;
+    }
+
+    // Metrics still work without JMX, so a failed registration is only reported
+    private static void register(String name, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            System.out.println("Could not register metrics bean " + name + ": " + e.getMessage());
+        }
+    }
+}
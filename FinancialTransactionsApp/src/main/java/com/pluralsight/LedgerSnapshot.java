@@ -0,0 +1,277 @@
+package com.pluralsight;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+// Binary checkpoint of the ledger so startup doesn't have to parse the whole text file again
+// The snapshot remembers how many bytes of transactions.csv it covers. On startup it is loaded and only
+// the lines appended to the csv file after that point are parsed (journal replay). The indexes are stored
+// as they are, so loading doesn't sort or add up anything either: it costs the snapshot size plus the replay.
+//
+// Layout (big endian):
+//   header: magic, version, row count, covered csv bytes, fingerprint of the csv up to that point,
+//           CRC32 of everything after the header
+//   string dictionary: count, then length + UTF-8 bytes for every distinct description/vendor
+//   rows: fixed-width records of epoch seconds (long), cents (long), description id (int), vendor id (int)
+//   time index: row positions sorted by date/time (int per row), then their keys (long per row)
+//   daily totals and daily balances: their trees, see DailyTotals.writeTo and DailyBalances.writeTo
+public class LedgerSnapshot {
+    private static final int magic = 0x4C534E50; // "LSNP"
+    private static final int version = 3;
+    private static final int headerSize = 4 + 4 + 4 + 8 + 8 + 8;
+    // The fingerprint covers this many bytes at the start and at the end of the covered part of the csv file
+    private static final int fingerprintWindowBytes = 64 * 1024;
+
+    // What load did, and why a snapshot wasn't used
+    public static class LoadResult {
+        private final boolean loaded;
+        private final String reason;
+        private final LoadReport replayReport;
+
+        private LoadResult(boolean loaded, String reason, LoadReport replayReport) {
+            this.loaded = loaded;
+            this.reason = reason;
+            this.replayReport = replayReport;
+        }
+
+        private static LoadResult notLoaded(String reason) {
+            return new LoadResult(false, reason, null);
+        }
+
+        // True when the list was loaded from the snapshot, false when it was left untouched
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        // Why the snapshot wasn't used, null when it was or when there simply is no snapshot yet
+        public String getReason() {
+            return reason;
+        }
+
+        // The lines replayed after the snapshot (null when it wasn't loaded)
+        public LoadReport getReplayReport() {
+            return replayReport;
+        }
+    }
+
+    // Writes a snapshot of the list, which must hold exactly what is in the csv file right now
+    // The covered bytes are measured from the file, so the caller must hold the ledger lock (an open
+    // TransactionJournal) from the load until now; otherwise lines appended by another process would be
+    // claimed without their rows. The snapshot is written to a temporary file first and then moved into place
+    public static void save(TransactionList transactionList, String csvFile, String snapshotFile) throws IOException {
+        Path csvPath = Path.of(csvFile);
+        long csvBytes = endOfLastLine(csvPath);
+        long fingerprint = fingerprint(csvPath, csvBytes);
+
+        TransactionList.Checkpoint checkpoint = transactionList.checkpoint();
+        List<Transaction> transactions = checkpoint.getView().getRows();
+        TimeIndex timeIndex = checkpoint.getView().getTimeIndex();
+        StringDictionary strings = new StringDictionary();
+        int[] descriptionIds = new int[transactions.size()];
+        int[] vendorIds = new int[transactions.size()];
+        for (int row = 0; row < transactions.size(); row++) {
+            descriptionIds[row] = strings.getOrAdd(transactions.get(row).getDescription());
+            vendorIds[row] = strings.getOrAdd(transactions.get(row).getVendor());
+        }
+
+        Path target = Path.of(snapshotFile).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(headerSize);
+            CRC32 checksum = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), checksum), 64 * 1024));
+
+            out.writeInt(strings.size());
+            for (int id = 0; id < strings.size(); id++) {
+                String value = strings.get(id);
+                if (value == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            for (int row = 0; row < transactions.size(); row++) {
+                Transaction transaction = transactions.get(row);
+                out.writeLong(TimeIndex.toKey(transaction.getDateTime()));
+                out.writeLong(transaction.getAmountCents());
+                out.writeInt(descriptionIds[row]);
+                out.writeInt(vendorIds[row]);
+            }
+            for (int position = 0; position < timeIndex.size(); position++) {
+                out.writeInt(timeIndex.rowAt(position));
+            }
+            for (int position = 0; position < timeIndex.size(); position++) {
+                out.writeLong(timeIndex.keyAt(position));
+            }
+            checkpoint.getDailyTotals().writeTo(out);
+            checkpoint.getDailyBalances().writeTo(out);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(headerSize);
+            header.putInt(magic).putInt(version).putInt(transactions.size())
+                    .putLong(csvBytes).putLong(fingerprint).putLong(checksum.getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, headerSize - header.remaining());
+            }
+            channel.force(true);
+            LedgerMetrics.addBytesWritten(channel.size());
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Loads the snapshot into the (empty) list and replays the csv lines appended after it
+    // When there is no usable snapshot the list is left untouched and the result says why: it is missing,
+    // damaged, or the csv file no longer starts with the bytes the snapshot was taken from. Nothing is printed,
+    // the caller shows the reason and the replay report where its output goes
+    public static LoadResult load(TransactionList transactionList, String csvFile, String snapshotFile) throws IOException {
+        Path snapshotPath = Path.of(snapshotFile);
+        Path csvPath = Path.of(csvFile);
+        if (!Files.exists(snapshotPath) || !Files.exists(csvPath)) {
+            return LoadResult.notLoaded(null);
+        }
+
+        long startNanos = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            if (channel.size() < headerSize) {
+                return LoadResult.notLoaded("Snapshot is damaged, loading the full file.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != magic || buffer.getInt() != version) {
+                return LoadResult.notLoaded("Snapshot has an unknown format, loading the full file.");
+            }
+            int rowCount = buffer.getInt();
+            long csvBytes = buffer.getLong();
+            long fingerprint = buffer.getLong();
+            long storedChecksum = buffer.getLong();
+
+            if (Files.size(csvPath) < csvBytes || fingerprint(csvPath, csvBytes) != fingerprint) {
+                return LoadResult.notLoaded("Snapshot doesn't match " + csvFile + ", loading the full file.");
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.slice(headerSize, buffer.limit() - headerSize));
+            if (checksum.getValue() != storedChecksum) {
+                return LoadResult.notLoaded("Snapshot checksum doesn't match, loading the full file.");
+            }
+
+            String[] strings = new String[buffer.getInt()];
+            for (int id = 0; id < strings.length; id++) {
+                int length = buffer.getInt();
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    buffer.get(bytes);
+                    strings[id] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            List<Transaction> rows = new ArrayList<>(rowCount);
+            for (int row = 0; row < rowCount; row++) {
+                long key = buffer.getLong();
+                long amountCents = buffer.getLong();
+                String description = strings[buffer.getInt()];
+                String vendor = strings[buffer.getInt()];
+                rows.add(Transaction.ofCents(LocalDateTime.ofEpochSecond(key, 0, ZoneOffset.UTC),
+                        description, vendor, amountCents));
+            }
+            int[] timeOrder = new int[rowCount];
+            buffer.asIntBuffer().get(timeOrder);
+            buffer.position(buffer.position() + rowCount * Integer.BYTES);
+            long[] sortedKeys = new long[rowCount];
+            buffer.asLongBuffer().get(sortedKeys);
+            buffer.position(buffer.position() + rowCount * Long.BYTES);
+            DailyTotals dailyTotals = DailyTotals.readFrom(buffer);
+            DailyBalances dailyBalances = DailyBalances.readFrom(buffer);
+            transactionList.restore(rows, new TimeIndex(sortedKeys, timeOrder, rowCount), dailyTotals, dailyBalances);
+            LedgerMetrics.addBytesRead(channel.size());
+            LedgerMetrics.record("loadSnapshot", startNanos, rowCount, rowCount);
+
+            // Journal replay: only the lines appended since the snapshot are parsed
+            LoadReport report = transactionList.addAll(sink -> new TransactionFileReader().read(csvPath, csvBytes, sink));
+            return new LoadResult(true, null, report);
+        }
+    }
+
+    // Position right after the last newline of the csv file
+    // An incomplete last line isn't in the list (and gets cut off by the journal), so it isn't covered
+    static long endOfLastLine(Path csvFile) throws IOException {
+        if (!Files.exists(csvFile)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            ByteBuffer block = ByteBuffer.allocate(4096);
+            long end = channel.size();
+            while (end > 0) {
+                long start = Math.max(0, end - block.capacity());
+                block.clear().limit((int) (end - start));
+                while (block.hasRemaining() && channel.read(block, start + block.position()) >= 0) {
+                    // keep reading until the block is full
+                }
+                for (int i = block.position() - 1; i >= 0; i--) {
+                    if (block.get(i) == '\n') {
+                        return start + i + 1;
+                    }
+                }
+                end = start;
+            }
+            return 0;
+        }
+    }
+
+    // CRC32C of the first and last fingerprintWindowBytes of the csv file before the end position, and of the end
+    // position itself. The csv file only ever grows by whole lines appended through the journal, and compaction
+    // rewrites it from the start (and saves a new snapshot), so a file that still has the same length, start and
+    // end as when the snapshot was taken is taken to be the same file. Hashing every covered byte would make each
+    // startup read the whole history again, the very work the snapshot is there to save; the price is that a hand
+    // edit somewhere in the middle of a big file that keeps its length goes unnoticed
+    static long fingerprint(Path csvFile, long end) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, end));
+        if (end == 0) {
+            return crc.getValue();
+        }
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            long headEnd = Math.min(end, fingerprintWindowBytes);
+            update(crc, channel, 0, headEnd);
+            update(crc, channel, Math.max(headEnd, end - fingerprintWindowBytes), end);
+        }
+        return crc.getValue();
+    }
+
+    // Adds the bytes from start to end of the file to the checksum
+    private static void update(CRC32C crc, FileChannel channel, long start, long end) throws IOException {
+        if (start >= end) {
+            return;
+        }
+        ByteBuffer block = ByteBuffer.allocate((int) (end - start));
+        while (block.hasRemaining() && channel.read(block, start + block.position()) >= 0) {
+            // keep reading until the block is full
+        }
+        block.flip();
+        crc.update(block);
+    }
+}
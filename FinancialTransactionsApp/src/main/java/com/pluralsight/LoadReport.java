@@ -0,0 +1,119 @@
+package com.pluralsight;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Quarantine report for a load of the transactions file
+// Keeps the lines that could not be parsed instead of failing (or throwing) on each one
+public class LoadReport {
+    // Only the first lines are kept so a badly broken file can't fill the heap with errors
+    private static final int maxKeptLines = 1000;
+
+    // A line that could not be loaded, with its 1-based line number in the file
+    public static class MalformedLine {
+        private final long lineNumber;
+        private final String reason;
+        private final String text;
+
+        public MalformedLine(long lineNumber, String reason, String text) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+            this.text = text;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason + " (" + text + ")";
+        }
+    }
+
+    private final List<MalformedLine> malformedLines = new ArrayList<>();
+    private long loadedCount;
+    private long malformedCount;
+    private boolean tornLastLine;
+
+    public void addLoaded() {
+        loadedCount++;
+    }
+
+    public void addMalformed(long lineNumber, String reason, String text) {
+        malformedCount++;
+        if (malformedLines.size() < maxKeptLines) {
+            malformedLines.add(new MalformedLine(lineNumber, reason, text));
+        }
+    }
+
+    // Adds the counts and malformed lines of a report for one chunk of the file
+    // The chunk's line numbers start at 1, lineOffset is the number of lines before the chunk
+    public void merge(LoadReport chunkReport, long lineOffset) {
+        loadedCount += chunkReport.loadedCount;
+        malformedCount += chunkReport.malformedCount;
+        for (MalformedLine line : chunkReport.malformedLines) {
+            if (malformedLines.size() == maxKeptLines) {
+                break;
+            }
+            malformedLines.add(new MalformedLine(line.getLineNumber() + lineOffset, line.getReason(), line.getText()));
+        }
+        tornLastLine |= chunkReport.tornLastLine;
+    }
+
+    public void setTornLastLine(boolean tornLastLine) {
+        this.tornLastLine = tornLastLine;
+    }
+
+    public long getLoadedCount() {
+        return loadedCount;
+    }
+
+    public long getMalformedCount() {
+        return malformedCount;
+    }
+
+    // The first malformed lines found (up to 1000)
+    public List<MalformedLine> getMalformedLines() {
+        return malformedLines;
+    }
+
+    // True when the last line had no newline, meaning it was cut off while being appended
+    public boolean hasTornLastLine() {
+        return tornLastLine;
+    }
+
+    // Prints a short summary with up to maxLines of the malformed lines
+    public void printSummary(int maxLines) {
+        for (String line : getSummaryLines(maxLines)) {
+            System.out.println(line);
+        }
+    }
+
+    // The lines printSummary prints, for callers that show them somewhere else
+    public List<String> getSummaryLines(int maxLines) {
+        List<String> lines = new ArrayList<>();
+        if (tornLastLine) {
+            lines.add("Skipped incomplete last line.");
+        }
+        if (malformedCount == 0) {
+            return lines;
+        }
+        lines.add("Error loading transactions: " + malformedCount + " malformed line(s) skipped.");
+        for (int i = 0; i < malformedLines.size() && i < maxLines; i++) {
+            lines.add("  " + malformedLines.get(i));
+        }
+        if (malformedCount > maxLines) {
+            lines.add("  ...");
+        }
+        return lines;
+    }
+}
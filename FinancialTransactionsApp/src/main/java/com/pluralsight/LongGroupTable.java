@@ -0,0 +1,106 @@
+package com.pluralsight;
+
+import java.util.Arrays;
+
+// Hash table from long group keys to the count, sum, min and max of the cents added to each group
+// Open addressing over plain arrays, so adding a row neither boxes the key nor allocates anything
+// (the arrays only grow when a new group doesn't fit). Groups are numbered in the order they first appear
+public class LongGroupTable {
+    private static final int initialGroups = 16;
+
+    // Slot -> group + 1, 0 is an empty slot
+    private int[] slots = new int[initialGroups * 2];
+    private long[] keys = new long[initialGroups];
+    private long[] counts = new long[initialGroups];
+    private long[] sums = new long[initialGroups];
+    private long[] mins = new long[initialGroups];
+    private long[] maxs = new long[initialGroups];
+    private int size;
+
+    // Adds the amount to the group of the key, starting the group if it is new
+    public void add(long key, long cents) {
+        int mask = slots.length - 1;
+        int slot = mix(key) & mask;
+        while (true) {
+            int group = slots[slot] - 1;
+            if (group < 0) {
+                group = newGroup(key, slot);
+                counts[group] = 1;
+                sums[group] = cents;
+                mins[group] = cents;
+                maxs[group] = cents;
+                return;
+            }
+            if (keys[group] == key) {
+                counts[group]++;
+                sums[group] += cents;
+                if (cents < mins[group]) {
+                    mins[group] = cents;
+                }
+                if (cents > maxs[group]) {
+                    maxs[group] = cents;
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Number of groups
+    public int size() {
+        return size;
+    }
+
+    public long getKey(int group) {
+        return keys[group];
+    }
+
+    public long getCount(int group) {
+        return counts[group];
+    }
+
+    public long getSum(int group) {
+        return sums[group];
+    }
+
+    public long getMin(int group) {
+        return mins[group];
+    }
+
+    public long getMax(int group) {
+        return maxs[group];
+    }
+
+    private int newGroup(long key, int slot) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxs = Arrays.copyOf(maxs, capacity);
+        }
+        int group = size++;
+        keys[group] = key;
+        slots[slot] = group + 1;
+        // Keeps the table at most half full so probe runs stay short
+        if (size * 2 > slots.length) {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int existing = 0; existing < size; existing++) {
+                int newSlot = mix(keys[existing]) & mask;
+                while (slots[newSlot] != 0) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                slots[newSlot] = existing + 1;
+            }
+        }
+        return group;
+    }
+
+    // Spreads the bits of the key, the table only uses the low ones
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,116 @@
+package com.pluralsight;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+
+// Helpers for money amounts kept as whole cents in a long
+// Parsing and formatting work on the digits directly, so amounts never pass through a double
+public class Money {
+    // Returned by parseCents(byte[], int, int) when the text isn't a plain amount
+    public static final long invalid = Long.MIN_VALUE;
+    // Limits for the BigDecimal fallback: digits before the decimal point (cents must fit in a long)
+    // and digits after it (nobody writes more, and rounding more away is what makes "1e-99999999" slow)
+    private static final int maxIntegerDigits = 17;
+    private static final int maxScale = 32;
+
+    private Money() {}
+
+    // Parses an amount like "3500.00" or "-95.6" into cents
+    // Plain decimals are read digit by digit, anything else (spaces, exponents, more than 2 decimals)
+    // goes through BigDecimal and is rounded half up to whole cents
+    // Throws NumberFormatException (an IllegalArgumentException) for text that isn't an amount or is out of range
+    public static long parseCents(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        long cents = parseCents(bytes, 0, bytes.length);
+        if (cents != invalid) {
+            return cents;
+        }
+        BigDecimal value = new BigDecimal(text.trim());
+        // The exponent is checked before rounding: setScale on "1e99999999" would build a number with
+        // a hundred million digits (minutes of CPU or an OutOfMemoryError)
+        if (value.precision() - value.scale() > maxIntegerDigits || value.scale() > maxScale) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+        try {
+            cents = value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+        if (cents == invalid) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+        return cents;
+    }
+
+    // Parses a plain decimal with at most 2 decimal places from the ASCII bytes between from and to into cents
+    // Returns invalid when the text is anything else, without throwing (TransactionFileReader parses every
+    // amount of the file with it, before falling back to parseCents(String))
+    public static long parseCents(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long units = 0;
+        int unitDigits = 0;
+        while (i < to && bytes[i] >= '0' && bytes[i] <= '9') {
+            if (++unitDigits > 15) {
+                return invalid;
+            }
+            units = units * 10 + (bytes[i] - '0');
+            i++;
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < to && bytes[i] == '.') {
+            i++;
+            while (i < to && bytes[i] >= '0' && bytes[i] <= '9') {
+                if (++fractionDigits > 2) {
+                    return invalid;
+                }
+                fraction = fraction * 10 + (bytes[i] - '0');
+                i++;
+            }
+        }
+        if (i != to || unitDigits + fractionDigits == 0) {
+            return invalid;
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        long cents = units * 100 + fraction;
+        return negative ? -cents : cents;
+    }
+
+    // Formats cents with 2 decimals, e.g. -172500 becomes "-1725.00"
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(24), cents).toString();
+    }
+
+    // Appends the formatted amount to the builder without creating any other objects
+    // The parts are split before taking the absolute value, which Long.MIN_VALUE doesn't have
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+        }
+        sb.append(Math.abs(cents / 100)).append('.');
+        long fraction = Math.abs(cents % 100);
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    // Converts a double amount (like the ones typed in or passed to the Transaction constructor) to cents
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+}
@@ -0,0 +1,117 @@
+package com.pluralsight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A block of memory outside the Java heap that can grow, either mapped from a file or allocated in an Arena
+// Growing maps (or allocates and copies into) a segment twice as big and closes the Arena of the old one,
+// so a MemorySegment taken from segment() must not be kept across ensureCapacity.
+// Not thread safe, the stores using it synchronize
+public class OffHeapRegion implements Closeable {
+    private static final long alignment = 8;
+
+    // Null when the region is only in memory
+    private final FileChannel channel;
+    private Arena arena;
+    private MemorySegment segment;
+
+    private OffHeapRegion(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    // A region in memory only, zeroed
+    public static OffHeapRegion allocate(long capacity) {
+        OffHeapRegion region = new OffHeapRegion(null);
+        region.arena = Arena.ofShared();
+        region.segment = region.arena.allocate(capacity, alignment);
+        return region;
+    }
+
+    // Maps the file (created if needed) with at least the given capacity, the file grows to the capacity
+    // New bytes of the file read as zeros
+    public static OffHeapRegion map(Path file, long capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        OffHeapRegion region = new OffHeapRegion(channel);
+        try {
+            region.remap(Math.max(capacity, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return region;
+    }
+
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    public long capacity() {
+        return segment.byteSize();
+    }
+
+    // Makes the region at least bytes long, doubling it so adding rows one at a time stays cheap
+    public void ensureCapacity(long bytes) {
+        if (bytes <= segment.byteSize()) {
+            return;
+        }
+        long capacity = segment.byteSize();
+        while (capacity < bytes) {
+            capacity *= 2;
+        }
+        if (channel != null) {
+            try {
+                remap(capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        Arena grown = Arena.ofShared();
+        MemorySegment copy = grown.allocate(capacity, alignment);
+        copy.copyFrom(segment);
+        arena.close();
+        arena = grown;
+        segment = copy;
+    }
+
+    // Writes the changed pages of a mapped region to the disk
+    public void force() {
+        if (channel != null) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (arena != null) {
+            arena.close();
+            arena = null;
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void remap(long capacity) throws IOException {
+        Arena mapped = Arena.ofShared();
+        MemorySegment mapping;
+        try {
+            mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity, mapped);
+        } catch (IOException | RuntimeException e) {
+            mapped.close();
+            throw e;
+        }
+        if (arena != null) {
+            arena.close();
+        }
+        arena = mapped;
+        segment = mapping;
+    }
+}
@@ -0,0 +1,250 @@
+package com.pluralsight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+// Same ids as StringDictionary, but the strings are kept as UTF-8 bytes outside the Java heap
+// The entries ([int length][bytes], length -1 for null) follow a header in an OffHeapRegion. The id -> offset
+// table and the hash table getOrAdd looks strings up in are off heap too; for a mapped file they are rebuilt
+// from the entries when it is opened, which is one pass over the distinct strings, not over the rows.
+// commit() records the entries in the header, entries added after the last commit are dropped when the file
+// is opened again. Not thread safe, OffHeapTransactionStore synchronizes
+public class OffHeapStringDictionary implements Closeable {
+    private static final int magic = 0x4C444943; // "LDIC"
+    private static final int version = 1;
+    private static final long headerBytes = 32;
+    // One page, the region doubles as strings are added
+    private static final long initialCapacity = 4096;
+    private static final int initialTableSlots = 1024;
+
+    private final OffHeapRegion entries;
+    // Offset of each entry, a long per id
+    private final OffHeapRegion offsets = OffHeapRegion.allocate(initialTableSlots * 8L);
+    // Open addressing, an int per slot holding id + 1 (0 is an empty slot)
+    private OffHeapRegion table = OffHeapRegion.allocate(initialTableSlots * 4L);
+    private int tableSlots = initialTableSlots;
+    private int size;
+    private long usedBytes = headerBytes;
+
+    private OffHeapStringDictionary(OffHeapRegion entries) {
+        this.entries = entries;
+    }
+
+    // An empty dictionary in memory only
+    public static OffHeapStringDictionary allocate() {
+        OffHeapStringDictionary dictionary = new OffHeapStringDictionary(OffHeapRegion.allocate(initialCapacity));
+        dictionary.commit();
+        return dictionary;
+    }
+
+    // Maps the dictionary file, a new (empty) file starts an empty dictionary
+    public static OffHeapStringDictionary open(Path file) throws IOException {
+        OffHeapStringDictionary dictionary = new OffHeapStringDictionary(OffHeapRegion.map(file, initialCapacity));
+        try {
+            dictionary.readEntries(file);
+        } catch (IOException | RuntimeException e) {
+            dictionary.close();
+            throw e;
+        }
+        return dictionary;
+    }
+
+    // Returns the id of the string, adding it if it is new
+    public int getOrAdd(String value) {
+        byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        int slot = find(bytes);
+        int id = table.segment().getAtIndex(ValueLayout.JAVA_INT, slot) - 1;
+        if (id >= 0) {
+            return id;
+        }
+
+        long offset = usedBytes;
+        int length = bytes == null ? 0 : bytes.length;
+        entries.ensureCapacity(offset + 4 + length);
+        MemorySegment segment = entries.segment();
+        segment.set(ValueLayout.JAVA_INT_UNALIGNED, offset, bytes == null ? -1 : length);
+        if (length > 0) {
+            MemorySegment.copy(bytes, 0, segment, ValueLayout.JAVA_BYTE, offset + 4, length);
+        }
+        usedBytes = offset + 4 + length;
+        id = size++;
+        offsets.ensureCapacity(size * 8L);
+        offsets.segment().setAtIndex(ValueLayout.JAVA_LONG, id, offset);
+        table.segment().setAtIndex(ValueLayout.JAVA_INT, slot, id + 1);
+        if (size * 2L > tableSlots) {
+            rehash(tableSlots * 2);
+        }
+        return id;
+    }
+
+    // Returns the id of the string, or -1 if it isn't in the dictionary
+    public int getId(String value) {
+        byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        return table.segment().getAtIndex(ValueLayout.JAVA_INT, find(bytes)) - 1;
+    }
+
+    // Decodes the string, a new String every time
+    public String get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Id: " + id + ", Size: " + size);
+        }
+        long offset = offsets.segment().getAtIndex(ValueLayout.JAVA_LONG, id);
+        MemorySegment segment = entries.segment();
+        int length = segment.get(ValueLayout.JAVA_INT_UNALIGNED, offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, offset + 4, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Records the current entries in the header
+    public void commit() {
+        MemorySegment segment = entries.segment();
+        segment.set(ValueLayout.JAVA_INT, 0, magic);
+        segment.set(ValueLayout.JAVA_INT, 4, version);
+        segment.set(ValueLayout.JAVA_INT, 8, size);
+        segment.set(ValueLayout.JAVA_LONG, 16, usedBytes);
+    }
+
+    // Writes a mapped dictionary to the disk
+    public void force() {
+        entries.force();
+    }
+
+    // Drops every entry
+    public void clear() {
+        size = 0;
+        usedBytes = headerBytes;
+        table.segment().fill((byte) 0);
+        commit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            entries.close();
+        } finally {
+            offsets.close();
+            table.close();
+        }
+    }
+
+    // Rebuilds the offsets and the hash table from the committed entries of a mapped file
+    private void readEntries(Path file) throws IOException {
+        MemorySegment segment = entries.segment();
+        int fileMagic = segment.get(ValueLayout.JAVA_INT, 0);
+        if (fileMagic == 0) {
+            commit();
+            return;
+        }
+        int count = segment.get(ValueLayout.JAVA_INT, 8);
+        long end = segment.get(ValueLayout.JAVA_LONG, 16);
+        if (fileMagic != magic || segment.get(ValueLayout.JAVA_INT, 4) != version
+                || count < 0 || end < headerBytes || end > segment.byteSize()) {
+            throw new IOException(file + " is not a string dictionary");
+        }
+        rehash(Integer.highestOneBit(Math.max(count, initialTableSlots / 2)) * 4);
+        long offset = headerBytes;
+        for (int id = 0; id < count; id++) {
+            if (offset + 4 > end) {
+                throw new IOException(file + " is damaged at entry " + id);
+            }
+            int length = segment.get(ValueLayout.JAVA_INT_UNALIGNED, offset);
+            if (length < -1 || offset + 4 + Math.max(length, 0) > end) {
+                throw new IOException(file + " is damaged at entry " + id);
+            }
+            offsets.ensureCapacity((id + 1) * 8L);
+            offsets.segment().setAtIndex(ValueLayout.JAVA_LONG, id, offset);
+            size = id + 1;
+            insert(id);
+            offset += 4 + Math.max(length, 0);
+        }
+        if (offset != end) {
+            throw new IOException(file + " has " + (end - offset) + " bytes after its last entry");
+        }
+        usedBytes = end;
+    }
+
+    // Slot holding the string, or the empty slot where it would go
+    private int find(byte[] bytes) {
+        MemorySegment slots = table.segment();
+        int mask = tableSlots - 1;
+        int slot = mix(hash(bytes)) & mask;
+        while (true) {
+            int id = slots.getAtIndex(ValueLayout.JAVA_INT, slot) - 1;
+            if (id < 0 || matches(id, bytes)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean matches(int id, byte[] bytes) {
+        long offset = offsets.segment().getAtIndex(ValueLayout.JAVA_LONG, id);
+        MemorySegment segment = entries.segment();
+        int length = segment.get(ValueLayout.JAVA_INT_UNALIGNED, offset);
+        if (bytes == null || length < 0) {
+            return bytes == null && length < 0;
+        }
+        return length == bytes.length && MemorySegment.mismatch(segment, offset + 4, offset + 4 + length,
+                MemorySegment.ofArray(bytes), 0, length) == -1;
+    }
+
+    // Puts an entry that is already in the offsets table into the hash table
+    private void insert(int id) {
+        long offset = offsets.segment().getAtIndex(ValueLayout.JAVA_LONG, id);
+        MemorySegment segment = entries.segment();
+        int length = segment.get(ValueLayout.JAVA_INT_UNALIGNED, offset);
+        int hash = length < 0 ? 0 : hash(segment, offset + 4, length);
+        MemorySegment slots = table.segment();
+        int mask = tableSlots - 1;
+        int slot = mix(hash) & mask;
+        while (slots.getAtIndex(ValueLayout.JAVA_INT, slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.setAtIndex(ValueLayout.JAVA_INT, slot, id + 1);
+    }
+
+    private void rehash(int slots) {
+        OffHeapRegion old = table;
+        table = OffHeapRegion.allocate(slots * 4L);
+        tableSlots = slots;
+        for (int id = 0; id < size; id++) {
+            insert(id);
+        }
+        try {
+            old.close();
+        } catch (IOException e) {
+            // nothing to do, an allocated region has no file
+        }
+    }
+
+    // Same hash for the bytes of a string in a byte[] and in the entries
+    private static int hash(byte[] bytes) {
+        return bytes == null ? 0 : hash(MemorySegment.ofArray(bytes), 0, bytes.length);
+    }
+
+    private static int hash(MemorySegment segment, long offset, int length) {
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + segment.get(ValueLayout.JAVA_BYTE, offset + i);
+        }
+        return hash;
+    }
+
+    // Spreads the bits, the table only uses the low ones
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
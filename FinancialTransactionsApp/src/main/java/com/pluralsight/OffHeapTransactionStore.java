@@ -0,0 +1,446 @@
+package com.pluralsight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Stores the rows outside the Java heap in fixed width records, using the Foreign Function & Memory API
+// A row is epoch seconds and cents (longs) plus description and vendor ids (ints) into OffHeapStringDictionary,
+// 24 bytes. The heap only holds what a query returns, so hundreds of millions of rows don't give the garbage
+// collector more to trace.
+// allocate() keeps everything in memory. open() maps the rows and dictionaries from files in a directory, so
+// opening the ledger again maps them instead of parsing transactions.csv; only the lines appended to the csv
+// since the last flush are read. Like ColumnarTransactionStore, rows stay in the order they were added and
+// range queries scan the date column. Results still come sorted by date/time like TransactionList's: when
+// every row was added in time order they are already, otherwise each query sorts its matches.
+// Opening never prints anything, what it noticed is kept in getWarnings for the caller to show. A mapped store
+// holds a LedgerLock on its directory (rows.bin.lock) from open until close, so only one process writes the files.
+//
+// rows.bin: a 64 byte header (magic, version, row count, csv bytes and csv fingerprint the rows were read
+// from, whether the rows are in time order) and then the rows. The header is only written by flush(), after
+// the dictionaries are committed, so a file always opens with rows that match the csv bytes it records.
+// The file starts out sized for the csv file it is read from and doubles when it runs out of room
+public class OffHeapTransactionStore implements TransactionStore, Closeable {
+    private static final int magic = 0x4C524F57; // "LROW"
+    private static final int version = 2;
+    private static final long headerBytes = 64;
+    private static final long rowBytes = 24;
+    // One page, for an empty store
+    private static final long minCapacity = 4096;
+    // A little under the usual line length, so the rows of a csv file rarely outgrow the first guess
+    private static final long estimatedLineBytes = 40;
+
+    // Field offsets within a row
+    private static final long secondsOffset = 0;
+    private static final long centsOffset = 8;
+    private static final long descriptionOffset = 16;
+    private static final long vendorOffset = 20;
+
+    private final OffHeapRegion rows;
+    private final OffHeapStringDictionary descriptions;
+    private final OffHeapStringDictionary vendors;
+    // Null for a store that is only in memory
+    private final Path csvFile;
+    private long size;
+    private long csvBytes;
+    private long csvFingerprint;
+    // True while every row is at or after the one before it, so range results need no sorting
+    private boolean inTimeOrder = true;
+    private long lastSeconds = Long.MIN_VALUE;
+    // Problems noticed while opening, in the order they were found
+    private final List<String> warnings = new ArrayList<>();
+    // Lock on the directory of a mapped store, null for one that is only in memory
+    private LedgerLock directoryLock;
+
+    private OffHeapTransactionStore(OffHeapRegion rows, OffHeapStringDictionary descriptions,
+                                    OffHeapStringDictionary vendors, Path csvFile) {
+        this.rows = rows;
+        this.descriptions = descriptions;
+        this.vendors = vendors;
+        this.csvFile = csvFile;
+    }
+
+    // An empty store in memory only (the rows are in an Arena)
+    public static OffHeapTransactionStore allocate() {
+        return new OffHeapTransactionStore(OffHeapRegion.allocate(minCapacity),
+                OffHeapStringDictionary.allocate(), OffHeapStringDictionary.allocate(), null);
+    }
+
+    // Maps the store in the directory and brings it up to date with the csv file
+    // Starts over from an empty store when the files are missing or damaged, or the csv file no longer starts
+    // with the bytes the rows were read from
+    public static OffHeapTransactionStore open(String csvFile, String directory) throws IOException {
+        Path path = Path.of(directory);
+        Files.createDirectories(path);
+        LedgerLock lock = LedgerLock.acquire(path.resolve("rows.bin"));
+        OffHeapTransactionStore store;
+        try {
+            try {
+                store = map(Path.of(csvFile), path);
+            } catch (IOException e) {
+                deleteFiles(path);
+                store = map(Path.of(csvFile), path);
+                store.warnings.add(e.getMessage() + ", reading " + csvFile + " again.");
+            }
+        } catch (IOException | RuntimeException e) {
+            lock.close();
+            throw e;
+        }
+        store.directoryLock = lock;
+        try {
+            store.catchUp();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    // "transactions.offheap" next to "transactions.csv"
+    public static String defaultDirectory(String csvFile) {
+        Path path = Path.of(csvFile);
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return path.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".offheap").toString();
+    }
+
+    private static OffHeapTransactionStore map(Path csvFile, Path directory) throws IOException {
+        OffHeapRegion rows = OffHeapRegion.map(directory.resolve("rows.bin"), capacityFor(csvFile));
+        OffHeapStringDictionary descriptions = null;
+        OffHeapStringDictionary vendors = null;
+        try {
+            descriptions = OffHeapStringDictionary.open(directory.resolve("descriptions.bin"));
+            vendors = OffHeapStringDictionary.open(directory.resolve("vendors.bin"));
+            OffHeapTransactionStore store = new OffHeapTransactionStore(rows, descriptions, vendors, csvFile);
+            store.readHeader(directory);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            rows.close();
+            if (descriptions != null) {
+                descriptions.close();
+            }
+            if (vendors != null) {
+                vendors.close();
+            }
+            throw e;
+        }
+    }
+
+    // Room for the rows of the csv file, guessed from its size (an existing rows.bin keeps its own size)
+    private static long capacityFor(Path csvFile) throws IOException {
+        long csvSize = Files.exists(csvFile) ? Files.size(csvFile) : 0;
+        return Math.max(minCapacity, headerBytes + csvSize / estimatedLineBytes * rowBytes);
+    }
+
+    private static void deleteFiles(Path directory) throws IOException {
+        Files.deleteIfExists(directory.resolve("rows.bin"));
+        Files.deleteIfExists(directory.resolve("descriptions.bin"));
+        Files.deleteIfExists(directory.resolve("vendors.bin"));
+    }
+
+    //   === Adding ===
+
+    // Adds transaction as a new row
+    // Amounts are kept in whole cents, so anything past the second decimal is rounded
+    @Override
+    public synchronized void addTransaction(Transaction transaction) {
+        long offset = headerBytes + size * rowBytes;
+        rows.ensureCapacity(offset + rowBytes);
+        MemorySegment segment = rows.segment();
+        long seconds = transaction.getDateTime().toEpochSecond(ZoneOffset.UTC);
+        inTimeOrder &= seconds >= lastSeconds;
+        lastSeconds = Math.max(lastSeconds, seconds);
+        segment.set(ValueLayout.JAVA_LONG, offset + secondsOffset, seconds);
+        segment.set(ValueLayout.JAVA_LONG, offset + centsOffset, transaction.getAmountCents());
+        segment.set(ValueLayout.JAVA_INT, offset + descriptionOffset, descriptions.getOrAdd(transaction.getDescription()));
+        segment.set(ValueLayout.JAVA_INT, offset + vendorOffset, vendors.getOrAdd(transaction.getVendor()));
+        size++;
+    }
+
+    // Loads transactions from the file, appending them as rows
+    // Nothing is printed, the report of skipped lines is returned for the caller to show
+    public synchronized LoadReport loadTransactions(String file) throws IOException {
+        return new TransactionFileReader().read(Path.of(file), this::addTransaction);
+    }
+
+    // Records the rows in the file headers and writes them to the disk (for a mapped store)
+    public synchronized void flush() {
+        descriptions.commit();
+        vendors.commit();
+        descriptions.force();
+        vendors.force();
+        MemorySegment segment = rows.segment();
+        segment.set(ValueLayout.JAVA_INT, 0, magic);
+        segment.set(ValueLayout.JAVA_INT, 4, version);
+        segment.set(ValueLayout.JAVA_LONG, 8, size);
+        segment.set(ValueLayout.JAVA_LONG, 16, csvBytes);
+        segment.set(ValueLayout.JAVA_LONG, 24, csvFingerprint);
+        segment.set(ValueLayout.JAVA_LONG, 32, inTimeOrder ? lastSeconds : Long.MAX_VALUE);
+        rows.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            try {
+                rows.close();
+            } finally {
+                try {
+                    descriptions.close();
+                } finally {
+                    try {
+                        vendors.close();
+                    } finally {
+                        if (directoryLock != null) {
+                            directoryLock.close();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    // What opening noticed and worked around: files read again, skipped lines of the csv file
+    public synchronized List<String> getWarnings() {
+        return List.copyOf(warnings);
+    }
+
+    //   === Queries ===
+
+    // Gets all transactions as a read-only list, rows are turned into Transaction objects when accessed
+    @Override
+    public synchronized List<Transaction> getTransactions() {
+        int count = Math.toIntExact(size);
+        return new AbstractList<>() {
+            @Override
+            public Transaction get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+                }
+                synchronized (OffHeapTransactionStore.this) {
+                    return toTransaction(rows.segment(), index);
+                }
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    // Finds transactions within a date range (both dates included), sorted by date/time
+    @Override
+    public synchronized List<Transaction> getTransactions(LocalDate startDate, LocalDate endDate) {
+        List<Transaction> result = new ArrayList<>();
+        forEachTransaction(startDate, endDate, result::add);
+        return result;
+    }
+
+    public synchronized void forEachTransaction(LocalDate startDate, LocalDate endDate, Consumer<Transaction> action) {
+        searchTransactions(startDate, endDate, null, null, action);
+    }
+
+    // Finds transactions for a vendor (ignoring case)
+    @Override
+    public synchronized List<Transaction> getTransactionsByVendor(String vendor) {
+        List<Transaction> result = new ArrayList<>();
+        forEachByVendor(vendor, result::add);
+        return result;
+    }
+
+    // The vendor is compared once per distinct vendor, the rows only compare ids
+    public synchronized void forEachByVendor(String vendor, Consumer<Transaction> action) {
+        long startNanos = System.nanoTime();
+        boolean[] vendorMatches = new boolean[vendors.size()];
+        for (int id = 0; id < vendorMatches.length; id++) {
+            String value = vendors.get(id);
+            vendorMatches[id] = value != null && value.equalsIgnoreCase(vendor);
+        }
+        MemorySegment segment = rows.segment();
+        long count = 0;
+        for (long row = 0; row < size; row++) {
+            if (vendorMatches[segment.get(ValueLayout.JAVA_INT, headerBytes + row * rowBytes + vendorOffset)]) {
+                action.accept(toTransaction(segment, row));
+                count++;
+            }
+        }
+        LedgerMetrics.record("offheap.getTransactionsByVendor", startNanos, size, count);
+    }
+
+    @Override
+    public synchronized double getTotalTransactions(LocalDate startDate, LocalDate endDate) {
+        return getSummary(startDate, endDate).getTotal();
+    }
+
+    // Total, deposits, payments and count for a date range (null bounds mean open ended)
+    // Scans the date and amount fields without creating any objects
+    public synchronized RangeSummary getSummary(LocalDate startDate, LocalDate endDate) {
+        long startNanos = System.nanoTime();
+        long from = startDate == null ? Long.MIN_VALUE : TimeIndex.startOfDay(startDate);
+        long to = endDate == null ? Long.MAX_VALUE : TimeIndex.startOfDay(endDate.plusDays(1));
+        MemorySegment segment = rows.segment();
+        long total = 0;
+        long deposits = 0;
+        long payments = 0;
+        long count = 0;
+        long end = headerBytes + size * rowBytes;
+        for (long offset = headerBytes; offset < end; offset += rowBytes) {
+            long seconds = segment.get(ValueLayout.JAVA_LONG, offset + secondsOffset);
+            if (seconds < from || seconds >= to) {
+                continue;
+            }
+            long cents = segment.get(ValueLayout.JAVA_LONG, offset + centsOffset);
+            total += cents;
+            deposits += cents > 0 ? cents : 0;
+            payments += cents < 0 ? cents : 0;
+            count++;
+        }
+        LedgerMetrics.record("offheap.getSummary", startNanos, size, count);
+        return new RangeSummary(total, deposits, payments, count);
+    }
+
+    // Searches by optional criteria, null (or blank) criteria are skipped
+    @Override
+    public synchronized List<Transaction> searchTransactions(LocalDate startDate, LocalDate endDate,
+                                                            String description, String vendor) {
+        List<Transaction> result = new ArrayList<>();
+        searchTransactions(startDate, endDate, description, vendor, result::add);
+        return result;
+    }
+
+    // Description and vendor terms are matched once per distinct string instead of once per row
+    // Matches are passed on sorted by date/time. Unless every row was added in time order, they are collected
+    // in a TimeIndex first, which sorts them once when it is read
+    public synchronized void searchTransactions(LocalDate startDate, LocalDate endDate, String description,
+                                                String vendor, Consumer<Transaction> action) {
+        long startNanos = System.nanoTime();
+        long from = startDate == null ? Long.MIN_VALUE : TimeIndex.startOfDay(startDate);
+        long to = endDate == null ? Long.MAX_VALUE : TimeIndex.startOfDay(endDate.plusDays(1));
+        boolean[] descriptionMatches = containsMatches(descriptions, description);
+        boolean[] vendorMatches = containsMatches(vendors, vendor);
+
+        MemorySegment segment = rows.segment();
+        TimeIndex outOfOrder = inTimeOrder ? null : new TimeIndex();
+        long count = 0;
+        for (long row = 0; row < size; row++) {
+            long offset = headerBytes + row * rowBytes;
+            long seconds = segment.get(ValueLayout.JAVA_LONG, offset + secondsOffset);
+            if (seconds < from || seconds >= to) {
+                continue;
+            }
+            if (descriptionMatches != null
+                    && !descriptionMatches[segment.get(ValueLayout.JAVA_INT, offset + descriptionOffset)]) {
+                continue;
+            }
+            if (vendorMatches != null && !vendorMatches[segment.get(ValueLayout.JAVA_INT, offset + vendorOffset)]) {
+                continue;
+            }
+            if (outOfOrder != null) {
+                outOfOrder.insert(seconds, Math.toIntExact(row));
+            } else {
+                action.accept(toTransaction(segment, row));
+            }
+            count++;
+        }
+        for (int position = 0; outOfOrder != null && position < outOfOrder.size(); position++) {
+            action.accept(toTransaction(segment, outOfOrder.rowAt(position)));
+        }
+        LedgerMetrics.record("offheap.searchTransactions", startNanos, size, count);
+    }
+
+    // Marks which dictionary entries contain the term (ignoring case), null means "no filter"
+    private static boolean[] containsMatches(OffHeapStringDictionary dictionary, String term) {
+        if (term == null || term.isBlank()) {
+            return null;
+        }
+        String lowerTerm = term.toLowerCase();
+        boolean[] matches = new boolean[dictionary.size()];
+        for (int id = 0; id < matches.length; id++) {
+            String value = dictionary.get(id);
+            matches[id] = value != null && value.toLowerCase().contains(lowerTerm);
+        }
+        return matches;
+    }
+
+    // Builds a Transaction object from a row
+    private Transaction toTransaction(MemorySegment segment, long row) {
+        long offset = headerBytes + row * rowBytes;
+        return Transaction.ofCents(
+                LocalDateTime.ofEpochSecond(segment.get(ValueLayout.JAVA_LONG, offset + secondsOffset), 0, ZoneOffset.UTC),
+                descriptions.get(segment.get(ValueLayout.JAVA_INT, offset + descriptionOffset)),
+                vendors.get(segment.get(ValueLayout.JAVA_INT, offset + vendorOffset)),
+                segment.get(ValueLayout.JAVA_LONG, offset + centsOffset));
+    }
+
+    //   === Files ===
+
+    // Reads the row count and csv position of a mapped store, a new file is an empty store
+    private void readHeader(Path directory) throws IOException {
+        MemorySegment segment = rows.segment();
+        int fileMagic = segment.get(ValueLayout.JAVA_INT, 0);
+        if (fileMagic == 0) {
+            return;
+        }
+        long count = segment.get(ValueLayout.JAVA_LONG, 8);
+        if (fileMagic != magic || segment.get(ValueLayout.JAVA_INT, 4) != version
+                || count < 0 || headerBytes + count * rowBytes > segment.byteSize()) {
+            throw new IOException(directory.resolve("rows.bin") + " is not a row file");
+        }
+        size = count;
+        csvBytes = segment.get(ValueLayout.JAVA_LONG, 16);
+        csvFingerprint = segment.get(ValueLayout.JAVA_LONG, 24);
+        // The last date/time of rows in time order, Long.MAX_VALUE when they aren't
+        long orderedUpTo = segment.get(ValueLayout.JAVA_LONG, 32);
+        inTimeOrder = orderedUpTo != Long.MAX_VALUE;
+        lastSeconds = orderedUpTo;
+    }
+
+    // Adds the csv lines appended since the last flush
+    // A csv file that was rewritten (compacted or edited) since is read again from the start
+    private void catchUp() throws IOException {
+        if (csvBytes > 0 && (!Files.exists(csvFile) || Files.size(csvFile) < csvBytes
+                || LedgerSnapshot.fingerprint(csvFile, csvBytes) != csvFingerprint)) {
+            warnings.add(csvFile + " changed since the off-heap rows were written, reading it again.");
+            size = 0;
+            csvBytes = 0;
+            inTimeOrder = true;
+            lastSeconds = Long.MIN_VALUE;
+            descriptions.clear();
+            vendors.clear();
+        }
+        if (!Files.exists(csvFile)) {
+            flush();
+            return;
+        }
+        long end = LedgerSnapshot.endOfLastLine(csvFile);
+        if (end == csvBytes) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        // Only up to end, which is what the header will claim; lines appended meanwhile are read next time
+        LoadReport report = new TransactionFileReader().read(csvFile, csvBytes, end, this::addTransaction);
+        csvBytes = end;
+        csvFingerprint = LedgerSnapshot.fingerprint(csvFile, end);
+        flush();
+        LedgerMetrics.record("offheap.catchUp", startNanos, report.getLoadedCount() + report.getMalformedCount(),
+                report.getLoadedCount());
+        warnings.addAll(report.getSummaryLines(10));
+    }
+}
@@ -0,0 +1,62 @@
+package com.pluralsight;
+
+// Sums the amounts of the rows whose date/time falls in a window, in one pass over the columns
+// Gives the total, the deposits, the payments and the count together, like DailyTotals does for TransactionList.
+// When the JVM runs with --add-modules jdk.incubator.vector the work is done by VectorRangeSumKernel,
+// which compares and adds several rows per instruction. Otherwise (or with -Dledger.vector=false)
+// the plain loop below is used, both give exactly the same result.
+// Only ColumnarTransactionStore sums with it: the command line's --columnar option (report summaries) and the
+// JMH benchmarks. The interactive app and the default command line store run on TransactionList, whose range
+// totals come from DailyTotals in O(log n) and whose filtered summaries visit Transaction objects, so their
+// reports don't get faster from this kernel
+public class RangeSumKernel {
+    private static final boolean vectorAvailable = checkVectorAvailable();
+
+    private RangeSumKernel() {}
+
+    // Sums the rows 0 to size - 1 with from <= epochSeconds[row] < to
+    public static RangeSummary sum(long[] epochSeconds, long[] amountCents, int size, long from, long to) {
+        if (vectorAvailable) {
+            return VectorRangeSumKernel.sum(epochSeconds, amountCents, size, from, to);
+        }
+        return scalarSum(epochSeconds, amountCents, 0, size, from, to);
+    }
+
+    // True when the vector kernel is used
+    public static boolean isVectorized() {
+        return vectorAvailable;
+    }
+
+    // Plain loop, also used by the vector kernel for the rows left over after the last full vector
+    // The sign checks are written as additions so the JIT can turn them into conditional moves
+    static RangeSummary scalarSum(long[] epochSeconds, long[] amountCents, int start, int end, long from, long to) {
+        long total = 0;
+        long deposits = 0;
+        long payments = 0;
+        long count = 0;
+        for (int row = start; row < end; row++) {
+            long seconds = epochSeconds[row];
+            if (seconds >= from && seconds < to) {
+                long cents = amountCents[row];
+                total += cents;
+                deposits += cents > 0 ? cents : 0;
+                payments += cents < 0 ? cents : 0;
+                count++;
+            }
+        }
+        return new RangeSummary(total, deposits, payments, count);
+    }
+
+    // The incubator module has to be added to the boot layer, the vector class can't even be loaded otherwise
+    private static boolean checkVectorAvailable() {
+        if (!Boolean.parseBoolean(System.getProperty("ledger.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorRangeSumKernel.laneCount() > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
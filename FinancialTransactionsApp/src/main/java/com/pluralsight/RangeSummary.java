@@ -0,0 +1,45 @@
+package com.pluralsight;
+
+// Totals for a date range: everything together, deposits only, payments only and the number of transactions
+// Amounts are in cents so totals over long ranges stay exact
+public class RangeSummary {
+    private final long totalCents;
+    private final long depositCents;
+    private final long paymentCents;
+    private final long count;
+
+    public RangeSummary(long totalCents, long depositCents, long paymentCents, long count) {
+        this.totalCents = totalCents;
+        this.depositCents = depositCents;
+        this.paymentCents = paymentCents;
+        this.count = count;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    // Sum of the positive amounts
+    public long getDepositCents() {
+        return depositCents;
+    }
+
+    // Sum of the negative amounts (so it is zero or negative)
+    public long getPaymentCents() {
+        return paymentCents;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getTotal() {
+        return Money.toDouble(totalCents);
+    }
+
+    @Override
+    public String toString() {
+        return "total=" + Money.format(totalCents) + " deposits=" + Money.format(depositCents)
+                + " payments=" + Money.format(paymentCents) + " count=" + count;
+    }
+}
@@ -0,0 +1,178 @@
+package com.pluralsight;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Keeps the rows and totals of recently shown date range reports (month to date, previous month, ...)
+// so showing the same report again doesn't visit the ledger.
+// Reports are keyed by their first and last day. An open period like month to date gets a new key when the
+// day changes, so a report is never served for the wrong range after midnight; the old one simply ages out.
+// Added transactions keep the cached reports up to date: one that is at or after the last row of a report
+// (the usual case, new transactions are the newest) is appended to it, a back-dated one drops the report
+// so it is built again the next time it is shown.
+// At most maxReports reports and maxRows rows in total are kept, the least recently shown go first
+public class ReportCache {
+    // Rows and totals of one date range, neither changes after it is handed out
+    public static class Report {
+        private final List<Transaction> transactions;
+        private final RangeSummary summary;
+
+        private Report(List<Transaction> transactions, RangeSummary summary) {
+            this.transactions = transactions;
+            this.summary = summary;
+        }
+
+        // Sorted by date/time
+        public List<Transaction> getTransactions() {
+            return transactions;
+        }
+
+        public RangeSummary getSummary() {
+            return summary;
+        }
+    }
+
+    // A cached report that grows as transactions are added
+    public static class Entry {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final ChunkedRows rows = new ChunkedRows();
+        private long lastKey = Long.MIN_VALUE;
+        private long totalCents;
+        private long depositCents;
+        private long paymentCents;
+        // The current rows and totals, replaced after every append
+        private Report report;
+
+        private Entry(LocalDate startDate, LocalDate endDate) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        private boolean covers(LocalDate date) {
+            return !date.isBefore(startDate) && !date.isAfter(endDate);
+        }
+
+        private void append(Transaction transaction) {
+            rows.add(transaction);
+            lastKey = TimeIndex.toKey(transaction.getDateTime());
+            long cents = transaction.getAmountCents();
+            totalCents += cents;
+            depositCents += cents > 0 ? cents : 0;
+            paymentCents += cents < 0 ? cents : 0;
+        }
+
+        private void publish() {
+            report = new Report(rows.view(), new RangeSummary(totalCents, depositCents, paymentCents, rows.size()));
+        }
+    }
+
+    private final int maxReports;
+    private final long maxRows;
+    // Access order, so the first entry is the least recently used
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRows;
+
+    public ReportCache(int maxReports, long maxRows) {
+        this.maxReports = maxReports;
+        this.maxRows = maxRows;
+    }
+
+    // The cached report for the range, or null when it isn't cached
+    public synchronized Report get(LocalDate startDate, LocalDate endDate) {
+        Entry entry = entries.get(key(startDate, endDate));
+        return entry == null ? null : entry.report;
+    }
+
+    // Builds a report from the rows of the range, which rangeRows passes on in date/time order
+    // Doesn't touch the cache, so it can run on a TransactionList view without holding any lock
+    public static Entry build(LocalDate startDate, LocalDate endDate, Consumer<Consumer<Transaction>> rangeRows) {
+        Entry entry = new Entry(startDate, endDate);
+        rangeRows.accept(entry::append);
+        entry.publish();
+        return entry;
+    }
+
+    // Caches a built report and returns its rows and totals
+    // addedSince holds the transactions added after the rows the report was built from, in the order they
+    // were added; they are caught up the same way add does. No transaction may be added while this runs
+    // (TransactionList holds its read lock). A back-dated one among them leaves the report uncached
+    public synchronized Report put(Entry entry, List<Transaction> addedSince) {
+        Report built = entry.report;
+        for (Transaction transaction : addedSince) {
+            if (!entry.covers(transaction.getDateTime().toLocalDate())) {
+                continue;
+            }
+            if (TimeIndex.toKey(transaction.getDateTime()) < entry.lastKey) {
+                return built;
+            }
+            entry.append(transaction);
+        }
+        entry.publish();
+        if (entry.rows.size() > maxRows) {
+            return entry.report;
+        }
+        LocalDate startDate = entry.startDate;
+        LocalDate endDate = entry.endDate;
+        Entry replaced = entries.put(key(startDate, endDate), entry);
+        if (replaced != null) {
+            cachedRows -= replaced.rows.size();
+        }
+        cachedRows += entry.rows.size();
+        evict();
+        return entry.report;
+    }
+
+    // Brings the cached reports up to date with a transaction that was just added
+    public synchronized void add(Transaction transaction) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        LocalDate date = transaction.getDateTime().toLocalDate();
+        long key = TimeIndex.toKey(transaction.getDateTime());
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.covers(date)) {
+                continue;
+            }
+            if (key >= entry.lastKey) {
+                entry.append(transaction);
+                entry.publish();
+                cachedRows++;
+            } else {
+                // Would go somewhere in the middle of the report, it gets built again instead
+                iterator.remove();
+                cachedRows -= entry.rows.size();
+            }
+        }
+        evict();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedRows = 0;
+    }
+
+    // Number of cached reports
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Drops the least recently used reports until both limits are met
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && (entries.size() > maxReports || cachedRows > maxRows)) {
+            cachedRows -= iterator.next().getValue().rows.size();
+            iterator.remove();
+        }
+    }
+
+    private static String key(LocalDate startDate, LocalDate endDate) {
+        return startDate + ".." + endDate;
+    }
+}
@@ -0,0 +1,800 @@
+package com.pluralsight;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+// The ledger split into one file per month (or year), so a query only reads the periods it covers
+// The segments live in a directory next to transactions.csv, one file per period in the same line format,
+// plus manifest.txt with the period, line count, byte length and totals of every segment.
+// Opening the ledger only reads the manifest: a segment is loaded into its own TransactionList (with its
+// time/vendor indexes) the first time a query touches it, and the least recently used ones are dropped once
+// more than maxLoadedSegments are loaded. Totals over whole periods come from the manifest without loading.
+//
+// Closed periods can be compressed (compressColdSegments): their rows move into a CompressedSegment block file,
+// and a range query only inflates the blocks it overlaps, into a block cache of at most maxCachedBlockRows rows.
+// Rows added to a compressed period later go to its plain file again until it is compressed the next time.
+// Periods with less than minCompressBytes of plain lines stay plain, their blocks would hardly be smaller.
+//
+// transactions.csv stays the ledger of record and is never shortened, so compression shrinks the segment
+// directory but not the ledger's total footprint. The manifest remembers how many of its bytes are already in the
+// segments, and opening catches up on the lines appended since (the same way LedgerSnapshot replays the
+// journal). If the csv file was replaced or rewritten in a different way, the segments are built again.
+// Methods are synchronized, the store is meant for the command line and other single readers. While it is open
+// it holds a LedgerLock on the directory (manifest.txt.lock), so a second process can't rewrite the same segments.
+// Only LedgerCli's --segments option uses it, the interactive app and the HTTP service keep the whole ledger
+// in a TransactionList. Opening never prints anything: what it noticed (a rebuilt manifest, skipped csv
+// lines) is kept in getWarnings for the caller to show
+public class SegmentedLedger implements TransactionStore, Closeable {
+    // How the ledger is partitioned into segments
+    public enum Period {
+        MONTH,
+        YEAR;
+
+        // First day of the period containing the date
+        public LocalDate start(LocalDate date) {
+            return this == MONTH ? date.withDayOfMonth(1) : date.withDayOfYear(1);
+        }
+
+        // Last day of the period starting on start
+        public LocalDate end(LocalDate start) {
+            return this == MONTH ? start.with(TemporalAdjusters.lastDayOfMonth())
+                    : start.with(TemporalAdjusters.lastDayOfYear());
+        }
+
+        // Segment name, "2025-04" for a month and "2025" for a year
+        public String name(LocalDate start) {
+            return this == MONTH ? start.toString().substring(0, 7) : String.valueOf(start.getYear());
+        }
+    }
+
+    // Manifest entry of one segment
+    public static class SegmentInfo {
+        private final String name;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private long count;
+        private long bytes;
+        // Size of the compressed block file, 0 while the period has none
+        private long blocksBytes;
+        private long totalCents;
+        private long depositCents;
+        private long paymentCents;
+
+        private SegmentInfo(String name, LocalDate startDate, LocalDate endDate) {
+            this.name = name;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LocalDate getStartDate() {
+            return startDate;
+        }
+
+        public LocalDate getEndDate() {
+            return endDate;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        // Bytes in the plain (csv) segment file
+        public long getPlainBytes() {
+            return bytes;
+        }
+
+        // Bytes in the compressed block file
+        public long getCompressedBytes() {
+            return blocksBytes;
+        }
+
+        public RangeSummary getSummary() {
+            return new RangeSummary(totalCents, depositCents, paymentCents, count);
+        }
+
+        // The period overlaps the range, null dates leave that side open
+        private boolean overlaps(LocalDate from, LocalDate to) {
+            return (from == null || !endDate.isBefore(from)) && (to == null || !startDate.isAfter(to));
+        }
+
+        // The whole period is inside the range
+        private boolean isInside(LocalDate from, LocalDate to) {
+            return (from == null || !startDate.isBefore(from)) && (to == null || !endDate.isAfter(to));
+        }
+    }
+
+    private static final String manifestFile = "manifest.txt";
+    private static final String manifestHeader = "ledger-segments|2";
+    private static final int defaultMaxLoadedSegments = 12;
+    private static final int defaultMaxCachedBlockRows = 256 * 1024;
+    // Segments written to at the same time (appends are usually in date order, so this is rarely reached)
+    private static final int maxOpenWriters = 16;
+    // About one compressed block, below that the index and trailer eat most of what compression saves
+    private static final long minCompressBytes = 64 * 1024;
+
+    private final Path csvFile;
+    private final Path directory;
+    private final Period period;
+    private final int maxLoadedSegments;
+    private final int maxCachedBlockRows;
+    // Manifest entries by start date, so iterating them goes in date order
+    private final TreeMap<LocalDate, SegmentInfo> segments = new TreeMap<>();
+    // Segments loaded into memory, in access order for the LRU eviction
+    private final LinkedHashMap<String, TransactionList> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, OutputStream> writers = new LinkedHashMap<>(16, 0.75f, true);
+    // Block indexes of the compressed segments read so far, they are small and kept
+    private final Map<String, CompressedSegment> blockIndexes = new HashMap<>();
+    // Inflated blocks ("2024-01#3"), in access order for the LRU eviction
+    private final LinkedHashMap<String, Transaction[]> blockCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBlockRows;
+    private long blockReads;
+    private long csvBytes;
+    private long csvFingerprint;
+    private boolean manifestChanged;
+    private long segmentLoads;
+    // Problems noticed while opening, in the order they were found
+    private final List<String> warnings = new ArrayList<>();
+    // Held from open until close
+    private LedgerLock directoryLock;
+
+    private SegmentedLedger(Path csvFile, Path directory, Period period, int maxLoadedSegments, int maxCachedBlockRows) {
+        this.csvFile = csvFile;
+        this.directory = directory;
+        this.period = period;
+        this.maxLoadedSegments = maxLoadedSegments;
+        this.maxCachedBlockRows = maxCachedBlockRows;
+    }
+
+    // Opens the segments in the directory and brings them up to date with the csv file
+    // Builds them from scratch when there is no manifest, it was written with another period,
+    // or the csv file no longer starts with the bytes the segments were built from
+    public static SegmentedLedger open(String csvFile, String directory, Period period) throws IOException {
+        SegmentedLedger ledger = new SegmentedLedger(Path.of(csvFile), Path.of(directory), period,
+                Integer.getInteger("ledger.segmentCache", defaultMaxLoadedSegments),
+                Integer.getInteger("ledger.blockCache", defaultMaxCachedBlockRows));
+        Files.createDirectories(ledger.directory);
+        ledger.directoryLock = LedgerLock.acquire(ledger.directory.resolve(manifestFile));
+        try {
+            if (!ledger.readManifest()) {
+                ledger.clearSegments();
+            }
+            ledger.catchUp();
+        } catch (IOException | RuntimeException e) {
+            ledger.directoryLock.close();
+            throw e;
+        }
+        return ledger;
+    }
+
+    // "transactions.segments" next to "transactions.csv"
+    public static String defaultDirectory(String csvFile) {
+        Path path = Path.of(csvFile);
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return path.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".segments").toString();
+    }
+
+    //   === Queries ===
+
+    @Override
+    public synchronized List<Transaction> getTransactions() {
+        return getTransactions(null, null);
+    }
+
+    // Only the segments overlapping the range are loaded. They are visited in date order and don't overlap,
+    // so the result is sorted by date/time like TransactionList's
+    @Override
+    public synchronized List<Transaction> getTransactions(LocalDate startDate, LocalDate endDate) {
+        List<Transaction> result = new ArrayList<>();
+        forEachTransaction(startDate, endDate, result::add);
+        return result;
+    }
+
+    public synchronized void forEachTransaction(LocalDate startDate, LocalDate endDate, Consumer<Transaction> action) {
+        long startNanos = System.nanoTime();
+        long count = 0;
+        for (SegmentInfo info : overlapping(startDate, endDate)) {
+            count += forEachInSegment(info, startDate, endDate, action);
+        }
+        LedgerMetrics.record("segments.getTransactions", startNanos, count, count);
+    }
+
+    // A vendor can be in any period, so every segment is visited (one loaded segment at a time)
+    // The results come period by period, in the order they were added within a period
+    @Override
+    public synchronized List<Transaction> getTransactionsByVendor(String vendor) {
+        List<Transaction> result = new ArrayList<>();
+        forEachByVendor(vendor, result::add);
+        return result;
+    }
+
+    public synchronized void forEachByVendor(String vendor, Consumer<Transaction> action) {
+        for (SegmentInfo info : segments.values()) {
+            if (info.blocksBytes == 0) {
+                segment(info).forEachByVendor(vendor, action);
+            } else if (vendor != null) {
+                forEachInSegment(info, null, null, transaction -> {
+                    if (vendor.equalsIgnoreCase(transaction.getVendor())) {
+                        action.accept(transaction);
+                    }
+                });
+            }
+        }
+    }
+
+    @Override
+    public synchronized double getTotalTransactions(LocalDate startDate, LocalDate endDate) {
+        return getSummary(startDate, endDate).getTotal();
+    }
+
+    // Totals of whole periods inside the range come from the manifest, only the periods the range
+    // starts or ends in are loaded (or, for compressed periods, only the blocks the range starts or ends in)
+    public synchronized RangeSummary getSummary(LocalDate startDate, LocalDate endDate) {
+        long startNanos = System.nanoTime();
+        long totalCents = 0;
+        long depositCents = 0;
+        long paymentCents = 0;
+        long count = 0;
+        for (SegmentInfo info : overlapping(startDate, endDate)) {
+            RangeSummary summary = info.isInside(startDate, endDate)
+                    ? info.getSummary()
+                    : summarizeSegment(info, startDate, endDate);
+            totalCents += summary.getTotalCents();
+            depositCents += summary.getDepositCents();
+            paymentCents += summary.getPaymentCents();
+            count += summary.getCount();
+        }
+        LedgerMetrics.record("segments.getSummary", startNanos, 0, 1);
+        return new RangeSummary(totalCents, depositCents, paymentCents, count);
+    }
+
+    @Override
+    public synchronized List<Transaction> searchTransactions(LocalDate startDate, LocalDate endDate, String description, String vendor) {
+        List<Transaction> results = new ArrayList<>();
+        searchTransactions(startDate, endDate, description, vendor, results::add);
+        return results;
+    }
+
+    public synchronized void searchTransactions(LocalDate startDate, LocalDate endDate, String description, String vendor,
+                                                Consumer<Transaction> action) {
+        String lowerDescription = (description != null && !description.isBlank()) ? description.toLowerCase() : null;
+        String lowerVendor = (vendor != null && !vendor.isBlank()) ? vendor.toLowerCase() : null;
+        for (SegmentInfo info : overlapping(startDate, endDate)) {
+            if (info.blocksBytes == 0) {
+                segment(info).searchTransactions(startDate, endDate, description, vendor, action);
+                continue;
+            }
+            forEachInSegment(info, startDate, endDate, transaction -> {
+                if (TransactionList.matchesText(transaction, lowerDescription, lowerVendor)) {
+                    action.accept(transaction);
+                }
+            });
+        }
+    }
+
+    // Manifest entries in date order
+    public synchronized List<SegmentInfo> getSegments() {
+        return new ArrayList<>(segments.values());
+    }
+
+    public synchronized int getLoadedSegmentCount() {
+        return loaded.size();
+    }
+
+    // How many times a segment file was read, counting reloads after eviction
+    public synchronized long getSegmentLoads() {
+        return segmentLoads;
+    }
+
+    // How many compressed blocks were inflated, counting reads after eviction from the block cache
+    public synchronized long getBlockReads() {
+        return blockReads;
+    }
+
+    // What opening noticed and worked around: segments built again, skipped lines of the csv file
+    public synchronized List<String> getWarnings() {
+        return List.copyOf(warnings);
+    }
+
+    //   === Compression ===
+
+    // Moves the rows of the closed periods (those ending before the period of today) into compressed block
+    // files. A period that was compressed before and got rows added since is compressed again with them.
+    // Periods (or added rows) with less than minCompressBytes of plain lines are left as they are.
+    // Returns how many periods were compressed
+    public synchronized int compressColdSegments(LocalDate today) throws IOException {
+        LocalDate currentStart = period.start(today);
+        int compressed = 0;
+        for (SegmentInfo info : segments.values()) {
+            if (!info.endDate.isBefore(currentStart) || info.bytes < minCompressBytes) {
+                continue;
+            }
+            long startNanos = System.nanoTime();
+            List<Transaction> rows = new ArrayList<>((int) info.count);
+            forEachInSegment(info, null, null, rows::add);
+
+            Path temp = directory.resolve(info.name + ".blocks.tmp");
+            CompressedSegment.write(temp, rows);
+            try {
+                Files.move(temp, blocksFile(info), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, blocksFile(info), StandardCopyOption.REPLACE_EXISTING);
+            }
+            dropCached(info);
+            info.blocksBytes = Files.size(blocksFile(info));
+            info.bytes = 0;
+            // The manifest goes first: if the app stops before the plain file is emptied, opening cuts it
+            // back to the 0 bytes the manifest records
+            writeManifest();
+            try (FileChannel channel = FileChannel.open(segmentFile(info), StandardOpenOption.WRITE)) {
+                channel.truncate(0);
+            }
+            LedgerMetrics.record("segments.compress", startNanos, rows.size(), rows.size());
+            compressed++;
+        }
+        return compressed;
+    }
+
+    //   === Adding ===
+
+    // Appends the transaction to the segment of its period (and to that segment in memory, if it is loaded)
+    // The segment files are derived from transactions.csv: to keep a transaction, append it to the csv file
+    // (TransactionJournal) and the segments pick it up when they are opened next time
+    @Override
+    public synchronized void addTransaction(Transaction transaction) {
+        LocalDate start = period.start(transaction.getDateTime().toLocalDate());
+        SegmentInfo info = segments.get(start);
+        if (info == null) {
+            info = new SegmentInfo(period.name(start), start, period.end(start));
+            segments.put(start, info);
+        }
+        byte[] line = (transaction.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            writer(info).write(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long cents = transaction.getAmountCents();
+        info.count++;
+        info.bytes += line.length;
+        info.totalCents += cents;
+        info.depositCents += cents > 0 ? cents : 0;
+        info.paymentCents += cents < 0 ? cents : 0;
+        manifestChanged = true;
+
+        TransactionList segment = loaded.get(info.name);
+        if (segment != null) {
+            segment.addTransaction(transaction);
+        }
+    }
+
+    // Writes the buffered segment lines and the manifest
+    public synchronized void flush() throws IOException {
+        closeWriters();
+        if (manifestChanged) {
+            writeManifest();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+            loaded.clear();
+        } finally {
+            directoryLock.close();
+        }
+    }
+
+    //   === Segments ===
+
+    // Passes the rows of one segment within the range to the action, sorted by date/time
+    // Rows added to a compressed period after it was compressed are in its plain file and get merged in
+    private long forEachInSegment(SegmentInfo info, LocalDate startDate, LocalDate endDate, Consumer<Transaction> action) {
+        if (info.blocksBytes == 0) {
+            return segment(info).forEachTransaction(startDate, endDate, 0, Integer.MAX_VALUE, action);
+        }
+        if (info.bytes == 0) {
+            return forEachInBlocks(info, startDate, endDate, action);
+        }
+        List<Transaction> rows = new ArrayList<>();
+        forEachInBlocks(info, startDate, endDate, rows::add);
+        segment(info).forEachTransaction(startDate, endDate, 0, Integer.MAX_VALUE, rows::add);
+        rows.sort(Comparator.comparing(Transaction::getDateTime));
+        rows.forEach(action);
+        return rows.size();
+    }
+
+    // Inflates only the blocks overlapping the range
+    private long forEachInBlocks(SegmentInfo info, LocalDate startDate, LocalDate endDate, Consumer<Transaction> action) {
+        CompressedSegment blocks = blockIndex(info);
+        long fromKey = startDate == null ? Long.MIN_VALUE : TimeIndex.startOfDay(startDate);
+        long toKey = endDate == null ? Long.MAX_VALUE : TimeIndex.startOfDay(endDate.plusDays(1));
+        long count = 0;
+        for (int block = 0; block < blocks.getBlockCount(); block++) {
+            if (!blocks.overlaps(block, fromKey, toKey)) {
+                continue;
+            }
+            for (Transaction transaction : block(info, blocks, block)) {
+                long key = TimeIndex.toKey(transaction.getDateTime());
+                if (key >= fromKey && key < toKey) {
+                    action.accept(transaction);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Totals of the part of a segment within the range
+    // Blocks fully inside the range are answered from the block index
+    private RangeSummary summarizeSegment(SegmentInfo info, LocalDate startDate, LocalDate endDate) {
+        if (info.blocksBytes == 0) {
+            return segment(info).getSummary(startDate, endDate);
+        }
+        CompressedSegment blocks = blockIndex(info);
+        long fromKey = startDate == null ? Long.MIN_VALUE : TimeIndex.startOfDay(startDate);
+        long toKey = endDate == null ? Long.MAX_VALUE : TimeIndex.startOfDay(endDate.plusDays(1));
+        long[] totals = new long[4]; // total, deposits, payments, count
+        for (int block = 0; block < blocks.getBlockCount(); block++) {
+            if (blocks.isInside(block, fromKey, toKey)) {
+                RangeSummary summary = blocks.getSummary(block);
+                totals[0] += summary.getTotalCents();
+                totals[1] += summary.getDepositCents();
+                totals[2] += summary.getPaymentCents();
+                totals[3] += summary.getCount();
+            } else if (blocks.overlaps(block, fromKey, toKey)) {
+                for (Transaction transaction : block(info, blocks, block)) {
+                    long key = TimeIndex.toKey(transaction.getDateTime());
+                    if (key >= fromKey && key < toKey) {
+                        long cents = transaction.getAmountCents();
+                        totals[0] += cents;
+                        totals[1] += cents > 0 ? cents : 0;
+                        totals[2] += cents < 0 ? cents : 0;
+                        totals[3]++;
+                    }
+                }
+            }
+        }
+        if (info.bytes > 0) {
+            RangeSummary tail = segment(info).getSummary(startDate, endDate);
+            totals[0] += tail.getTotalCents();
+            totals[1] += tail.getDepositCents();
+            totals[2] += tail.getPaymentCents();
+            totals[3] += tail.getCount();
+        }
+        return new RangeSummary(totals[0], totals[1], totals[2], totals[3]);
+    }
+
+    private CompressedSegment blockIndex(SegmentInfo info) {
+        CompressedSegment blocks = blockIndexes.get(info.name);
+        if (blocks == null) {
+            try {
+                blocks = CompressedSegment.open(blocksFile(info));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            blockIndexes.put(info.name, blocks);
+        }
+        return blocks;
+    }
+
+    // An inflated block from the block cache, reading it (and dropping the least recently used blocks) when needed
+    private Transaction[] block(SegmentInfo info, CompressedSegment blocks, int block) {
+        String key = info.name + "#" + block;
+        Transaction[] rows = blockCache.get(key);
+        if (rows != null) {
+            return rows;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            rows = blocks.readBlock(block);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LedgerMetrics.record("segments.readBlock", startNanos, rows.length, rows.length);
+        blockReads++;
+        blockCache.put(key, rows);
+        cachedBlockRows += rows.length;
+        Iterator<Transaction[]> iterator = blockCache.values().iterator();
+        while (cachedBlockRows > maxCachedBlockRows && blockCache.size() > 1) {
+            cachedBlockRows -= iterator.next().length;
+            iterator.remove();
+        }
+        return rows;
+    }
+
+    // Forgets everything kept in memory for a segment whose files are being rewritten
+    // Its open writer is closed too: the rows it still buffers are already in the rewritten files,
+    // and writing them out later would add them to the plain file a second time
+    private void dropCached(SegmentInfo info) throws IOException {
+        OutputStream writer = writers.remove(info.name);
+        if (writer != null) {
+            writer.close();
+        }
+        loaded.remove(info.name);
+        blockIndexes.remove(info.name);
+        Iterator<Map.Entry<String, Transaction[]>> iterator = blockCache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Transaction[]> entry = iterator.next();
+            if (entry.getKey().startsWith(info.name + "#")) {
+                cachedBlockRows -= entry.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private List<SegmentInfo> overlapping(LocalDate startDate, LocalDate endDate) {
+        List<SegmentInfo> result = new ArrayList<>();
+        LocalDate from = startDate == null ? null : period.start(startDate);
+        Iterable<SegmentInfo> candidates = from == null ? segments.values() : segments.tailMap(from, true).values();
+        for (SegmentInfo info : candidates) {
+            if (endDate != null && info.startDate.isAfter(endDate)) {
+                break;
+            }
+            if (info.count > 0 && info.overlaps(startDate, endDate)) {
+                result.add(info);
+            }
+        }
+        return result;
+    }
+
+    // The segment in memory, loading it (and dropping the least recently used one) when needed
+    private TransactionList segment(SegmentInfo info) {
+        TransactionList segment = loaded.get(info.name);
+        if (segment != null) {
+            return segment;
+        }
+        try {
+            OutputStream writer = writers.remove(info.name);
+            if (writer != null) {
+                writer.close();
+            }
+            long startNanos = System.nanoTime();
+            segment = new TransactionList();
+            Path file = segmentFile(info);
+            if (Files.exists(file)) {
+                new TransactionFileReader().read(file, segment::addTransaction);
+            }
+            LedgerMetrics.record("segments.load", startNanos, info.count, info.count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segmentLoads++;
+        loaded.put(info.name, segment);
+        Iterator<TransactionList> iterator = loaded.values().iterator();
+        while (loaded.size() > maxLoadedSegments && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        return segment;
+    }
+
+    private OutputStream writer(SegmentInfo info) throws IOException {
+        OutputStream writer = writers.get(info.name);
+        if (writer == null) {
+            if (writers.size() == maxOpenWriters) {
+                Iterator<OutputStream> eldest = writers.values().iterator();
+                eldest.next().close();
+                eldest.remove();
+            }
+            writer = new BufferedOutputStream(Files.newOutputStream(segmentFile(info), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND), 16 * 1024);
+            writers.put(info.name, writer);
+        }
+        return writer;
+    }
+
+    private void closeWriters() throws IOException {
+        IOException error = null;
+        for (OutputStream writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        writers.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // Segment files are named after their period ("2025-04.csv" or "2025.csv"), other files are left alone
+    private static boolean isSegmentFile(Path file) {
+        return file.getFileName().toString().matches("\\d{4}(-\\d{2})?\\.csv");
+    }
+
+    private static boolean isBlocksFile(Path file) {
+        return file.getFileName().toString().matches("\\d{4}(-\\d{2})?\\.blocks");
+    }
+
+    private Path segmentFile(SegmentInfo info) {
+        return directory.resolve(info.name + ".csv");
+    }
+
+    private Path blocksFile(SegmentInfo info) {
+        return directory.resolve(info.name + ".blocks");
+    }
+
+    // Adds the csv lines appended since the segments were last written, then saves the manifest
+    private void catchUp() throws IOException {
+        if (!Files.exists(csvFile)) {
+            return;
+        }
+        long end = LedgerSnapshot.endOfLastLine(csvFile);
+        if (end == csvBytes) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        // Only up to end, which is what the manifest will claim; lines appended meanwhile are read next time
+        LoadReport report = new TransactionFileReader().read(csvFile, csvBytes, end, this::addTransaction);
+        csvBytes = end;
+        csvFingerprint = LedgerSnapshot.fingerprint(csvFile, end);
+        manifestChanged = true;
+        flush();
+        LedgerMetrics.record("segments.catchUp", startNanos, report.getLoadedCount() + report.getMalformedCount(),
+                report.getLoadedCount());
+        warnings.addAll(report.getSummaryLines(10));
+    }
+
+    //   === Manifest ===
+    //
+    //   ledger-segments|2
+    //   period|MONTH
+    //   csv|<bytes of transactions.csv in the segments>|<fingerprint of those bytes>
+    //   segment|2025-04|2025-04-01|2025-04-30|<count>|<bytes>|<total cents>|<deposit cents>|<payment cents>|<block file bytes>
+
+    // Reads the manifest and cuts every segment file back to the length it records, dropping lines that
+    // were written after the manifest was saved (they are added again from the csv file)
+    // Returns false when the segments can't be used and have to be built again
+    private boolean readManifest() throws IOException {
+        Path manifest = directory.resolve(manifestFile);
+        if (!Files.exists(manifest)) {
+            return false;
+        }
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(manifestHeader)) {
+            return false;
+        }
+        Map<String, SegmentInfo> byName = new LinkedHashMap<>();
+        try {
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split("\\|");
+                switch (fields[0]) {
+                    case "period":
+                        if (Period.valueOf(fields[1]) != period) {
+                            warnings.add("Segments were built by " + fields[1].toLowerCase()
+                                    + ", building them again by " + period.name().toLowerCase() + ".");
+                            return false;
+                        }
+                        break;
+                    case "csv":
+                        csvBytes = Long.parseLong(fields[1]);
+                        csvFingerprint = Long.parseLong(fields[2]);
+                        break;
+                    case "segment":
+                        SegmentInfo info = new SegmentInfo(fields[1], LocalDate.parse(fields[2]), LocalDate.parse(fields[3]));
+                        info.count = Long.parseLong(fields[4]);
+                        info.bytes = Long.parseLong(fields[5]);
+                        info.totalCents = Long.parseLong(fields[6]);
+                        info.depositCents = Long.parseLong(fields[7]);
+                        info.paymentCents = Long.parseLong(fields[8]);
+                        info.blocksBytes = Long.parseLong(fields[9]);
+                        byName.put(info.name, info);
+                        break;
+                    default:
+                        // unknown lines are skipped
+                }
+            }
+        } catch (RuntimeException e) {
+            warnings.add("Segment manifest is damaged, building the segments again.");
+            return false;
+        }
+        if (!Files.exists(csvFile) || Files.size(csvFile) < csvBytes
+                || LedgerSnapshot.fingerprint(csvFile, csvBytes) != csvFingerprint) {
+            warnings.add("Segments don't match " + csvFile + ", building them again.");
+            return false;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SegmentedLedger::isSegmentFile)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                SegmentInfo info = byName.get(name.substring(0, name.length() - 4));
+                long length = info == null ? 0 : info.bytes;
+                if (Files.size(file) < length) {
+                    warnings.add("Segment " + name + " is shorter than the manifest says, building the segments again.");
+                    return false;
+                }
+                if (Files.size(file) > length) {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                        channel.truncate(length);
+                    }
+                }
+            }
+        }
+        // A block file the manifest doesn't know about was written by a compression that didn't finish
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SegmentedLedger::isBlocksFile)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                SegmentInfo info = byName.get(name.substring(0, name.length() - 7));
+                if (info == null || info.blocksBytes == 0) {
+                    Files.delete(file);
+                } else if (Files.size(file) != info.blocksBytes) {
+                    warnings.add("Block file " + name + " doesn't match the manifest, building the segments again.");
+                    return false;
+                }
+            }
+        }
+        for (SegmentInfo info : byName.values()) {
+            segments.put(info.startDate, info);
+        }
+        return true;
+    }
+
+    // Written to a temporary file first and then moved over the old one
+    private void writeManifest() throws IOException {
+        Path target = directory.resolve(manifestFile);
+        Path temp = directory.resolve(manifestFile + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(manifestHeader + "\n");
+            out.write("period|" + period.name() + "\n");
+            out.write("csv|" + csvBytes + "|" + csvFingerprint + "\n");
+            for (SegmentInfo info : segments.values()) {
+                out.write("segment|" + info.name + "|" + info.startDate + "|" + info.endDate + "|" + info.count
+                        + "|" + info.bytes + "|" + info.totalCents + "|" + info.depositCents + "|" + info.paymentCents
+                        + "|" + info.blocksBytes + "\n");
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        manifestChanged = false;
+    }
+
+    // Removes the segment files and the manifest before building them again
+    private void clearSegments() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                file -> isSegmentFile(file) || isBlocksFile(file))) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.deleteIfExists(directory.resolve(manifestFile));
+        segments.clear();
+        csvBytes = 0;
+        csvFingerprint = 0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.pluralsight;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Gives every distinct string a small int id, so repeated vendors and descriptions are stored once
+// Ids start at 0 and are handed out in the order the strings are first seen
+public class StringDictionary {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    // Returns the id of the string, adding it if it is new
+    public int getOrAdd(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        ids.put(value, size);
+        return size++;
+    }
+
+    // Returns the id of the string, or -1 if it isn't in the dictionary
+    public int getId(String value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    public String get(int id) {
+        return values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
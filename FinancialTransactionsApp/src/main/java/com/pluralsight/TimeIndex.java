@@ -0,0 +1,178 @@
+package com.pluralsight;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Secondary index that keeps row positions sorted by date/time
+// Date range queries binary search to the first row in the range and walk forward from there,
+// so they cost O(log n + rows in range) instead of a scan over the whole ledger.
+// Transactions are usually added in time order, which makes inserting an append at the end.
+// Back-dated transactions are collected at the end and sorted into place in one go the next time
+// the index is read, so loading a file that isn't in time order costs O(n log n) instead of O(n^2)
+public class TimeIndex {
+    private static final int initialCapacity = 1024;
+
+    // keys[i] is the date/time (as epoch seconds) of row rows[i], sorted by key and then by row
+    // (only the first sortedSize entries are sorted, the ones after that are waiting to be sorted in)
+    private long[] keys;
+    private int[] rows;
+    private int size;
+    private int sortedSize;
+
+    public TimeIndex() {
+        this(new long[initialCapacity], new int[initialCapacity], 0);
+    }
+
+    // Index over rows that are already sorted, keys[i] must be the key of rows[i]
+    public TimeIndex(long[] keys, int[] rows, int size) {
+        this.keys = keys.length > 0 ? keys : new long[initialCapacity];
+        this.rows = rows.length > 0 ? rows : new int[initialCapacity];
+        this.size = size;
+        this.sortedSize = size;
+    }
+
+    // Adds a row, rows must be added in increasing order (rows with the same date/time keep that order)
+    public void insert(long key, int row) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        keys[size] = key;
+        rows[size] = row;
+        size++;
+        if (sortedSize == size - 1 && (sortedSize == 0 || keys[sortedSize - 1] <= key)) {
+            sortedSize = size;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Row stored at a position of the sorted order
+    public int rowAt(int position) {
+        ensureSorted();
+        return rows[position];
+    }
+
+    public long keyAt(int position) {
+        ensureSorted();
+        return keys[position];
+    }
+
+    // Read-only index over the entries added so far, sharing the arrays instead of copying them
+    // Later inserts only write past its size, and sorting in new entries builds new arrays,
+    // so the copy stays the same and can be read without a lock. Nothing may be inserted into the copy
+    public TimeIndex snapshot() {
+        ensureSorted();
+        return new TimeIndex(keys, rows, size);
+    }
+
+    // Sorts the entries added out of order and merges them with the sorted ones
+    // Their rows are all higher than the sorted rows, so on equal keys the sorted entries go first
+    private void ensureSorted() {
+        if (sortedSize == size) {
+            return;
+        }
+        int tailSize = size - sortedSize;
+        long[] tailKeys = Arrays.copyOfRange(keys, sortedSize, size);
+        int[] tailRows = Arrays.copyOfRange(rows, sortedSize, size);
+        mergeSort(tailKeys, tailRows, new long[tailSize], new int[tailSize], 0, tailSize);
+
+        long[] mergedKeys = new long[keys.length];
+        int[] mergedRows = new int[rows.length];
+        int sorted = 0;
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            if (tail == tailSize || (sorted < sortedSize && keys[sorted] <= tailKeys[tail])) {
+                mergedKeys[i] = keys[sorted];
+                mergedRows[i] = rows[sorted++];
+            } else {
+                mergedKeys[i] = tailKeys[tail];
+                mergedRows[i] = tailRows[tail++];
+            }
+        }
+        keys = mergedKeys;
+        rows = mergedRows;
+        sortedSize = size;
+    }
+
+    // Stable merge sort of keys (with rows moving along) between from and to
+    private static void mergeSort(long[] keys, int[] rows, long[] tempKeys, int[] tempRows, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(keys, rows, tempKeys, tempRows, from, middle);
+        mergeSort(keys, rows, tempKeys, tempRows, middle, to);
+        if (keys[middle - 1] <= keys[middle]) {
+            return;
+        }
+        System.arraycopy(keys, from, tempKeys, from, to - from);
+        System.arraycopy(rows, from, tempRows, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right == to || (left < middle && tempKeys[left] <= tempKeys[right])) {
+                keys[i] = tempKeys[left];
+                rows[i] = tempRows[left++];
+            } else {
+                keys[i] = tempKeys[right];
+                rows[i] = tempRows[right++];
+            }
+        }
+    }
+
+    // First position with a key >= the given key
+    public int lowerBound(long key) {
+        ensureSorted();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // First position with a key > the given key
+    public int upperBound(long key) {
+        ensureSorted();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // First position on or after the start date, null means from the beginning
+    public int startPosition(LocalDate startDate) {
+        return startDate == null ? 0 : lowerBound(startOfDay(startDate));
+    }
+
+    // Position right after the end date (the end date is included), null means to the end
+    public int endPosition(LocalDate endDate) {
+        return endDate == null ? size : lowerBound(startOfDay(endDate.plusDays(1)));
+    }
+
+    // Date/times are stored as if they were UTC, only their order matters here
+    public static long toKey(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static long startOfDay(LocalDate date) {
+        return date.toEpochDay() * 86400;
+    }
+}
@@ -6,16 +6,42 @@ import java.time.format.DateTimeParseException;
 
 //Represents a singular financial transaction (payment/deposit)
 public class Transaction {
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Years a transaction can be in. The per-day indexes (DailyTotals, DailyBalances) span every day between
+    // the first and last transaction, so a typo like 9999-12-31 would make them allocate hundreds of MB
+    public static final int minYear = 1900;
+    public static final int maxYear = 2100;
+
     private LocalDateTime dateTime;
     private String description;
     private String vendor;
-    private double amount;
+    // Amount in whole cents, so sums stay exact
+    private final long amountCents;
 
     public Transaction(LocalDateTime dateTime, String description, String vendor, double amount) {
+        this(dateTime, description, vendor, Money.toCents(amount));
+    }
+
+    // Private so new Transaction(..., 100) keeps meaning 100 dollars, ofCents is the public way in
+    private Transaction(LocalDateTime dateTime, String description, String vendor, long amountCents) {
+        if (dateTime != null && !isInRange(dateTime)) {
+            throw new IllegalArgumentException("Date out of range (years " + minYear + " to " + maxYear + "): "
+                    + dateTime.format(formatter));
+        }
         this.dateTime = dateTime;
         this.description = description;
         this.vendor = vendor;
-        this.amount = amount;
+        this.amountCents = amountCents;
+    }
+
+    // Creates a transaction from an amount in cents (e.g. -172500 for a $1725.00 payment)
+    public static Transaction ofCents(LocalDateTime dateTime, String description, String vendor, long amountCents) {
+        return new Transaction(dateTime, description, vendor, amountCents);
+    }
+
+    // True when the date/time is within the years a transaction can be in
+    public static boolean isInRange(LocalDateTime dateTime) {
+        return dateTime.getYear() >= minYear && dateTime.getYear() <= maxYear;
     }
 
     public LocalDateTime getDateTime() {
@@ -31,20 +57,25 @@ public class Transaction {
     }
 
     public double getAmount() {
-        return amount;
+        return Money.toDouble(amountCents);
+    }
+
+    public long getAmountCents() {
+        return amountCents;
     }
 
     // Override toString to get a formatted string for the transaction
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return String.format("%s|%s|%s|%.2f", dateTime.format(formatter), description, vendor, amount);
+        StringBuilder sb = new StringBuilder(96);
+        formatter.formatTo(dateTime, sb);
+        sb.append('|').append(description).append('|').append(vendor).append('|');
+        return Money.appendTo(sb, amountCents).toString();
     }
 
     // Returns a formatted string with fixed-width, aligned columns
     // Shortens long text to only fit within the limits of the predetermined width
     public String toDisplayString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         String formattedDateTime = dateTime.format(formatter);
 
         int dateTimeWidth = 21;
@@ -73,24 +104,27 @@ public class Transaction {
         String formattedString = String.format("%%-%ds %%-%ds %%-%ds %%%d.2f",
                 dateTimeWidth, descWidth, vendorWidth, amountWidth);
 
-        return String.format(formattedString, formattedDateTime, displayDesc, displayVendor, amount);
+        return String.format(formattedString, formattedDateTime, displayDesc, displayVendor, getAmount());
     }
 
     // Creates a Transaction object by parsing a string delimited by "|"
-    // Used when loading data from the CSV file
+    // Used for single lines, whole files are loaded by TransactionFileReader
     public static Transaction parsedTransaction(String transactionString) {
-        String[] parts = transactionString.split("\\|"); // Splits at | delimiter
-        if (parts.length != 4) {
+        // Splits at the | delimiters with indexOf instead of a regex
+        int firstPipe = transactionString.indexOf('|');
+        int secondPipe = firstPipe < 0 ? -1 : transactionString.indexOf('|', firstPipe + 1);
+        int thirdPipe = secondPipe < 0 ? -1 : transactionString.indexOf('|', secondPipe + 1);
+        if (thirdPipe < 0 || thirdPipe == transactionString.length() - 1
+                || transactionString.indexOf('|', thirdPipe + 1) >= 0) {
             throw new IllegalArgumentException("Invalid transaction string: " + transactionString);
         }
         try {
             // Parses each part into the correct data type
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            LocalDateTime dateTime = LocalDateTime.parse(parts[0], formatter);
-            String description = parts[1];
-            String vendor = parts[2];
-            double amount = Double.parseDouble(parts[3]);
-            return new Transaction(dateTime, description, vendor, amount);
+            LocalDateTime dateTime = LocalDateTime.parse(transactionString.substring(0, firstPipe), formatter);
+            String description = transactionString.substring(firstPipe + 1, secondPipe);
+            String vendor = transactionString.substring(secondPipe + 1, thirdPipe);
+            long amountCents = Money.parseCents(transactionString.substring(thirdPipe + 1));
+            return ofCents(dateTime, description, vendor, amountCents);
         } catch (DateTimeParseException | NumberFormatException e) {
             throw new IllegalArgumentException("Error parsing transaction string: " + transactionString);
         }
@@ -0,0 +1,316 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+// Fast loader for the transactions file
+// Memory-maps the file and works directly on the bytes: the "|" delimiters, the fixed
+// "yyyy-MM-dd HH:mm:ss" timestamp and the amount are read without creating Strings or regexes.
+// Lines that can't be parsed are added to a LoadReport instead of throwing an exception for each one
+public class TransactionFileReader {
+    // The file is mapped in windows so files bigger than 2GB can be read too
+    private static final long windowSize = 256L * 1024 * 1024;
+    // Chunks for the parallel load are at least this big, smaller files aren't worth splitting
+    private static final long minChunkSize = 4L * 1024 * 1024;
+
+    // Reused for every line, grows when a longer line shows up
+    private byte[] scratch = new byte[256];
+
+    // Reads every complete line of the file and passes the parsed transactions to the sink, in file order
+    public LoadReport read(Path file, Consumer<Transaction> sink) throws IOException {
+        return read(file, 0, sink);
+    }
+
+    // Reads the lines starting at a byte offset, which must be the start of a line
+    // Line numbers in the report count from the offset
+    public LoadReport read(Path file, long startOffset, Consumer<Transaction> sink) throws IOException {
+        return read(file, startOffset, Long.MAX_VALUE, sink);
+    }
+
+    // Reads the lines from startOffset up to endOffset (excluded, or the end of the file if that comes first)
+    // Bytes after endOffset are left alone even when lines are being appended meanwhile, so a caller that
+    // measured endOffset (right after a newline) knows exactly which lines it has read
+    public LoadReport read(Path file, long startOffset, long endOffset, Consumer<Transaction> sink) throws IOException {
+        LoadReport report = new LoadReport();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), endOffset);
+            long position = startOffset;
+            long lineNumber = 1;
+            while (position < size) {
+                long length = Math.min(windowSize, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean lastWindow = position + length == size;
+
+                // Only whole lines are parsed, the rest is picked up by the next window
+                int end = lastIndexOf(window, (int) length, (byte) '\n') + 1;
+                if (end == 0 && !lastWindow) {
+                    throw new IOException("Line " + lineNumber + " is longer than " + windowSize + " bytes");
+                }
+                lineNumber = parseLines(window, 0, end, lineNumber, sink, report);
+
+                // A last line without a newline was cut off while being appended
+                if (lastWindow) {
+                    report.setTornLastLine(end < length);
+                    break;
+                }
+                position += end;
+            }
+        }
+        return report;
+    }
+
+    // Same as read, but splits the file into chunks that end on a newline and parses them in parallel
+    // on the common fork-join pool. The transactions are still passed to the sink in file order
+    // (on the calling thread), and the line numbers in the report are the ones in the whole file
+    public static LoadReport readParallel(Path file, Consumer<Transaction> sink) throws IOException {
+        LoadReport report = new LoadReport();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = splitIntoChunks(channel);
+
+            List<ForkJoinTask<ParsedChunk>> tasks = new ArrayList<>();
+            for (long[] chunk : chunks) {
+                tasks.add(ForkJoinPool.commonPool().submit(() -> parseChunk(channel, chunk[0], chunk[1])));
+            }
+
+            long lineOffset = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                ParsedChunk parsed;
+                try {
+                    parsed = tasks.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    tasks.forEach(task -> task.cancel(true));
+                    throw new InterruptedIOException("Interrupted while loading " + file);
+                } catch (ExecutionException e) {
+                    tasks.forEach(task -> task.cancel(true));
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException("Error loading " + file, e.getCause());
+                }
+                parsed.transactions.forEach(sink);
+                report.merge(parsed.report, lineOffset);
+                lineOffset += parsed.lineCount;
+                tasks.set(i, null);
+            }
+        }
+        return report;
+    }
+
+    // Transactions and report of one chunk
+    private static class ParsedChunk {
+        private final List<Transaction> transactions = new ArrayList<>();
+        private final LoadReport report = new LoadReport();
+        private long lineCount;
+    }
+
+    private static ParsedChunk parseChunk(FileChannel channel, long start, long end) throws IOException {
+        ParsedChunk parsed = new ParsedChunk();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int length = (int) (end - start);
+        int lastLineEnd = lastIndexOf(buffer, length, (byte) '\n') + 1;
+        parsed.lineCount = new TransactionFileReader().parseLines(buffer, 0, lastLineEnd, 1,
+                parsed.transactions::add, parsed.report) - 1;
+        // Only the last chunk can end without a newline, meaning its last line was cut off
+        parsed.report.setTornLastLine(lastLineEnd < length);
+        return parsed;
+    }
+
+    // Splits the file into [start, end) byte ranges of about the same size, each one ending right after a newline
+    private static List<long[]> splitIntoChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        long chunkSize = Math.min(windowSize, Math.max(minChunkSize, size / (parallelism * 4L)));
+
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer block = ByteBuffer.allocate(64 * 1024);
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkSize;
+            if (end >= size) {
+                end = size;
+            } else {
+                end = nextLineStart(channel, end, size, block);
+                if (end - start > windowSize) {
+                    throw new IOException("Line longer than " + windowSize + " bytes near byte " + start);
+                }
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    // Position right after the first newline at or after position (or the file size if there is none)
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer block) throws IOException {
+        while (position < size) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // Parses the lines between from (inclusive) and to (exclusive), to must be right after a newline
+    // Returns the line number of the line after the last one parsed
+    public long parseLines(ByteBuffer buffer, int from, int to, long lineNumber, Consumer<Transaction> sink,
+                           LoadReport report) {
+        int lineStart = from;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                int length = i - lineStart;
+                if (length > scratch.length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buffer.get(lineStart, scratch, 0, length);
+                parseLine(scratch, length, lineNumber, sink, report);
+                lineNumber++;
+                lineStart = i + 1;
+            }
+        }
+        return lineNumber;
+    }
+
+    // Parses a single line held in the first length bytes of line
+    private static void parseLine(byte[] line, int length, long lineNumber, Consumer<Transaction> sink,
+                                  LoadReport report) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        // Blank lines are ignored
+        if (length == 0) {
+            return;
+        }
+
+        // Finds the three "|" delimiters, there must be exactly three
+        int firstPipe = indexOf(line, 0, length, (byte) '|');
+        int secondPipe = firstPipe < 0 ? -1 : indexOf(line, firstPipe + 1, length, (byte) '|');
+        int thirdPipe = secondPipe < 0 ? -1 : indexOf(line, secondPipe + 1, length, (byte) '|');
+        if (thirdPipe < 0 || indexOf(line, thirdPipe + 1, length, (byte) '|') >= 0) {
+            report.addMalformed(lineNumber, "expected 4 fields", text(line, 0, length));
+            return;
+        }
+
+        LocalDateTime dateTime = parseDateTime(line, 0, firstPipe);
+        if (dateTime == null) {
+            report.addMalformed(lineNumber, "invalid date/time", text(line, 0, length));
+            return;
+        }
+        if (!Transaction.isInRange(dateTime)) {
+            report.addMalformed(lineNumber, "date out of range", text(line, 0, length));
+            return;
+        }
+
+        long cents = Money.parseCents(line, thirdPipe + 1, length);
+        if (cents == Money.invalid) {
+            // Unusual formats (exponents, more than 2 decimals, spaces) go through Money.parseCents
+            try {
+                cents = Money.parseCents(text(line, thirdPipe + 1, length));
+            } catch (NumberFormatException e) {
+                report.addMalformed(lineNumber, "invalid amount", text(line, 0, length));
+                return;
+            }
+        }
+
+        String description = text(line, firstPipe + 1, secondPipe);
+        String vendor = text(line, secondPipe + 1, thirdPipe);
+        sink.accept(Transaction.ofCents(dateTime, description, vendor, cents));
+        report.addLoaded();
+    }
+
+    // Parses "yyyy-MM-dd HH:mm:ss" from the bytes, returns null when the text doesn't match
+    // Like DateTimeFormatter's default (smart) resolving, a day past the end of the month is moved to the last day
+    static LocalDateTime parseDateTime(byte[] bytes, int from, int to) {
+        if (to - from != 19
+                || bytes[from + 4] != '-' || bytes[from + 7] != '-' || bytes[from + 10] != ' '
+                || bytes[from + 13] != ':' || bytes[from + 16] != ':') {
+            return null;
+        }
+        int year = digits(bytes, from, 4);
+        int month = digits(bytes, from + 5, 2);
+        int day = digits(bytes, from + 8, 2);
+        int hour = digits(bytes, from + 11, 2);
+        int minute = digits(bytes, from + 14, 2);
+        int second = digits(bytes, from + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        int monthLength = monthLength(year, month);
+        if (day > monthLength) {
+            day = monthLength;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+    }
+
+    // Reads count decimal digits as a number, returns -1 if any of them isn't a digit
+    private static int digits(byte[] bytes, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int monthLength(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leapYear ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(ByteBuffer buffer, int to, byte value) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String text(byte[] bytes, int from, int to) {
+        return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,285 @@
+package com.pluralsight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Append-only writer for the transactions file
+// New transactions are added to the end of the file as single lines instead of rewriting the whole file.
+// Appends made at the same time from different threads are written together in one batch (group commit).
+// The journal holds the LedgerLock from the constructor until close(), so only one process writes the file;
+// open it before loading the ledger so no other writer can add lines between the load and the first append
+public class TransactionJournal implements Closeable {
+
+    // Controls when appended lines are forced from the OS cache to the disk
+    public enum FsyncPolicy {
+        ALWAYS,   // force after every batch
+        INTERVAL, // force at most once per interval, and when the journal is closed
+        NEVER;    // leave it to the OS
+
+        // Reads the policy from the "ledger.fsync" system property, defaults to ALWAYS
+        public static FsyncPolicy fromSystemProperty() {
+            String value = System.getProperty("ledger.fsync", "always");
+            try {
+                return FsyncPolicy.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown fsync policy '" + value + "', using ALWAYS.");
+                return ALWAYS;
+            }
+        }
+    }
+
+    // Lines waiting to be written by the same commit
+    private static class Batch {
+        private final StringBuilder lines = new StringBuilder();
+        private boolean done;
+        private IOException error;
+    }
+
+    private static final long defaultFsyncIntervalMillis = 1000;
+    // A last line longer than this can't be a transaction written by the app
+    private static final int maxLineBytes = 64 * 1024;
+
+    private final Path file;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final Object lock = new Object();
+    private final LedgerLock ledgerLock;
+
+    private FileChannel channel;
+    private Batch currentBatch = new Batch();
+    private boolean writing;
+    private boolean unforcedWrites;
+    private long lastForceMillis;
+
+    public TransactionJournal(String file, FsyncPolicy fsyncPolicy) throws IOException {
+        this(file, fsyncPolicy, defaultFsyncIntervalMillis);
+    }
+
+    public TransactionJournal(String file, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+        this.file = Path.of(file);
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.ledgerLock = LedgerLock.acquire(this.file);
+        try {
+            repairLastLine();
+            this.channel = openChannel();
+        } catch (IOException | RuntimeException e) {
+            ledgerLock.close();
+            throw e;
+        }
+    }
+
+    // Opens the file in append mode, so every write lands at the current end of the file
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Makes sure the file ends with a newline before anything is appended to it
+    // A last line without a newline is either a line cut off by a crash or a complete line from a hand-edited
+    // file. A line that parses is kept and gets its newline; one that doesn't was never fully written (it is
+    // skipped by loadTransactions), so it is cut off to make sure new lines don't get glued onto it
+    private void repairLastLine() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long end = LedgerSnapshot.endOfLastLine(file);
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = fileChannel.size();
+            if (end == size) {
+                return;
+            }
+            if (isTransaction(fileChannel, end, size)) {
+                ByteBuffer newline = ByteBuffer.wrap(new byte[]{'\n'});
+                while (newline.hasRemaining()) {
+                    fileChannel.write(newline, size);
+                }
+            } else {
+                fileChannel.truncate(end);
+            }
+            fileChannel.force(true);
+        }
+    }
+
+    // True when the bytes from start to end hold one line that parses as a transaction
+    private static boolean isTransaction(FileChannel fileChannel, long start, long end) throws IOException {
+        if (end - start > maxLineBytes) {
+            return false;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        while (bytes.hasRemaining() && fileChannel.read(bytes, start + bytes.position()) >= 0) {
+            // keep reading until the line is complete
+        }
+        String line = new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        try {
+            Transaction.parsedTransaction(line);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Appends a transaction to the end of the file
+    // Returns once the line is written (and forced, depending on the fsync policy)
+    public void append(Transaction transaction) throws IOException {
+        commit(transaction.toString() + "\n");
+    }
+
+    // Appends several transactions as one batch, so they cost a single write (and force)
+    public void appendAll(List<Transaction> transactions) throws IOException {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder(transactions.size() * 64);
+        for (Transaction transaction : transactions) {
+            lines.append(transaction.toString()).append('\n');
+        }
+        commit(lines);
+    }
+
+    // Adds the lines to the current batch and waits until that batch is written
+    private void commit(CharSequence lines) throws IOException {
+        Batch batch;
+        synchronized (lock) {
+            batch = currentBatch;
+            batch.lines.append(lines);
+
+            // Wait while another thread is writing, it may pick up our line as part of its batch
+            while (writing && !batch.done) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the journal");
+                }
+            }
+            if (batch.done) {
+                if (batch.error != null) {
+                    throw batch.error;
+                }
+                return;
+            }
+
+            // Nobody is writing, so this thread commits everything collected so far
+            writing = true;
+            currentBatch = new Batch();
+        }
+
+        IOException error = null;
+        try {
+            writeBatch(batch);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            synchronized (lock) {
+                batch.done = true;
+                batch.error = error;
+                writing = false;
+                lock.notifyAll();
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // Writes one batch with a single write call and forces it based on the fsync policy
+    private void writeBatch(Batch batch) throws IOException {
+        long startNanos = System.nanoTime();
+        ByteBuffer buffer = ByteBuffer.wrap(batch.lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        LedgerMetrics.addBytesWritten(buffer.limit());
+        unforcedWrites = true;
+
+        long now = System.currentTimeMillis();
+        if (fsyncPolicy == FsyncPolicy.ALWAYS
+                || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForceMillis >= fsyncIntervalMillis)) {
+            channel.force(false);
+            unforcedWrites = false;
+            lastForceMillis = now;
+        }
+        LedgerMetrics.record("journal.commit", startNanos, 0, 0);
+    }
+
+    // Compaction: rewrites the whole file from the given list
+    // This is the only time the file is fully rewritten, appends wait until it is finished.
+    // The list must already hold every appended transaction (add to the list first, then append),
+    // so lines still waiting for a commit are part of the rewritten file and are not written again
+    public void compact(TransactionList transactionList) throws IOException {
+        Batch pending;
+        synchronized (lock) {
+            awaitIdle();
+            writing = true;
+            pending = currentBatch;
+            currentBatch = new Batch();
+        }
+        IOException error = null;
+        try {
+            channel.close();
+            transactionList.saveTransactions(file.toString());
+            channel = openChannel();
+            unforcedWrites = false;
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            synchronized (lock) {
+                pending.done = true;
+                pending.error = error;
+                writing = false;
+                lock.notifyAll();
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // Forces any remaining writes (unless the policy is NEVER), closes the file and releases the ledger lock
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            awaitIdle();
+            try {
+                if (!channel.isOpen()) {
+                    return;
+                }
+                // Lines left behind by a thread that was interrupted while waiting
+                if (currentBatch.lines.length() > 0) {
+                    writeBatch(currentBatch);
+                    currentBatch.done = true;
+                    currentBatch = new Batch();
+                }
+                if (unforcedWrites && fsyncPolicy != FsyncPolicy.NEVER) {
+                    channel.force(false);
+                }
+                channel.close();
+            } finally {
+                ledgerLock.close();
+            }
+        }
+    }
+
+    // Waits until no other thread is writing, must be called while holding the lock
+    private void awaitIdle() throws IOException {
+        while (writing) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the journal");
+            }
+        }
+    }
+}
@@ -1,129 +1,554 @@
 package com.pluralsight;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 // Class to manage a list of transactions given from the Transaction class
-public class TransactionList {
-    private List<Transaction> transactions;
+// Safe to use from several threads: writers add under the write lock, while readers work on a ReadView, an
+// unchanging snapshot of the rows and time index. The writer publishes a new view at the end of every add
+// (or batch of adds), so readers only read a volatile field and never wait for a writer or sort anything.
+// Publishing is cheap when rows arrive in time order (the arrays are shared, not copied); back-dated rows
+// are sorted into the time index by the writer once per batch
+public class TransactionList implements TransactionStore {
+    // Files at least this big are loaded with the parallel loader
+    private static final long parallelLoadThreshold = 16L * 1024 * 1024;
 
-    public TransactionList() {
-        this.transactions = new ArrayList<>();
+    // Consistent, read-only state of the ledger at one point in time
+    static class ReadView {
+        private static final ReadView empty = new ReadView(List.of(), new TimeIndex().snapshot());
+
+        private final List<Transaction> rows;
+        private final TimeIndex timeIndex;
+
+        private ReadView(List<Transaction> rows, TimeIndex timeIndex) {
+            this.rows = rows;
+            this.timeIndex = timeIndex;
+        }
+
+        List<Transaction> getRows() {
+            return rows;
+        }
+
+        // Positions of the rows sorted by date/time
+        TimeIndex getTimeIndex() {
+            return timeIndex;
+        }
+    }
+
+    // A view together with copies of the daily totals and balances of exactly its rows (what LedgerSnapshot saves)
+    static class Checkpoint {
+        private final ReadView view;
+        private final DailyTotals dailyTotals;
+        private final DailyBalances dailyBalances;
+
+        private Checkpoint(ReadView view, DailyTotals dailyTotals, DailyBalances dailyBalances) {
+            this.view = view;
+            this.dailyTotals = dailyTotals;
+            this.dailyBalances = dailyBalances;
+        }
+
+        ReadView getView() {
+            return view;
+        }
+
+        DailyTotals getDailyTotals() {
+            return dailyTotals;
+        }
+
+        DailyBalances getDailyBalances() {
+            return dailyBalances;
+        }
+    }
+
+    // Passes parsed rows on to a sink, like TransactionFileReader.read
+    interface RowSource {
+        LoadReport read(Consumer<Transaction> sink) throws IOException;
     }
 
+    // Guards every change to the rows and indexes, readers only take it briefly
+    private final StampedLock lock = new StampedLock();
+    // The view as of the last finished write, replaced by the writer
+    private volatile ReadView publishedView = ReadView.empty;
+
+    private final ChunkedRows transactions = new ChunkedRows();
+    // Positions in transactions, sorted by date/time
+    private TimeIndex timeIndex = new TimeIndex();
+    // Per-day totals, updated as transactions are added
+    private DailyTotals dailyTotals = new DailyTotals();
+    // End of day balances, updated as transactions are added (back-dated ones included)
+    private DailyBalances dailyBalances = new DailyBalances();
+    // Rows of each vendor (ignoring case)
+    private VendorIndex vendorIndex = new VendorIndex();
+    // Rows and totals of recently shown reports, kept up to date as transactions are added
+    private final ReportCache reportCache = new ReportCache(Integer.getInteger("ledger.reportCache", 8), 4_000_000);
+    // Optional trigram indexes for the "contains" searches, null until enableTextIndex is called
+    private TrigramIndex descriptionTrigrams;
+    private TrigramIndex vendorTrigrams;
+
     // Adds transaction to list
+    @Override
     public void addTransaction(Transaction transaction) {
+        long stamp = lock.writeLock();
+        try {
+            addRow(transaction);
+        } finally {
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Adds several transactions as one batch, readers see all of them or none
+    public void addTransactions(List<Transaction> batch) {
+        long stamp = lock.writeLock();
+        try {
+            for (Transaction transaction : batch) {
+                addRow(transaction);
+            }
+        } finally {
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Adds every row the source passes on as one batch, the view is published once when it is done
+    // Used for loading files, so a file that isn't in time order is sorted into the time index only once
+    LoadReport addAll(RowSource source) throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            return source.read(this::addRow);
+        } finally {
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Adds one row and updates the indexes, must be called while holding the write lock
+    private void addRow(Transaction transaction) {
         this.transactions.add(transaction);
+        int row = transactions.size() - 1;
+        timeIndex.insert(TimeIndex.toKey(transaction.getDateTime()), row);
+        indexRow(transaction, row);
+        reportCache.add(transaction);
+    }
+
+    // Makes the rows added so far visible to readers, must be called while holding the write lock
+    private void publish() {
+        publishedView = new ReadView(transactions.view(), timeIndex.snapshot());
+    }
+
+    // Updates the totals and the vendor/text indexes for a new row
+    private void indexRow(Transaction transaction, int row) {
+        long amountCents = transaction.getAmountCents();
+        dailyTotals.add(transaction.getDateTime().toLocalDate(), amountCents);
+        dailyBalances.add(transaction.getDateTime().toLocalDate(), amountCents);
+        vendorIndex.add(transaction.getVendor(), row, amountCents);
+        if (descriptionTrigrams != null) {
+            descriptionTrigrams.add(row, transaction.getDescription());
+            vendorTrigrams.add(row, transaction.getVendor());
+        }
+    }
+
+    // Replaces the (empty) list with rows restored from a snapshot, along with their stored time index,
+    // daily totals and balances, so none of them is built again. Only the vendor (and text) indexes are rebuilt
+    void restore(List<Transaction> rows, TimeIndex restoredTimeIndex, DailyTotals restoredTotals,
+                 DailyBalances restoredBalances) {
+        long stamp = lock.writeLock();
+        try {
+            for (Transaction transaction : rows) {
+                transactions.add(transaction);
+                int row = transactions.size() - 1;
+                vendorIndex.add(transaction.getVendor(), row, transaction.getAmountCents());
+                if (descriptionTrigrams != null) {
+                    descriptionTrigrams.add(row, transaction.getDescription());
+                    vendorTrigrams.add(row, transaction.getVendor());
+                }
+            }
+            timeIndex = restoredTimeIndex;
+            dailyTotals = restoredTotals;
+            dailyBalances = restoredBalances;
+            reportCache.clear();
+        } finally {
+            publish();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // The published view with copies of its totals and balances, taken under the read lock so they all agree
+    Checkpoint checkpoint() {
+        long stamp = lock.readLock();
+        try {
+            return new Checkpoint(publishedView, dailyTotals.copy(), dailyBalances.copy());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Snapshot of the rows and time index as of the last finished write, never blocks
+    ReadView view() {
+        return publishedView;
+    }
+
+    // Builds trigram indexes over the descriptions and vendors (and keeps them updated from now on)
+    // They make description/vendor searches fast on big ledgers at the cost of extra memory
+    public void enableTextIndex() {
+        long stamp = lock.writeLock();
+        try {
+            if (descriptionTrigrams != null) {
+                return;
+            }
+            descriptionTrigrams = new TrigramIndex();
+            vendorTrigrams = new TrigramIndex();
+            for (int row = 0; row < transactions.size(); row++) {
+                descriptionTrigrams.add(row, transactions.get(row).getDescription());
+                vendorTrigrams.add(row, transactions.get(row).getVendor());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     // Gets all transactions
+    // The list is a read-only snapshot, transactions added afterwards don't show up in it
+    @Override
     public List<Transaction> getTransactions() {
-        return transactions;
+        return view().getRows();
     }
 
-    // Finds transactions within a specified date range
+    // Finds transactions within a specified date range, sorted by date/time
+    // Uses the time index to jump straight to the first transaction in the range
+    @Override
     public List<Transaction> getTransactions(LocalDate startDate, LocalDate endDate) {
         List<Transaction> result = new ArrayList<>();
-        for (Transaction transaction : transactions) {
-            LocalDate transactionDate = transaction.getDateTime().toLocalDate();
-            if ((transactionDate.isEqual(startDate) || transactionDate.isAfter(startDate)) &&
-                    (transactionDate.isEqual(endDate) || transactionDate.isBefore(endDate))) {
-                result.add(transaction);
+        forEachTransaction(startDate, endDate, result::add);
+        return result;
+    }
+
+    // Passes the transactions within a date range to the action one at a time, sorted by date/time
+    // Nothing is collected, so a caller that only writes them out doesn't need a list of the whole range
+    public void forEachTransaction(LocalDate startDate, LocalDate endDate, Consumer<Transaction> action) {
+        long startNanos = System.nanoTime();
+        ReadView view = view();
+        TimeIndex sortedRows = view.getTimeIndex();
+        List<Transaction> rows = view.getRows();
+        int start = sortedRows.startPosition(startDate);
+        int end = sortedRows.endPosition(endDate);
+        for (int position = start; position < end; position++) {
+            action.accept(rows.get(sortedRows.rowAt(position)));
+        }
+        LedgerMetrics.record("getTransactions(range)", startNanos, end - start, end - start);
+    }
+
+    // Passes one page of the transactions within a date range to the action, sorted by date/time
+    // Jumps straight to the offset through the time index and returns how many transactions the whole range has
+    public int forEachTransaction(LocalDate startDate, LocalDate endDate, int offset, int limit,
+                                  Consumer<Transaction> action) {
+        long startNanos = System.nanoTime();
+        ReadView view = view();
+        TimeIndex sortedRows = view.getTimeIndex();
+        List<Transaction> rows = view.getRows();
+        int start = sortedRows.startPosition(startDate);
+        int end = sortedRows.endPosition(endDate);
+        int pageStart = (int) Math.min(end, (long) start + offset);
+        int pageEnd = (int) Math.min(end, (long) pageStart + limit);
+        for (int position = pageStart; position < pageEnd; position++) {
+            action.accept(rows.get(sortedRows.rowAt(position)));
+        }
+        LedgerMetrics.record("getTransactions(page)", startNanos, pageEnd - pageStart, pageEnd - pageStart);
+        return end - start;
+    }
+
+    // Starts a query with optional criteria, sorting and paging, see TransactionQuery
+    // Unlike the methods returning a List, its results are read lazily and stop at the limit
+    public TransactionQuery query() {
+        return new TransactionQuery(this);
+    }
+
+    // Rows (sorted by date/time) and totals of a date range, for the reports shown again and again
+    // The first call builds the report, later calls get it from the report cache without visiting any rows.
+    // It is built from the published view without any lock. Rows added while it was being built are caught
+    // up under the read lock when it is cached, so the cache can't miss them
+    public ReportCache.Report getReport(LocalDate startDate, LocalDate endDate) {
+        long startNanos = System.nanoTime();
+        ReportCache.Report report = reportCache.get(startDate, endDate);
+        if (report != null) {
+            LedgerMetrics.record("getReport(cached)", startNanos, 0, report.getTransactions().size());
+            return report;
+        }
+        ReadView view = view();
+        TimeIndex sortedRows = view.getTimeIndex();
+        List<Transaction> rows = view.getRows();
+        int start = sortedRows.startPosition(startDate);
+        int end = sortedRows.endPosition(endDate);
+        ReportCache.Entry entry = ReportCache.build(startDate, endDate, action -> {
+            for (int position = start; position < end; position++) {
+                action.accept(rows.get(sortedRows.rowAt(position)));
             }
+        });
+        long stamp = lock.readLock();
+        try {
+            report = reportCache.put(entry, transactions.view().subList(rows.size(), transactions.size()));
+        } finally {
+            lock.unlockRead(stamp);
         }
-        return result;
+        int count = report.getTransactions().size();
+        LedgerMetrics.record("getReport", startNanos, count, count);
+        return report;
     }
 
     // Finds transactions for specific vendors
+    // Looks the vendor up in the vendor index, so only the vendor's own transactions are visited
+    @Override
     public List<Transaction> getTransactionsByVendor(String vendor) {
-        List<Transaction> result = new ArrayList<>();
-        for (Transaction transaction : transactions) {
-            if (transaction.getVendor().equalsIgnoreCase(vendor)) {
-                result.add(transaction);
-            }
-        }
+        List<Transaction> result = new ArrayList<>(getVendorCount(vendor));
+        forEachByVendor(vendor, result::add);
         return result;
     }
 
+    // Passes the transactions of a vendor (ignoring case) to the action in the order they were added
+    public void forEachByVendor(String vendor, Consumer<Transaction> action) {
+        long startNanos = System.nanoTime();
+        List<Transaction> rows = view().getRows();
+        IntList vendorRows = vendorRows(vendor);
+        // The vendor's rows can include ones added after the view was taken, those are left out
+        int count = 0;
+        while (count < vendorRows.size() && vendorRows.get(count) < rows.size()) {
+            action.accept(rows.get(vendorRows.get(count)));
+            count++;
+        }
+        LedgerMetrics.record("getTransactionsByVendor", startNanos, count, count);
+    }
+
+    // Rows of a vendor (ignoring case) in the order they were added, as a read-only copy
+    IntList vendorRows(String vendor) {
+        long stamp = lock.readLock();
+        try {
+            return vendorIndex.getRows(vendor).snapshot();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Number of transactions for a vendor (ignoring case)
+    public int getVendorCount(String vendor) {
+        long stamp = lock.readLock();
+        try {
+            return vendorIndex.getCount(vendor);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Total amount of all transactions for a vendor (ignoring case)
+    public double getVendorTotal(String vendor) {
+        return Money.toDouble(getVendorTotalCents(vendor));
+    }
+
+    // Same as getVendorTotal, but as exact cents
+    public long getVendorTotalCents(String vendor) {
+        long stamp = lock.readLock();
+        try {
+            return vendorIndex.getTotalCents(vendor);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
     // Finds amount of transactions within a date range
+    // Answered from the per-day totals, so it doesn't depend on how many transactions are in the range
+    @Override
     public double getTotalTransactions(LocalDate startDate, LocalDate endDate) {
-        double total = 0;
-        for (Transaction transaction : transactions) {
-            LocalDate transactionDate = transaction.getDateTime().toLocalDate();
-            if ((transactionDate.isEqual(startDate) || transactionDate.isAfter(startDate)) &&
-                    (transactionDate.isEqual(endDate) || transactionDate.isBefore(endDate))) {
-                total += transaction.getAmount();
+        long startNanos = System.nanoTime();
+        double total = getSummary(startDate, endDate).getTotal();
+        LedgerMetrics.record("getTotalTransactions", startNanos, 0, 1);
+        return total;
+    }
+
+    // Finds the total, deposit total, payment total and count within a date range
+    // Null dates leave that side of the range open
+    public RangeSummary getSummary(LocalDate startDate, LocalDate endDate) {
+        return readOptimistically(() -> dailyTotals.getSummary(startDate, endDate));
+    }
+
+    // Balance at the end of the date: the total of every transaction on or before it, in O(log days)
+    public long getBalanceCents(LocalDate date) {
+        return readOptimistically(() -> dailyBalances.getBalance(date));
+    }
+
+    // Balance right after the date/time, transactions at that exact time included
+    // The days before come from the end of day balances, only the rows of its own day are added up.
+    // Both are read as of the same write: the view is published before the write lock is released,
+    // so within one (validated) read the published view matches the balances
+    public long getBalanceCents(LocalDateTime dateTime) {
+        LocalDate date = dateTime.toLocalDate();
+        long[] balanceBefore = new long[1];
+        ReadView view = readOptimistically(() -> {
+            balanceBefore[0] = dailyBalances.getBalance(date.minusDays(1));
+            return publishedView;
+        });
+        TimeIndex sortedRows = view.getTimeIndex();
+        long balance = balanceBefore[0];
+        int end = sortedRows.upperBound(TimeIndex.toKey(dateTime));
+        for (int position = sortedRows.startPosition(date); position < end; position++) {
+            balance += view.getRows().get(sortedRows.rowAt(position)).getAmountCents();
+        }
+        return balance;
+    }
+
+    // Lowest and highest end of day balance from the start date through the end date, in O(log days)
+    // Null dates stand for the first and last day with a transaction
+    public BalanceRange getBalanceRange(LocalDate startDate, LocalDate endDate) {
+        return readOptimistically(() -> dailyBalances.getRange(startDate, endDate));
+    }
+
+    // Runs a read of the trees with an optimistic read first, which doesn't block writers. If a write happened
+    // meanwhile the result (or an exception from arrays that were being replaced) is thrown away and it is
+    // read again under the read lock
+    private <T> T readOptimistically(Supplier<T> read) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = read.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // The trees were changed while being read, falls through to the locked read
             }
         }
-        return total;
+        stamp = lock.readLock();
+        try {
+            return read.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     // Saving transaction to the transactions.csv file
+    // This rewrites the whole file, so it is only used for compaction (see TransactionJournal.compact).
+    // The list is written to a temporary file first and then moved over the old one,
+    // so a crash in the middle never leaves a half written ledger behind
     public void saveTransactions(String file) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
-            for (Transaction transaction : transactions) {
+        long startNanos = System.nanoTime();
+        Path target = Path.of(file).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        List<Transaction> rows = view().getRows();
+        try (BufferedWriter bw = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Transaction transaction : rows) {
                 bw.write(transaction.toString());
                 bw.newLine();
             }
         }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        LedgerMetrics.addBytesWritten(Files.size(target));
+        LedgerMetrics.record("saveTransactions", startNanos, rows.size(), 0);
     }
 
     // Load transactions from transactions.csv
-    public void loadTransactions(String file) throws IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                try {
-                    Transaction transaction = Transaction.parsedTransaction(line);
-                    transactions.add(transaction);
-                } catch (IllegalArgumentException e) {
-                    System.out.println("Error loading transactions: " + e.getMessage());
-                }
-            }
-        }
+    // Uses TransactionFileReader, which works directly on the bytes of the memory-mapped file.
+    // Every complete line ends with a newline. If the last line doesn't, the app stopped while it was
+    // being appended, so that line is skipped (TransactionJournal cuts it off before appending again).
+    // Malformed lines are skipped and collected in the returned report.
+    // Big files are parsed in parallel chunks when there is more than one core, small ones on the current thread
+    public LoadReport loadTransactions(String file) throws IOException {
+        boolean parallel = Files.size(Path.of(file)) >= parallelLoadThreshold
+                && Runtime.getRuntime().availableProcessors() > 1;
+        return loadTransactions(file, parallel);
+    }
+
+    // Same as loadTransactions(file), but lets the caller pick the parallel or single-threaded loader
+    public LoadReport loadTransactions(String file, boolean parallel) throws IOException {
+        long startNanos = System.nanoTime();
+        LoadReport report = addAll(parallel
+                ? sink -> TransactionFileReader.readParallel(Path.of(file), sink)
+                : sink -> new TransactionFileReader().read(Path.of(file), sink));
+        LedgerMetrics.addBytesRead(Files.size(Path.of(file)));
+        LedgerMetrics.record("loadTransactions", startNanos,
+                report.getLoadedCount() + report.getMalformedCount(), report.getLoadedCount());
+        return report;
     }
 
     // Searches for transactions based off of the params (startDate, endDate, description and vendor) which can be skipped if the user chooses for a broader search
+    // Results are sorted by date/time. The search runs as a TransactionQuery: the date filters are applied
+    // through the time index, and with the text index enabled the rows sharing the search terms' trigrams
+    // are checked instead when there are fewer of them than rows in the date range
+    @Override
     public List<Transaction> searchTransactions(LocalDate startDate, LocalDate endDate, String description, String vendor){
         List<Transaction> results = new ArrayList<>();
-        String lowerDescription = (description != null && !description.isBlank()) ? description.toLowerCase() : null;
-        String lowerVendor = (vendor != null && !vendor.isBlank()) ? vendor.toLowerCase() : null;
+        searchTransactions(startDate, endDate, description, vendor, results::add);
+        return results;
+    }
 
-        for (Transaction transaction : this.transactions){
-            LocalDate transactionDate = transaction.getDateTime().toLocalDate();
+    // Same search, but the matches are passed to the action one at a time instead of being collected
+    public void searchTransactions(LocalDate startDate, LocalDate endDate, String description, String vendor,
+                                   Consumer<Transaction> action) {
+        query().from(startDate).to(endDate).descriptionContains(description).vendorContains(vendor).forEach(action);
+    }
 
-            // Start date filter, skips if transaction is before startDate
-            if (startDate != null && transactionDate.isBefore(startDate)) {
-                continue;
-            }
+    // Rows that can contain both search terms according to the trigram indexes,
+    // null when the index is off or the terms are too short to use it
+    IntList findTextCandidates(String lowerDescription, String lowerVendor) {
+        long stamp = lock.readLock();
+        try {
+            return findTextCandidatesLocked(lowerDescription, lowerVendor);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
 
-            // End date filter, skips if transaction is after endDate
-            if (endDate != null && transactionDate.isAfter(endDate)) {
-                continue;
-            }
+    private IntList findTextCandidatesLocked(String lowerDescription, String lowerVendor) {
+        if (descriptionTrigrams == null) {
+            return null;
+        }
+        IntList descriptionCandidates = lowerDescription == null ? null : descriptionTrigrams.findCandidates(lowerDescription);
+        IntList vendorCandidates = lowerVendor == null ? null : vendorTrigrams.findCandidates(lowerVendor);
+        if (descriptionCandidates == null) {
+            return vendorCandidates;
+        }
+        if (vendorCandidates == null) {
+            return descriptionCandidates;
+        }
+        return TrigramIndex.intersect(descriptionCandidates, vendorCandidates);
+    }
 
-            // Description filter, skips if description doesn't contain the search term
-            if (lowerDescription != null) {
-                String transactionDesc = transaction.getDescription();
+    // Checks the description and vendor filters, null terms are skipped
+    static boolean matchesText(Transaction transaction, String lowerDescription, String lowerVendor) {
+        // Description filter, skips if description doesn't contain the search term
+        if (lowerDescription != null) {
+            String transactionDesc = transaction.getDescription();
 
-                if (transactionDesc == null || !transactionDesc.toLowerCase().contains(lowerDescription)){
-                    continue;
-                }
+            if (transactionDesc == null || !transactionDesc.toLowerCase().contains(lowerDescription)){
+                return false;
             }
+        }
 
-            // Vendor Filter, skips if vendor doesn't contain the search term.
-            if (lowerVendor != null) {
-                String transactionVendor = transaction.getVendor();
+        // Vendor Filter, skips if vendor doesn't contain the search term.
+        if (lowerVendor != null) {
+            String transactionVendor = transaction.getVendor();
 
-                if (transactionVendor == null || !transactionVendor.toLowerCase().contains(lowerVendor)){
-                    continue;
-                }
+            if (transactionVendor == null || !transactionVendor.toLowerCase().contains(lowerVendor)){
+                return false;
             }
-
-            results.add(transaction);
         }
-        return results;
+        return true;
     }
 }
@@ -0,0 +1,499 @@
+package com.pluralsight;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Query over a TransactionList built from optional criteria, for example
+//   transactionList.query().from(start).vendor("Amazon").payments().sortBy(Sort.AMOUNT).limit(10).stream()
+// Nothing is collected up front: rows are visited as the stream is consumed, and it stops at the limit.
+// The criteria are pushed down to the indexes: the date bounds pick a range of the time index, and an exact
+// vendor or the trigram index (for the "contains" terms) give candidate rows when there are fewer of them
+// than rows in that range. The other criteria are checked row by row.
+// Results in date order from the time index need no extra memory. Other orders, and candidate rows (which are
+// in the order they were added), go through a heap that only keeps the first offset + limit rows
+public class TransactionQuery {
+    public enum Sort {
+        DATE,
+        DATE_DESCENDING,
+        AMOUNT,
+        AMOUNT_DESCENDING;
+
+        // Reads "date", "date-desc", "amount" or "amount-desc" (as used by the command line and HTTP service)
+        public static Sort fromName(String name) {
+            switch (name.trim().toLowerCase()) {
+                case "date":
+                    return DATE;
+                case "date-desc":
+                    return DATE_DESCENDING;
+                case "amount":
+                    return AMOUNT;
+                case "amount-desc":
+                    return AMOUNT_DESCENDING;
+                default:
+                    throw new IllegalArgumentException("Unknown sort: " + name + " (use date, date-desc, amount or amount-desc)");
+            }
+        }
+    }
+
+    // Without a limit the heap starts this small and grows with the results
+    private static final int initialHeapCapacity = 64;
+
+    private final TransactionList transactionList;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String vendor;
+    private String lowerVendorText;
+    private String lowerDescriptionText;
+    private long minCents = Long.MIN_VALUE;
+    private long maxCents = Long.MAX_VALUE;
+    private Sort sort = Sort.DATE;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    TransactionQuery(TransactionList transactionList) {
+        this.transactionList = transactionList;
+    }
+
+    //   === Criteria, null or blank values are ignored ===
+
+    // First day of the range (included)
+    public TransactionQuery from(LocalDate startDate) {
+        this.startDate = startDate;
+        return this;
+    }
+
+    // Last day of the range (included)
+    public TransactionQuery to(LocalDate endDate) {
+        this.endDate = endDate;
+        return this;
+    }
+
+    // Vendor equal to the name, ignoring case (like getTransactionsByVendor)
+    public TransactionQuery vendor(String vendor) {
+        this.vendor = isBlank(vendor) ? null : vendor;
+        return this;
+    }
+
+    // Vendor containing the text, ignoring case (like the custom search)
+    public TransactionQuery vendorContains(String text) {
+        this.lowerVendorText = isBlank(text) ? null : text.toLowerCase();
+        return this;
+    }
+
+    // Description containing the text, ignoring case
+    public TransactionQuery descriptionContains(String text) {
+        this.lowerDescriptionText = isBlank(text) ? null : text.toLowerCase();
+        return this;
+    }
+
+    // Only positive amounts
+    public TransactionQuery deposits() {
+        minCents = Math.max(minCents, 1);
+        return this;
+    }
+
+    // Only amounts that aren't positive (the same split as the Payments screen)
+    public TransactionQuery payments() {
+        maxCents = Math.min(maxCents, 0);
+        return this;
+    }
+
+    // Amount at least this much (included)
+    public TransactionQuery minAmount(double amount) {
+        return minCents(Money.toCents(amount));
+    }
+
+    // Amount at most this much (included)
+    public TransactionQuery maxAmount(double amount) {
+        return maxCents(Money.toCents(amount));
+    }
+
+    // Same as minAmount, in cents
+    // The amount bounds only narrow the range, so they combine with deposits() and payments() in any order
+    public TransactionQuery minCents(long cents) {
+        minCents = Math.max(minCents, cents);
+        return this;
+    }
+
+    // Same as maxAmount, in cents
+    public TransactionQuery maxCents(long cents) {
+        maxCents = Math.min(maxCents, cents);
+        return this;
+    }
+
+    public TransactionQuery sortBy(Sort sort) {
+        this.sort = sort == null ? Sort.DATE : sort;
+        return this;
+    }
+
+    // Number of matching transactions to skip
+    public TransactionQuery offset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset can't be negative");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    // Most transactions to return
+    public TransactionQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit can't be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    //   === Running the query ===
+
+    // The matching transactions in the requested order, read from a snapshot of the ledger taken now
+    public Stream<Transaction> stream() {
+        return StreamSupport.stream(new Cursor(plan()), false);
+    }
+
+    public void forEach(Consumer<? super Transaction> action) {
+        Cursor cursor = new Cursor(plan());
+        while (cursor.tryAdvance(action)) {
+            // the cursor hands each transaction to the action
+        }
+    }
+
+    // Collects one page (or all results without a limit)
+    public List<Transaction> toList() {
+        return stream().toList();
+    }
+
+    // Total, deposits, payments and count of all matching transactions, ignoring the sort, offset and limit
+    // With only date bounds it comes straight from the per-day totals
+    public RangeSummary summarize() {
+        if (vendor == null && lowerVendorText == null && lowerDescriptionText == null
+                && minCents == Long.MIN_VALUE && maxCents == Long.MAX_VALUE) {
+            return transactionList.getSummary(startDate, endDate);
+        }
+        long startNanos = System.nanoTime();
+        Plan plan = plan();
+        long totalCents = 0;
+        long depositCents = 0;
+        long paymentCents = 0;
+        long count = 0;
+        for (int row = plan.nextRow(); row >= 0; row = plan.nextRow()) {
+            Transaction transaction = plan.rows.get(row);
+            if (plan.matches(transaction)) {
+                long cents = transaction.getAmountCents();
+                totalCents += cents;
+                depositCents += cents > 0 ? cents : 0;
+                paymentCents += cents < 0 ? cents : 0;
+                count++;
+            }
+        }
+        LedgerMetrics.record("query.summarize", startNanos, plan.visited, count);
+        return new RangeSummary(totalCents, depositCents, paymentCents, count);
+    }
+
+    // Adds every matching transaction to the groups in one pass, ignoring the sort, offset and limit
+    public GroupBy groupBy(GroupBy groupBy) {
+        long startNanos = System.nanoTime();
+        Plan plan = plan();
+        long count = 0;
+        for (int row = plan.nextRow(); row >= 0; row = plan.nextRow()) {
+            Transaction transaction = plan.rows.get(row);
+            if (plan.matches(transaction)) {
+                groupBy.add(transaction);
+                count++;
+            }
+        }
+        LedgerMetrics.record("query.groupBy", startNanos, plan.visited, count);
+        return groupBy;
+    }
+
+    // Number of matching transactions, ignoring the offset and limit
+    public long count() {
+        return summarize().getCount();
+    }
+
+    // Picks the rows to visit: the date range of the time index, or the smallest list of candidate rows
+    private Plan plan() {
+        TransactionList.ReadView view = transactionList.view();
+        TimeIndex sortedRows = view.getTimeIndex();
+        int start = sortedRows.startPosition(startDate);
+        int end = sortedRows.endPosition(endDate);
+
+        IntList candidates = null;
+        if (vendor != null) {
+            candidates = transactionList.vendorRows(vendor);
+        }
+        if (lowerVendorText != null || lowerDescriptionText != null) {
+            IntList textCandidates = transactionList.findTextCandidates(lowerDescriptionText, lowerVendorText);
+            if (textCandidates != null && (candidates == null || textCandidates.size() < candidates.size())) {
+                candidates = textCandidates;
+            }
+        }
+        if (candidates != null && candidates.size() < end - start) {
+            return new Plan(view.getRows(), candidates);
+        }
+        return new Plan(view.getRows(), sortedRows, start, end, sort == Sort.DATE_DESCENDING);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    // Rows to visit and the criteria the source doesn't already guarantee
+    private class Plan {
+        private final List<Transaction> rows;
+        private final TimeIndex sortedRows;
+        private final IntList candidates;
+        // In time index positions for a range, in candidate indexes otherwise
+        private int next;
+        private final int end;
+        private final boolean descending;
+        // Candidate rows aren't limited to the date range yet
+        private final boolean checkDates;
+        private long visited;
+
+        // Walks positions start..end of the time index (backwards when descending)
+        private Plan(List<Transaction> rows, TimeIndex sortedRows, int start, int end, boolean descending) {
+            this.rows = rows;
+            this.sortedRows = sortedRows;
+            this.candidates = null;
+            this.next = descending ? end - 1 : start;
+            this.end = descending ? start : end;
+            this.descending = descending;
+            this.checkDates = false;
+        }
+
+        // Walks candidate rows, leaving out the ones added after the view was taken
+        private Plan(List<Transaction> rows, IntList candidates) {
+            this.rows = rows;
+            this.sortedRows = null;
+            this.candidates = candidates;
+            this.next = 0;
+            this.end = candidates.size();
+            this.descending = false;
+            this.checkDates = startDate != null || endDate != null;
+        }
+
+        // Results come out of the source already in the requested order
+        private boolean isInOrder() {
+            return candidates == null && (sort == Sort.DATE || sort == Sort.DATE_DESCENDING);
+        }
+
+        // Next row to look at, -1 at the end
+        private int nextRow() {
+            if (candidates != null) {
+                if (next == end || candidates.get(next) >= rows.size()) {
+                    return -1;
+                }
+                visited++;
+                return candidates.get(next++);
+            }
+            if (descending ? next < end : next >= end) {
+                return -1;
+            }
+            visited++;
+            int row = sortedRows.rowAt(next);
+            next += descending ? -1 : 1;
+            return row;
+        }
+
+        private boolean matches(Transaction transaction) {
+            long cents = transaction.getAmountCents();
+            if (cents < minCents || cents > maxCents) {
+                return false;
+            }
+            if (checkDates) {
+                LocalDate date = transaction.getDateTime().toLocalDate();
+                if ((startDate != null && date.isBefore(startDate)) || (endDate != null && date.isAfter(endDate))) {
+                    return false;
+                }
+            }
+            if (vendor != null && !vendor.equalsIgnoreCase(transaction.getVendor())) {
+                return false;
+            }
+            return TransactionList.matchesText(transaction, lowerDescriptionText, lowerVendorText);
+        }
+    }
+
+    // Hands out the results one at a time
+    // In order sources are filtered on the fly. Otherwise the first tryAdvance fills the heap with the best
+    // offset + limit rows and the results are read from it
+    private class Cursor extends Spliterators.AbstractSpliterator<Transaction> {
+        private final Plan plan;
+        private final long startNanos = System.nanoTime();
+        private int skipped;
+        private int returned;
+        private boolean done;
+        // Sorted results of the heap path, null until filled
+        private int[] sortedRows;
+        private int sortedSize;
+        private int sortedNext;
+
+        private Cursor(Plan plan) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.plan = plan;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            if (done) {
+                return false;
+            }
+            if (returned == limit) {
+                return finish();
+            }
+            if (plan.isInOrder()) {
+                for (int row = plan.nextRow(); row >= 0; row = plan.nextRow()) {
+                    Transaction transaction = plan.rows.get(row);
+                    if (!plan.matches(transaction)) {
+                        continue;
+                    }
+                    if (skipped < offset) {
+                        skipped++;
+                        continue;
+                    }
+                    returned++;
+                    action.accept(transaction);
+                    return true;
+                }
+                return finish();
+            }
+            if (sortedRows == null) {
+                fillFromHeap();
+            }
+            if (sortedNext == sortedSize) {
+                return finish();
+            }
+            returned++;
+            action.accept(plan.rows.get(sortedRows[sortedNext++]));
+            return true;
+        }
+
+        private boolean finish() {
+            done = true;
+            LedgerMetrics.record("query", startNanos, plan.visited, returned);
+            return false;
+        }
+
+        private void fillFromHeap() {
+            long keep = Math.min((long) offset + limit, Integer.MAX_VALUE);
+            TopRows top = new TopRows((int) keep, sort);
+            for (int row = plan.nextRow(); row >= 0; row = plan.nextRow()) {
+                Transaction transaction = plan.rows.get(row);
+                if (plan.matches(transaction)) {
+                    top.offer(sortKey(transaction), row);
+                }
+            }
+            sortedRows = top.drainSorted();
+            sortedSize = sortedRows.length;
+            sortedNext = Math.min(offset, sortedSize);
+        }
+    }
+
+    // Value the results are sorted on, ties keep the order of the time index (row order)
+    private long sortKey(Transaction transaction) {
+        if (sort == Sort.AMOUNT || sort == Sort.AMOUNT_DESCENDING) {
+            return transaction.getAmountCents();
+        }
+        return TimeIndex.toKey(transaction.getDateTime());
+    }
+
+    // Bounded heap that keeps the first capacity rows in sort order out of everything offered
+    // The root is the last of the kept rows, so a new row only goes in when it comes before the root
+    private static class TopRows {
+        private final int capacity;
+        private final boolean descending;
+        private long[] keys;
+        private int[] rows;
+        private int size;
+
+        private TopRows(int capacity, Sort sort) {
+            this.capacity = capacity;
+            this.descending = sort == Sort.DATE_DESCENDING || sort == Sort.AMOUNT_DESCENDING;
+            int initial = Math.min(capacity, initialHeapCapacity);
+            this.keys = new long[Math.max(1, initial)];
+            this.rows = new int[Math.max(1, initial)];
+        }
+
+        private void offer(long key, int row) {
+            if (capacity == 0) {
+                return;
+            }
+            if (size < capacity) {
+                if (size == keys.length) {
+                    int grown = (int) Math.min(capacity, 2L * size);
+                    keys = Arrays.copyOf(keys, grown);
+                    rows = Arrays.copyOf(rows, grown);
+                }
+                keys[size] = key;
+                rows[size] = row;
+                siftUp(size++);
+            } else if (comesBefore(key, row, keys[0], rows[0])) {
+                keys[0] = key;
+                rows[0] = row;
+                siftDown(0);
+            }
+        }
+
+        // Empties the heap, the rows come out in sort order
+        private int[] drainSorted() {
+            int[] sorted = new int[size];
+            while (size > 0) {
+                sorted[size - 1] = rows[0];
+                size--;
+                keys[0] = keys[size];
+                rows[0] = rows[size];
+                siftDown(0);
+            }
+            return sorted;
+        }
+
+        // Ascending orders break ties by row, descending orders are the exact reverse
+        private boolean comesBefore(long key, int row, long otherKey, int otherRow) {
+            int order = key != otherKey ? Long.compare(key, otherKey) : Integer.compare(row, otherRow);
+            return descending ? order > 0 : order < 0;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!comesBefore(keys[parent], rows[parent], keys[index], rows[index])) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && comesBefore(keys[child], rows[child], keys[child + 1], rows[child + 1])) {
+                    child++;
+                }
+                if (!comesBefore(keys[index], rows[index], keys[child], rows[child])) {
+                    return;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+            int row = rows[i];
+            rows[i] = rows[j];
+            rows[j] = row;
+        }
+    }
+}
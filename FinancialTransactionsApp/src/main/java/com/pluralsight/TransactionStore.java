@@ -0,0 +1,27 @@
+package com.pluralsight;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// The queries the app runs against the ledger, so the same reports work on different storage layouts
+// TransactionList keeps Transaction objects, ColumnarTransactionStore keeps each field in its own array,
+// SegmentedLedger splits the ledger into period files and OffHeapTransactionStore keeps rows outside the heap
+public interface TransactionStore {
+    // Adds transaction to the store
+    void addTransaction(Transaction transaction);
+
+    // Gets all transactions
+    List<Transaction> getTransactions();
+
+    // Finds transactions within a date range (both dates included)
+    List<Transaction> getTransactions(LocalDate startDate, LocalDate endDate);
+
+    // Finds transactions for a vendor (ignoring case)
+    List<Transaction> getTransactionsByVendor(String vendor);
+
+    // Finds the total amount of transactions within a date range (both dates included)
+    double getTotalTransactions(LocalDate startDate, LocalDate endDate);
+
+    // Searches by optional criteria, null (or blank) criteria are skipped
+    List<Transaction> searchTransactions(LocalDate startDate, LocalDate endDate, String description, String vendor);
+}
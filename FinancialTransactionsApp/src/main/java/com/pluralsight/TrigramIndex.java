@@ -0,0 +1,88 @@
+package com.pluralsight;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Inverted index from every 3 character piece (trigram) of a text field to the rows containing it
+// A "contains" search looks up the trigrams of the search term and intersects their row lists.
+// The rows left are only candidates (the trigrams could be in a different order), so the caller
+// still checks them with String.contains, but that is done for a handful of rows instead of all of them
+public class TrigramIndex {
+    private final Map<Long, IntList> postings = new HashMap<>();
+
+    // Adds the trigrams of a row's text, rows must be added in increasing order
+    public void add(int row, String text) {
+        if (text == null) {
+            return;
+        }
+        String lowerText = text.toLowerCase();
+        for (int i = 0; i + 3 <= lowerText.length(); i++) {
+            IntList rows = postings.computeIfAbsent(trigram(lowerText, i), k -> new IntList(4));
+            // The same trigram can show up more than once in a text
+            if (rows.isEmpty() || rows.last() != row) {
+                rows.add(row);
+            }
+        }
+    }
+
+    // Returns the rows (in increasing order) that have every trigram of the term
+    // Returns null when the term is shorter than 3 characters, the index can't narrow those down
+    public IntList findCandidates(String term) {
+        String lowerTerm = term.toLowerCase();
+        if (lowerTerm.length() < 3) {
+            return null;
+        }
+
+        List<IntList> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= lowerTerm.length(); i++) {
+            IntList rows = postings.get(trigram(lowerTerm, i));
+            if (rows == null) {
+                return new IntList(1);
+            }
+            lists.add(rows);
+        }
+
+        // Starts from the shortest list so the intermediate results stay small
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        IntList candidates = lists.get(0).snapshot();
+        for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+            candidates = intersect(candidates, lists.get(i));
+        }
+        return candidates;
+    }
+
+    // Intersects two sorted lists by binary searching the values of the small one in the big one
+    public static IntList intersect(IntList small, IntList big) {
+        if (small.size() > big.size()) {
+            IntList swap = small;
+            small = big;
+            big = swap;
+        }
+        IntList result = new IntList(small.size());
+        int low = 0;
+        for (int i = 0; i < small.size() && low < big.size(); i++) {
+            int value = small.get(i);
+            int high = big.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (big.get(middle) < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (low < big.size() && big.get(low) == value) {
+                result.add(value);
+                low++;
+            }
+        }
+        return result;
+    }
+
+    // Packs three characters into one key
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+}
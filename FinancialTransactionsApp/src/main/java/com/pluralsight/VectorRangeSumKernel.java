@@ -0,0 +1,50 @@
+package com.pluralsight;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Vector API version of RangeSumKernel.scalarSum
+// Each step loads a vector of date/times and amounts, builds a mask of the rows inside the window and
+// adds the masked amounts into running vectors for the total, deposits, payments and count.
+// There are no branches per row, so the loop runs at the speed the two arrays can be read from memory.
+// Only used through RangeSumKernel, which checks that the jdk.incubator.vector module is there first
+class VectorRangeSumKernel {
+    private static final VectorSpecies<Long> species = LongVector.SPECIES_PREFERRED;
+
+    private VectorRangeSumKernel() {}
+
+    static int laneCount() {
+        return species.length();
+    }
+
+    static RangeSummary sum(long[] epochSeconds, long[] amountCents, int size, long from, long to) {
+        LongVector total = LongVector.zero(species);
+        LongVector deposits = LongVector.zero(species);
+        LongVector payments = LongVector.zero(species);
+        LongVector count = LongVector.zero(species);
+        LongVector one = LongVector.broadcast(species, 1);
+
+        int vectorEnd = species.loopBound(size);
+        int row = 0;
+        for (; row < vectorEnd; row += species.length()) {
+            LongVector seconds = LongVector.fromArray(species, epochSeconds, row);
+            LongVector cents = LongVector.fromArray(species, amountCents, row);
+            VectorMask<Long> inRange = seconds.compare(VectorOperators.GE, from)
+                    .and(seconds.compare(VectorOperators.LT, to));
+
+            total = total.add(cents, inRange);
+            deposits = deposits.add(cents, inRange.and(cents.compare(VectorOperators.GT, 0)));
+            payments = payments.add(cents, inRange.and(cents.compare(VectorOperators.LT, 0)));
+            count = count.add(one, inRange);
+        }
+
+        RangeSummary tail = RangeSumKernel.scalarSum(epochSeconds, amountCents, row, size, from, to);
+        return new RangeSummary(
+                total.reduceLanes(VectorOperators.ADD) + tail.getTotalCents(),
+                deposits.reduceLanes(VectorOperators.ADD) + tail.getDepositCents(),
+                payments.reduceLanes(VectorOperators.ADD) + tail.getPaymentCents(),
+                count.reduceLanes(VectorOperators.ADD) + tail.getCount());
+    }
+}
@@ -0,0 +1,59 @@
+package com.pluralsight;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Hash index from vendor name (ignoring case) to the rows of that vendor
+// A vendor lookup only touches the vendor's own rows, and each vendor keeps its count and total
+public class VendorIndex {
+
+    // Rows and running total of one vendor
+    private static class VendorPostings {
+        private final IntList rows = new IntList();
+        private long totalCents;
+    }
+
+    private static final IntList noRows = new IntList(1);
+
+    private final Map<String, VendorPostings> vendors = new HashMap<>();
+
+    // Adds a row for the vendor, rows must be added in increasing order
+    public void add(String vendor, int row, long amountCents) {
+        VendorPostings postings = vendors.computeIfAbsent(key(vendor), k -> new VendorPostings());
+        postings.rows.add(row);
+        postings.totalCents += amountCents;
+    }
+
+    // Rows of the vendor in the order they were added, empty if the vendor is unknown
+    public IntList getRows(String vendor) {
+        VendorPostings postings = vendor == null ? null : vendors.get(key(vendor));
+        return postings == null ? noRows : postings.rows;
+    }
+
+    public int getCount(String vendor) {
+        return getRows(vendor).size();
+    }
+
+    public long getTotalCents(String vendor) {
+        VendorPostings postings = vendor == null ? null : vendors.get(key(vendor));
+        return postings == null ? 0 : postings.totalCents;
+    }
+
+    // Number of distinct vendors
+    public int size() {
+        return vendors.size();
+    }
+
+    // Folds case the same way String.equalsIgnoreCase compares characters,
+    // so two vendors get the same key exactly when equalsIgnoreCase says they are equal
+    static String key(String vendor) {
+        if (vendor == null) {
+            return "";
+        }
+        char[] chars = new char[vendor.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(vendor.charAt(i)));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,128 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Imports checked against a set of the lines already seen: duplicates of the ledger and of earlier lines
+// are skipped, malformed lines reported, the rest written to the journal and added to the list
+class BulkImporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void importMatchesABruteForceDedupe() throws IOException {
+        Random random = new Random(6);
+        // The ledger itself has no repeats, so it matches the set below line for line
+        Set<String> ledgerSet = new LinkedHashSet<>();
+        while (ledgerSet.size() < 2000) {
+            ledgerSet.add(randomLine(random));
+        }
+        List<String> ledgerLines = new ArrayList<>(ledgerSet);
+        // Several thousand lines, so they cross the pipeline's batches, with repeats and a few bad lines
+        List<String> importLines = new ArrayList<>();
+        List<Long> malformedLineNumbers = new ArrayList<>();
+        for (int i = 0; i < 6000; i++) {
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                importLines.add(ledgerLines.get(random.nextInt(ledgerLines.size())));
+            } else if (kind == 1 && !importLines.isEmpty()) {
+                importLines.add(importLines.get(random.nextInt(importLines.size())));
+            } else if (kind == 2 && i % 7 == 0) {
+                importLines.add("2024-13-01 10:00:00|Bad month|Vendor|1.00");
+            } else {
+                importLines.add(randomLine(random));
+            }
+            // Repeats of a bad line are reported again
+            if (importLines.get(importLines.size() - 1).startsWith("2024-13")) {
+                malformedLineNumbers.add((long) importLines.size());
+            }
+        }
+
+        Set<String> expected = new LinkedHashSet<>(ledgerLines);
+        long expectedDuplicates = 0;
+        for (String line : importLines) {
+            if (!line.startsWith("2024-13") && !expected.add(line)) {
+                expectedDuplicates++;
+            }
+        }
+
+        Path csv = directory.resolve("transactions.csv");
+        Path importFile = directory.resolve("import.txt");
+        Files.write(csv, ledgerLines, StandardCharsets.UTF_8);
+        Files.write(importFile, importLines, StandardCharsets.UTF_8);
+        TransactionList transactionList = new TransactionList();
+        transactionList.loadTransactions(csv.toString());
+        BulkImporter importer;
+        LoadReport report;
+        try (TransactionJournal journal = openJournal(csv)) {
+            importer = new BulkImporter(transactionList, journal);
+            report = importer.importFile(importFile, BulkImporter.Format.detect(importFile));
+        }
+
+        assertEquals(expected.size() - ledgerLines.size(), importer.getAddedCount());
+        assertEquals(expectedDuplicates, importer.getDuplicateCount());
+        assertEquals((long) malformedLineNumbers.size(), report.getMalformedCount());
+        for (int i = 0; i < malformedLineNumbers.size(); i++) {
+            assertEquals((long) malformedLineNumbers.get(i), report.getMalformedLines().get(i).getLineNumber());
+        }
+        assertEquals(new ArrayList<>(expected), Files.readAllLines(csv));
+        assertEquals(new ArrayList<>(expected), transactionList.getTransactions().stream().map(Transaction::toString).toList());
+    }
+
+    @Test
+    void csvFilesWithHeadersQuotesAndSplitDates() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Path importFile = directory.resolve("bank.csv");
+        Files.write(csv, List.of("2024-03-01 09:00:00|Paycheck|Employer|2500.00"), StandardCharsets.UTF_8);
+        Files.write(importFile, List.of(
+                "date,time,description,vendor,amount",
+                "2024-03-01,09:00:00,Paycheck,Employer,2500",
+                "2024-03-02,12:30,\"Lunch, with \"\"Sam\"\"\",Cafe,-11.5",
+                "",
+                "2024-03-03,08:00:00,Fuel,Gas|Station,-40.00",
+                "2024-03-04,08:00:00,Books,\"Shop,-9.99",
+                "2024-03-05,07:15:00,Coffee,Cafe,-3.333"), StandardCharsets.UTF_8);
+
+        TransactionList transactionList = new TransactionList();
+        transactionList.loadTransactions(csv.toString());
+        BulkImporter importer;
+        LoadReport report;
+        try (TransactionJournal journal = openJournal(csv)) {
+            importer = new BulkImporter(transactionList, journal);
+            assertEquals(BulkImporter.Format.CSV, BulkImporter.Format.detect(importFile));
+            report = importer.importFile(importFile, BulkImporter.Format.CSV);
+        }
+
+        assertEquals(2L, importer.getAddedCount());
+        assertEquals(1L, importer.getDuplicateCount());
+        assertEquals(2L, report.getMalformedCount());
+        assertEquals(5L, report.getMalformedLines().get(0).getLineNumber());
+        assertEquals(6L, report.getMalformedLines().get(1).getLineNumber());
+        assertEquals(List.of("2024-03-01 09:00:00|Paycheck|Employer|2500.00",
+                "2024-03-02 12:30:00|Lunch, with \"Sam\"|Cafe|-11.50",
+                "2024-03-05 07:15:00|Coffee|Cafe|-3.33"), Files.readAllLines(csv));
+    }
+
+    // Few distinct values, so random lines repeat now and then by themselves
+    private static String randomLine(Random random) {
+        return String.format("2024-%02d-%02d %02d:%02d:00|%s|%s|%d.%02d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+                random.nextInt(24), random.nextInt(4) * 15, random.nextBoolean() ? "Groceries" : "Fuel",
+                random.nextBoolean() ? "Market" : "Gas", random.nextInt(3) - 2, random.nextInt(100));
+    }
+
+    private static TransactionJournal openJournal(Path file) throws IOException {
+        return new TransactionJournal(file.toString(), TransactionJournal.FsyncPolicy.NEVER);
+    }
+}
@@ -0,0 +1,83 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The columnar store answers like TransactionList, in time order or not
+class ColumnarTransactionStoreTest {
+    @Test
+    void answersLikeTransactionListWithBackDatedRows() {
+        List<Transaction> rows = randomRows(3000, 11);
+        ColumnarTransactionStore store = new ColumnarTransactionStore();
+        TransactionList expected = new TransactionList();
+        for (Transaction transaction : rows) {
+            store.addTransaction(transaction);
+            expected.addTransaction(transaction);
+        }
+
+        assertEquals(3000, store.size());
+        assertEquals(lines(expected.getTransactions()), lines(store.getTransactions()));
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        LocalDate end = LocalDate.of(2024, 5, 31);
+        assertEquals(lines(expected.getTransactions(start, end)), lines(store.getTransactions(start, end)));
+        assertEquals(lines(expected.getTransactionsByVendor("shop 4")), lines(store.getTransactionsByVendor("SHOP 4")));
+        assertEquals(lines(expected.searchTransactions(null, end, "rent", "shop")),
+                lines(store.searchTransactions(null, end, "rent", "shop")));
+    }
+
+    @Test
+    void summariesMatchABruteForceScan() {
+        List<Transaction> rows = randomRows(5000, 3);
+        ColumnarTransactionStore store = new ColumnarTransactionStore();
+        rows.forEach(store::addTransaction);
+
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            LocalDate start = LocalDate.of(2023, 12, 1).plusDays(random.nextInt(420));
+            LocalDate end = start.plusDays(random.nextInt(120));
+            long total = 0;
+            long deposits = 0;
+            long payments = 0;
+            long count = 0;
+            for (Transaction transaction : rows) {
+                LocalDate date = transaction.getDateTime().toLocalDate();
+                if (!date.isBefore(start) && !date.isAfter(end)) {
+                    long cents = transaction.getAmountCents();
+                    total += cents;
+                    deposits += Math.max(cents, 0);
+                    payments += Math.min(cents, 0);
+                    count++;
+                }
+            }
+            assertEquals(new RangeSummary(total, deposits, payments, count).toString(),
+                    store.getSummary(start, end).toString());
+        }
+        assertEquals(rows.size(), store.getSummary(null, null).getCount());
+    }
+
+    // Rows spread over 2024 with distinct date/times, shuffled so many are back-dated
+    private static List<Transaction> randomRows(int count, long seed) {
+        Random random = new Random(seed);
+        List<Transaction> rows = new ArrayList<>(count);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        String[] descriptions = {"Rent", "Groceries", "Paycheck", "Rental car", "Coffee"};
+        for (int i = 0; i < count; i++) {
+            rows.add(Transaction.ofCents(start.plusMinutes(157L * i), descriptions[i % descriptions.length],
+                    "Shop " + (i % 9), random.nextInt(400_000) - 200_000));
+        }
+        Collections.shuffle(rows, random);
+        return rows;
+    }
+
+    private static List<String> lines(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::toString).toList();
+    }
+}
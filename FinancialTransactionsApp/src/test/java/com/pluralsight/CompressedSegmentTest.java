@@ -0,0 +1,100 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The block file format, and compressing segments through SegmentedLedger
+class CompressedSegmentTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void blocksReadBackTheRowsAndTotals() throws IOException {
+        List<Transaction> rows = sortedRows(5000, LocalDateTime.of(2024, 1, 1, 0, 0));
+        Path file = directory.resolve("2024-01.blocks");
+        long size = CompressedSegment.write(file, rows);
+
+        CompressedSegment segment = CompressedSegment.open(file);
+        assertEquals(Files.size(file), size);
+        assertTrue(segment.getBlockCount() > 1);
+        List<Transaction> read = new ArrayList<>();
+        long totalCents = 0;
+        long count = 0;
+        for (int block = 0; block < segment.getBlockCount(); block++) {
+            read.addAll(List.of(segment.readBlock(block)));
+            totalCents += segment.getSummary(block).getTotalCents();
+            count += segment.getSummary(block).getCount();
+        }
+        assertEquals(lines(rows), lines(read));
+        assertEquals(rows.stream().mapToLong(Transaction::getAmountCents).sum(), totalCents);
+        assertEquals(rows.size(), count);
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path file = directory.resolve("2024-01.blocks");
+        CompressedSegment.write(file, sortedRows(100, LocalDateTime.of(2024, 1, 1, 0, 0)));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        assertThrows(IOException.class, () -> CompressedSegment.open(file));
+    }
+
+    @Test
+    void compressedPeriodKeepsRowsAddedWhileItsWriterWasOpen() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.write(csv, lines(sortedRows(1500, LocalDateTime.of(2024, 1, 1, 0, 0))));
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = LocalDate.of(2024, 1, 31);
+        try (SegmentedLedger ledger = SegmentedLedger.open(csv.toString(), directory.resolve("segments").toString(),
+                SegmentedLedger.Period.MONTH)) {
+            assertEquals(1500, ledger.getTransactions(start, end).size());
+            // Buffered in the segment's writer when the period gets compressed
+            ledger.addTransaction(new Transaction(LocalDateTime.of(2024, 1, 31, 23, 0), "Late", "Shop", -1.0));
+            assertEquals(1, ledger.compressColdSegments(LocalDate.of(2024, 6, 1)));
+            ledger.addTransaction(new Transaction(LocalDateTime.of(2024, 1, 31, 23, 30), "Later", "Shop", -1.0));
+
+            assertEquals(1502, ledger.getTransactions(start, end).size());
+        }
+    }
+
+    @Test
+    void smallPeriodStaysPlain() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.write(csv, lines(sortedRows(10, LocalDateTime.of(2024, 1, 1, 0, 0))));
+        try (SegmentedLedger ledger = SegmentedLedger.open(csv.toString(), directory.resolve("segments").toString(),
+                SegmentedLedger.Period.MONTH)) {
+            assertEquals(0, ledger.compressColdSegments(LocalDate.of(2024, 6, 1)));
+            assertEquals(10, ledger.getTransactions().size());
+        }
+    }
+
+    // One row every 20 minutes from the start, with varied text so the blocks don't compress to nothing
+    private static List<Transaction> sortedRows(int count, LocalDateTime start) {
+        List<Transaction> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(Transaction.ofCents(start.plusMinutes(20L * i), "Purchase " + i, "Vendor " + (i % 17),
+                    (i % 3 == 0 ? 1 : -1) * (100L + i * 7L)));
+        }
+        return rows;
+    }
+
+    private static List<String> lines(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::toString).toList();
+    }
+}
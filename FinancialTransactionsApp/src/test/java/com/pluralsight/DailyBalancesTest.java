@@ -0,0 +1,102 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Segment tree balances checked against running sums computed day by day
+class DailyBalancesTest {
+    @Test
+    void balancesMatchABruteForceRunningSum() {
+        Random random = new Random(9);
+        DailyBalances balances = new DailyBalances();
+        List<LocalDate> dates = new ArrayList<>();
+        List<Long> amounts = new ArrayList<>();
+        LocalDate first = LocalDate.of(2023, 3, 1);
+        for (int i = 0; i < 3000; i++) {
+            // Back-dated and far-off days too, so the tree is rebuilt on both sides
+            LocalDate date = i == 700 ? first.minusYears(2) : i == 1500 ? first.plusYears(3)
+                    : first.plusDays(random.nextInt(600) - 50);
+            long cents = random.nextInt(100_001) - 50_000;
+            balances.add(date, cents);
+            dates.add(date);
+            amounts.add(cents);
+
+            if (i % 101 == 0) {
+                LocalDate day = first.plusDays(random.nextInt(800) - 100);
+                assertEquals(balanceOn(dates, amounts, day), balances.getBalance(day));
+            }
+        }
+
+        for (LocalDate day = first.minusYears(3); day.isBefore(first.plusYears(4)); day = day.plusDays(13)) {
+            assertEquals(balanceOn(dates, amounts, day), balances.getBalance(day));
+        }
+        for (int i = 0; i < 100; i++) {
+            LocalDate start = first.plusDays(random.nextInt(900) - 200);
+            LocalDate end = start.plusDays(random.nextInt(300));
+            assertEquals(bruteForceRange(dates, amounts, start, end).toString(),
+                    balances.getRange(start, end).toString());
+        }
+    }
+
+    @Test
+    void openRangeRunsFromFirstToLastTransaction() {
+        DailyBalances balances = new DailyBalances();
+        balances.add(LocalDate.of(2024, 1, 10), 1000);
+        balances.add(LocalDate.of(2024, 1, 20), -3000);
+        // Back-dated, changes every later day
+        balances.add(LocalDate.of(2024, 1, 5), 500);
+
+        assertEquals(0, balances.getBalance(LocalDate.of(2024, 1, 4)));
+        assertEquals(1500, balances.getBalance(LocalDate.of(2024, 1, 19)));
+        assertEquals(-1500, balances.getBalance(LocalDate.of(2030, 1, 1)));
+        BalanceRange range = balances.getRange(null, null);
+        assertEquals(-1500, range.getMinCents());
+        assertEquals(LocalDate.of(2024, 1, 20), range.getMinDate());
+        assertEquals(1500, range.getMaxCents());
+        assertEquals(LocalDate.of(2024, 1, 10), range.getMaxDate());
+    }
+
+    @Test
+    void emptyBalancesAreZero() {
+        DailyBalances balances = new DailyBalances();
+        assertEquals(0, balances.getBalance(LocalDate.of(2024, 1, 1)));
+        assertEquals(null, balances.getRange(null, null).getMinDate());
+    }
+
+    private static long balanceOn(List<LocalDate> dates, List<Long> amounts, LocalDate day) {
+        long balance = 0;
+        for (int i = 0; i < dates.size(); i++) {
+            if (!dates.get(i).isAfter(day)) {
+                balance += amounts.get(i);
+            }
+        }
+        return balance;
+    }
+
+    // Lowest and highest end of day balance, first day each is reached
+    private static BalanceRange bruteForceRange(List<LocalDate> dates, List<Long> amounts, LocalDate start,
+                                                LocalDate end) {
+        long minCents = Long.MAX_VALUE;
+        LocalDate minDate = null;
+        long maxCents = Long.MIN_VALUE;
+        LocalDate maxDate = null;
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            long balance = balanceOn(dates, amounts, day);
+            if (balance < minCents) {
+                minCents = balance;
+                minDate = day;
+            }
+            if (balance > maxCents) {
+                maxCents = balance;
+                maxDate = day;
+            }
+        }
+        return new BalanceRange(minCents, minDate, maxCents, maxDate);
+    }
+}
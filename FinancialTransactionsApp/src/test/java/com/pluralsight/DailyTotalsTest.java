@@ -0,0 +1,85 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Fenwick tree range totals checked against a brute-force sum over the same amounts
+class DailyTotalsTest {
+    @Test
+    void rangeTotalsMatchABruteForceSum() {
+        Random random = new Random(3);
+        DailyTotals totals = new DailyTotals();
+        List<LocalDate> dates = new ArrayList<>();
+        List<Long> amounts = new ArrayList<>();
+        LocalDate first = LocalDate.of(2022, 6, 15);
+        for (int i = 0; i < 4000; i++) {
+            // Back-dated and far-off days too, so the trees are rebuilt on both sides
+            LocalDate date = i == 1000 ? first.minusYears(3) : i == 2000 ? first.plusYears(4)
+                    : first.plusDays(random.nextInt(900) - 100);
+            long cents = random.nextInt(200_001) - 100_000;
+            totals.add(date, cents);
+            dates.add(date);
+            amounts.add(cents);
+
+            if (i % 97 == 0) {
+                LocalDate start = first.plusDays(random.nextInt(1000) - 150);
+                LocalDate end = start.plusDays(random.nextInt(200));
+                assertEquals(bruteForce(dates, amounts, start, end).toString(), totals.getSummary(start, end).toString());
+            }
+        }
+
+        LocalDate start = first.minusYears(5);
+        LocalDate end = first.plusYears(5);
+        assertEquals(bruteForce(dates, amounts, null, null).toString(), totals.getSummary(null, null).toString());
+        assertEquals(bruteForce(dates, amounts, start, end).toString(), totals.getSummary(start, end).toString());
+        assertEquals(bruteForce(dates, amounts, null, first).toString(), totals.getSummary(null, first).toString());
+        assertEquals(bruteForce(dates, amounts, first, null).toString(), totals.getSummary(first, null).toString());
+    }
+
+    @Test
+    void emptyAndReversedRangesAreZero() {
+        DailyTotals totals = new DailyTotals();
+        assertEquals(0, totals.getSummary(null, null).getCount());
+        totals.add(LocalDate.of(2024, 1, 10), 500);
+        assertEquals(0, totals.getSummary(LocalDate.of(2024, 1, 11), LocalDate.of(2024, 1, 9)).getCount());
+        assertEquals(0, totals.getSummary(LocalDate.of(2030, 1, 1), null).getCount());
+        assertEquals(500, totals.getSummary(LocalDate.of(2024, 1, 10), LocalDate.of(2024, 1, 10)).getTotalCents());
+    }
+
+    @Test
+    void copyKeepsItsTotals() {
+        DailyTotals totals = new DailyTotals();
+        totals.add(LocalDate.of(2024, 1, 10), 500);
+        DailyTotals copy = totals.copy();
+        totals.add(LocalDate.of(2024, 1, 10), -200);
+        totals.add(LocalDate.of(2010, 1, 1), 1);
+
+        assertEquals(301, totals.getSummary(null, null).getTotalCents());
+        assertEquals(500, copy.getSummary(null, null).getTotalCents());
+        assertEquals(1, copy.getSummary(null, null).getCount());
+    }
+
+    private static RangeSummary bruteForce(List<LocalDate> dates, List<Long> amounts, LocalDate start, LocalDate end) {
+        long total = 0;
+        long deposits = 0;
+        long payments = 0;
+        long count = 0;
+        for (int i = 0; i < dates.size(); i++) {
+            LocalDate date = dates.get(i);
+            if ((start == null || !date.isBefore(start)) && (end == null || !date.isAfter(end))) {
+                long cents = amounts.get(i);
+                total += cents;
+                deposits += Math.max(cents, 0);
+                payments += Math.min(cents, 0);
+                count++;
+            }
+        }
+        return new RangeSummary(total, deposits, payments, count);
+    }
+}
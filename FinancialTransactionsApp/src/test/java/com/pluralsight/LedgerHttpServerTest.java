@@ -0,0 +1,124 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Requests against a server on a free loopback port: appends go to the journal before the list,
+// rejected ones change neither
+class LedgerHttpServerTest {
+    @TempDir
+    Path directory;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void postedTransactionsAreJournaledAndQueryable() throws Exception {
+        Path csv = directory.resolve("transactions.csv");
+        Files.write(csv, List.of("2024-03-01 09:00:00|Paycheck|Employer|2500.00"), StandardCharsets.UTF_8);
+        TransactionList transactionList = new TransactionList();
+        transactionList.loadTransactions(csv.toString());
+        try (TransactionJournal journal = openJournal(csv)) {
+            LedgerHttpServer server = new LedgerHttpServer(transactionList, journal, 0);
+            server.start();
+            try {
+                HttpResponse<String> posted = post(server, "[{\"dateTime\":\"2024-03-02 12:00:00\",\"description\":\"Lunch\","
+                        + "\"vendor\":\"Cafe\",\"amount\":\"-11.50\"},{\"dateTime\":\"2024-03-03 08:00:00\","
+                        + "\"description\":\"Fuel\",\"vendor\":\"Gas\",\"amount\":-40}]");
+                assertEquals(201, posted.statusCode());
+                assertEquals("{\"added\":2}", posted.body());
+                assertEquals(List.of("2024-03-01 09:00:00|Paycheck|Employer|2500.00",
+                        "2024-03-02 12:00:00|Lunch|Cafe|-11.50",
+                        "2024-03-03 08:00:00|Fuel|Gas|-40.00"), Files.readAllLines(csv));
+
+                HttpResponse<String> totals = get(server, "/totals?from=2024-03-02&to=2024-03-31");
+                assertEquals(200, totals.statusCode());
+                assertEquals("{\"total\":-51.50,\"deposits\":0.00,\"payments\":-51.50,\"count\":2}", totals.body());
+
+                HttpResponse<String> page = get(server, "/transactions?from=2024-03-01&offset=1&limit=1");
+                assertEquals(200, page.statusCode());
+                assertTrue(page.body().startsWith("{\"offset\":1,\"limit\":1,\"transactions\":[{"));
+                assertTrue(page.body().contains("Lunch"));
+                assertTrue(!page.body().contains("Paycheck") && !page.body().contains("Fuel"));
+                assertTrue(page.body().endsWith("],\"total\":3}"));
+            } finally {
+                server.stop(0);
+            }
+        }
+    }
+
+    @Test
+    void invalidBatchesAreRejectedWhole() throws Exception {
+        Path csv = directory.resolve("transactions.csv");
+        TransactionList transactionList = new TransactionList();
+        try (TransactionJournal journal = openJournal(csv)) {
+            LedgerHttpServer server = new LedgerHttpServer(transactionList, journal, 0);
+            server.start();
+            try {
+                // The second one would split the ledger line
+                HttpResponse<String> separator = post(server, "[{\"description\":\"Lunch\",\"vendor\":\"Cafe\",\"amount\":1},"
+                        + "{\"description\":\"a|b\",\"vendor\":\"Cafe\",\"amount\":1}]");
+                assertEquals(400, separator.statusCode());
+                assertTrue(separator.body().contains("transaction 1"));
+                assertEquals(400, post(server, "{\"description\":\"x\\ny\",\"amount\":1}").statusCode());
+                assertEquals(400, post(server, "{\"description\":\"Lunch\"}").statusCode());
+                assertEquals(400, post(server, "{\"amount\":\"ten\"}").statusCode());
+                assertEquals(400, get(server, "/totals?from=March").statusCode());
+                assertEquals(404, get(server, "/totals/extra").statusCode());
+            } finally {
+                server.stop(0);
+            }
+            assertEquals(0, transactionList.getTransactions().size());
+        }
+        assertEquals(0L, Files.size(csv));
+    }
+
+    @Test
+    void failedJournalWriteLeavesTheListAlone() throws Exception {
+        Path csv = directory.resolve("transactions.csv");
+        TransactionList transactionList = new TransactionList();
+        TransactionJournal journal = openJournal(csv);
+        // Every write fails from here on
+        journal.close();
+        LedgerHttpServer server = new LedgerHttpServer(transactionList, journal, 0);
+        server.start();
+        try {
+            HttpResponse<String> posted = post(server, "{\"description\":\"Lunch\",\"vendor\":\"Cafe\",\"amount\":-11}");
+            assertEquals(500, posted.statusCode());
+        } finally {
+            server.stop(0);
+        }
+        assertEquals(0, transactionList.getTransactions().size());
+    }
+
+    private HttpResponse<String> get(LedgerHttpServer server, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri(server, path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(LedgerHttpServer server, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri(server, "/transactions"))
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(LedgerHttpServer server, String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private static TransactionJournal openJournal(Path file) throws IOException {
+        return new TransactionJournal(file.toString(), TransactionJournal.FsyncPolicy.NEVER);
+    }
+}
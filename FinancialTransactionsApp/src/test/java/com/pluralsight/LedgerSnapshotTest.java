@@ -0,0 +1,128 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Saving and loading the binary snapshot, and replaying the lines appended after it
+class LedgerSnapshotTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadsSnapshotAndReplaysAppendedLines() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Path snapshot = directory.resolve("transactions.snapshot");
+        // Out of time order on purpose, so the stored time index has to be the sorted one
+        Files.write(csv, List.of(
+                "2024-03-05 08:00:00|Groceries|Market|-54.20",
+                "2024-03-01 09:00:00|Paycheck|Employer|2500.00",
+                "2024-03-03 18:45:00|Dinner|Bistro|-38.75"), StandardCharsets.UTF_8);
+        TransactionList original = new TransactionList();
+        try (TransactionJournal journal = openJournal(csv)) {
+            original.loadTransactions(csv.toString());
+            LedgerSnapshot.save(original, csv.toString(), snapshot.toString());
+
+            Transaction appended = new Transaction(LocalDateTime.of(2024, 3, 2, 12, 0), "Lunch", "Cafe", -11.0);
+            original.addTransaction(appended);
+            journal.append(appended);
+        }
+
+        TransactionList restored = new TransactionList();
+        LedgerSnapshot.LoadResult result = LedgerSnapshot.load(restored, csv.toString(), snapshot.toString());
+        assertTrue(result.isLoaded());
+        assertEquals(1, result.getReplayReport().getLoadedCount());
+        assertEquals(lines(original.getTransactions()), lines(restored.getTransactions()));
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        LocalDate end = LocalDate.of(2024, 3, 31);
+        assertEquals(lines(original.getTransactions(start, end)), lines(restored.getTransactions(start, end)));
+        assertEquals(original.getBalanceCents(end), restored.getBalanceCents(end));
+    }
+
+    @Test
+    void ignoresSnapshotOfEditedFile() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Path snapshot = directory.resolve("transactions.snapshot");
+        Files.write(csv, List.of(
+                "2024-03-01 09:00:00|Paycheck|Employer|2500.00",
+                "2024-03-03 18:45:00|Dinner|Bistro|-38.75"), StandardCharsets.UTF_8);
+        TransactionList original = new TransactionList();
+        original.loadTransactions(csv.toString());
+        LedgerSnapshot.save(original, csv.toString(), snapshot.toString());
+
+        // Same length, so only the fingerprint can tell
+        Files.write(csv, List.of(
+                "2024-03-01 09:00:00|Paycheck|Employer|2500.00",
+                "2024-03-03 18:45:00|Dinner|Bistro|-83.75"), StandardCharsets.UTF_8);
+
+        TransactionList restored = new TransactionList();
+        LedgerSnapshot.LoadResult result = LedgerSnapshot.load(restored, csv.toString(), snapshot.toString());
+        assertFalse(result.isLoaded());
+        assertTrue(result.getReason().contains("doesn't match"));
+        assertEquals(0, restored.getTransactions().size());
+    }
+
+    @Test
+    void ignoresMissingSnapshot() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.writeString(csv, "2024-03-01 09:00:00|Paycheck|Employer|2500.00\n", StandardCharsets.UTF_8);
+
+        LedgerSnapshot.LoadResult result =
+                LedgerSnapshot.load(new TransactionList(), csv.toString(), directory.resolve("none").toString());
+        assertFalse(result.isLoaded());
+        assertEquals(null, result.getReason());
+    }
+
+    @Test
+    void restoredTotalsAndBalancesMatchFullLoad() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Path snapshot = directory.resolve("transactions.snapshot");
+        // Back-dated rows and a row years earlier, so the stored trees have been rebuilt over a wider range
+        Files.write(csv, List.of(
+                "2024-03-05 08:00:00|Groceries|Market|-54.20",
+                "2024-03-01 09:00:00|Paycheck|Employer|2500.00",
+                "2019-07-14 10:30:00|Deposit|Bank|100.00",
+                "2024-02-28 18:45:00|Dinner|Bistro|-38.75",
+                "2024-04-02 07:15:00|Rent|Landlord|-1200.00"), StandardCharsets.UTF_8);
+        TransactionList original = new TransactionList();
+        original.loadTransactions(csv.toString());
+        LedgerSnapshot.save(original, csv.toString(), snapshot.toString());
+
+        TransactionList restored = new TransactionList();
+        assertTrue(LedgerSnapshot.load(restored, csv.toString(), snapshot.toString()).isLoaded());
+        for (LocalDate day = LocalDate.of(2019, 7, 1); day.isBefore(LocalDate.of(2024, 5, 1)); day = day.plusDays(7)) {
+            assertEquals(original.getBalanceCents(day), restored.getBalanceCents(day));
+            assertEquals(original.getSummary(day, day.plusDays(40)).toString(),
+                    restored.getSummary(day, day.plusDays(40)).toString());
+        }
+        assertEquals(original.getBalanceRange(null, null).toString(), restored.getBalanceRange(null, null).toString());
+        assertEquals(original.getVendorTotalCents("market"), restored.getVendorTotalCents("market"));
+
+        // Adding to the restored trees works like adding to the built ones
+        Transaction added = new Transaction(LocalDateTime.of(2018, 1, 2, 9, 0), "Gift", "Family", 50.0);
+        original.addTransaction(added);
+        restored.addTransaction(added);
+        LocalDate end = LocalDate.of(2024, 4, 30);
+        assertEquals(original.getBalanceCents(end), restored.getBalanceCents(end));
+        assertEquals(original.getSummary(null, end).toString(), restored.getSummary(null, end).toString());
+    }
+
+    private static TransactionJournal openJournal(Path file) throws IOException {
+        return new TransactionJournal(file.toString(), TransactionJournal.FsyncPolicy.NEVER);
+    }
+
+    private static List<String> lines(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::toString).toList();
+    }
+}
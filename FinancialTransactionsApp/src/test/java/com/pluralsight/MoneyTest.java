@@ -0,0 +1,86 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Parsing, rounding and formatting edge cases of cents kept in a long
+class MoneyTest {
+    @Test
+    void plainAmountsParseWithoutRounding() {
+        assertEquals(350000, Money.parseCents("3500.00"));
+        assertEquals(-9560, Money.parseCents("-95.6"));
+        assertEquals(-50, Money.parseCents("-.5"));
+        assertEquals(700, Money.parseCents("+7"));
+        assertEquals(700, Money.parseCents("7."));
+        assertEquals(0, Money.parseCents("-0.00"));
+    }
+
+    @Test
+    void extraDecimalsRoundHalfUp() {
+        assertEquals(1, Money.parseCents("0.005"));
+        assertEquals(0, Money.parseCents("0.0049999"));
+        // Half up rounds away from zero for negative amounts too
+        assertEquals(-1, Money.parseCents("-0.005"));
+        assertEquals(-101, Money.parseCents("-1.005"));
+        assertEquals(10000, Money.parseCents("1e2"));
+        assertEquals(123, Money.parseCents(" 1.23 "));
+        assertEquals(250, Money.parseCents("2.495000000000000000000000000000"));
+    }
+
+    @Test
+    void outOfRangeAndInvalidTextThrows() {
+        assertEquals(Long.MAX_VALUE, Money.parseCents("92233720368547758.07"));
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("92233720368547758.08"));
+        // Long.MIN_VALUE is the invalid marker, so it isn't an amount either
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("-92233720368547758.08"));
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("1e99999999"));
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("1e-99999999"));
+        assertThrows(NumberFormatException.class, () -> Money.parseCents(""));
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("."));
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("12,50"));
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("abc"));
+    }
+
+    @Test
+    void byteParserReturnsInvalidInsteadOfThrowing() {
+        String[] texts = {"", "-", "+", ".", "1.234", "1,00", " 1", "1 ", "1e2", "1234567890123456", "--1"};
+        for (String text : texts) {
+            byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+            assertEquals(Money.invalid, Money.parseCents(bytes, 0, bytes.length));
+        }
+        // Only the bytes between from and to are read
+        byte[] line = "x|-12.5|y".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(-1250, Money.parseCents(line, 2, 7));
+    }
+
+    @Test
+    void formatRoundTripsThroughParse() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.07", Money.format(7));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("-1725.00", Money.format(-172500));
+        assertEquals("-92233720368547758.08", Money.format(Long.MIN_VALUE));
+        assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+
+        Random random = new Random(13);
+        for (int i = 0; i < 10_000; i++) {
+            long cents = i % 2 == 0 ? random.nextInt(2_000_001) - 1_000_000 : random.nextLong() / 1000;
+            String text = Money.format(cents);
+            byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+            assertEquals(cents, Money.parseCents(text));
+            assertEquals(cents, Money.parseCents(bytes, 0, bytes.length));
+        }
+    }
+
+    @Test
+    void doublesRoundToTheNearestCent() {
+        assertEquals(30, Money.toCents(0.1 + 0.2));
+        assertEquals(-1999, Money.toCents(-19.99));
+        assertEquals(10.05, Money.toDouble(1005));
+    }
+}
@@ -0,0 +1,118 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Off-heap rows: the same answers as TransactionList, reopening, catching up and the directory lock
+class OffHeapTransactionStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void answersLikeTransactionListWithBackDatedRows() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.write(csv, lines(shuffledRows(2000, 7)), StandardCharsets.UTF_8);
+        TransactionList expected = new TransactionList();
+        expected.loadTransactions(csv.toString());
+
+        try (OffHeapTransactionStore store = open(csv)) {
+            assertEquals(2000, store.size());
+            assertEquals(lines(expected.getTransactions()), lines(store.getTransactions()));
+            LocalDate start = LocalDate.of(2024, 2, 10);
+            LocalDate end = LocalDate.of(2024, 3, 20);
+            assertEquals(lines(expected.getTransactions(start, end)), lines(store.getTransactions(start, end)));
+            assertEquals(expected.getSummary(start, end).toString(), store.getSummary(start, end).toString());
+            assertEquals(lines(expected.getTransactionsByVendor("VENDOR 3")),
+                    lines(store.getTransactionsByVendor("vendor 3")));
+            assertEquals(lines(expected.searchTransactions(start, null, "item 1", null)),
+                    lines(store.searchTransactions(start, null, "item 1", null)));
+        }
+    }
+
+    @Test
+    void reopeningMapsTheRowsAndReadsOnlyAppendedLines() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.write(csv, lines(shuffledRows(100, 3)), StandardCharsets.UTF_8);
+        try (OffHeapTransactionStore store = open(csv)) {
+            assertEquals(100, store.size());
+        }
+
+        Files.write(csv, List.of("2023-12-31 23:00:00|Late|Shop|-5.25"), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        try (OffHeapTransactionStore store = open(csv)) {
+            assertEquals(101, store.size());
+            assertTrue(store.getWarnings().isEmpty());
+            LocalDate day = LocalDate.of(2023, 12, 31);
+            assertEquals("Late", store.getTransactions(day, day).get(0).getDescription());
+        }
+        try (OffHeapTransactionStore store = open(csv)) {
+            assertEquals(101, store.size());
+        }
+    }
+
+    @Test
+    void rewrittenCsvIsReadAgain() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.write(csv, lines(shuffledRows(100, 3)), StandardCharsets.UTF_8);
+        try (OffHeapTransactionStore store = open(csv)) {
+            assertEquals(100, store.size());
+        }
+
+        Files.write(csv, lines(shuffledRows(40, 5)), StandardCharsets.UTF_8);
+        try (OffHeapTransactionStore store = open(csv)) {
+            assertEquals(40, store.size());
+            assertFalse(store.getWarnings().isEmpty());
+        }
+    }
+
+    @Test
+    void secondOpenIsRefused() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.write(csv, lines(shuffledRows(10, 1)), StandardCharsets.UTF_8);
+        try (OffHeapTransactionStore store = open(csv)) {
+            assertThrows(IOException.class, () -> open(csv));
+            assertEquals(10, store.size());
+        }
+        try (OffHeapTransactionStore store = open(csv)) {
+            assertEquals(10, store.size());
+        }
+    }
+
+    private OffHeapTransactionStore open(Path csv) throws IOException {
+        return OffHeapTransactionStore.open(csv.toString(), directory.resolve("offheap").toString());
+    }
+
+    // Rows one hour apart from 2024-01-01, in shuffled order so many are back-dated
+    private static List<Transaction> shuffledRows(int count, long seed) {
+        List<Transaction> rows = new ArrayList<>(count);
+        Random random = new Random(seed);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < count; i++) {
+            rows.add(Transaction.ofCents(start.plusHours(i), "Item " + i, "Vendor " + (i % 7),
+                    random.nextInt(200_000) - 100_000));
+        }
+        Collections.shuffle(rows, random);
+        return rows;
+    }
+
+    private static List<String> lines(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::toString).toList();
+    }
+}
@@ -0,0 +1,161 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Cached reports kept up to date by appends, checked against the range rows sorted from scratch
+class ReportCacheTest {
+    private static final LocalDate first = LocalDate.of(2024, 5, 1);
+
+    @Test
+    void cachedReportsMatchTheRowsOfTheirRange() {
+        Random random = new Random(11);
+        ReportCache cache = new ReportCache(4, 100_000);
+        List<Transaction> all = new ArrayList<>();
+        LocalDateTime latest = first.atStartOfDay();
+        int served = 0;
+        for (int i = 0; i < 5000; i++) {
+            // Mostly the newest, sometimes at the same time as the last one, every 40th back-dated
+            LocalDateTime dateTime = i % 40 == 39 ? first.atStartOfDay().plusHours(random.nextInt(24 * 60))
+                    : (latest = latest.plusMinutes(random.nextInt(3) * 20));
+            Transaction transaction = Transaction.ofCents(dateTime, "Item " + i, "Shop", random.nextInt(2001) - 1000);
+            all.add(transaction);
+            cache.add(transaction);
+
+            if (i % 7 == 0) {
+                LocalDate start = first.plusDays(random.nextInt(6) * 5);
+                LocalDate end = start.plusDays(random.nextInt(3) * 10);
+                ReportCache.Report report = cache.get(start, end);
+                if (report == null) {
+                    report = cache.put(ReportCache.build(start, end, rangeRows(all, start, end)), List.of());
+                } else {
+                    served++;
+                }
+                assertEquals(lines(rangeOf(all, start, end)), lines(report.getTransactions()));
+                assertEquals(summaryOf(rangeOf(all, start, end)).toString(), report.getSummary().toString());
+            }
+        }
+        assertTrue(served > 100);
+        assertTrue(cache.size() <= 4);
+    }
+
+    @Test
+    void handedOutReportsDoNotChange() {
+        ReportCache cache = new ReportCache(4, 1000);
+        LocalDate day = first;
+        List<Transaction> rows = List.of(at(day, 9, -500), at(day, 10, 700));
+        ReportCache.Report before = cache.put(ReportCache.build(day, day, action -> rows.forEach(action)), List.of());
+
+        cache.add(at(day, 11, 100));
+        ReportCache.Report after = cache.get(day, day);
+        assertEquals(2, before.getTransactions().size());
+        assertEquals(200L, before.getSummary().getTotalCents());
+        assertEquals(3, after.getTransactions().size());
+        assertEquals(300L, after.getSummary().getTotalCents());
+
+        // Back-dated, the report would need it in the middle
+        cache.add(at(day, 8, 100));
+        assertEquals(null, cache.get(day, day));
+        assertEquals(3, after.getTransactions().size());
+    }
+
+    @Test
+    void putCatchesUpWithTransactionsAddedWhileBuilding() {
+        ReportCache cache = new ReportCache(4, 1000);
+        List<Transaction> rows = List.of(at(first, 9, -500), at(first, 12, 700));
+
+        // Outside the range or after the last row: caught up and cached
+        ReportCache.Report report = cache.put(ReportCache.build(first, first, action -> rows.forEach(action)),
+                List.of(at(first.plusDays(1), 1, 50), at(first, 12, 25), at(first, 13, -5)));
+        assertEquals(4, report.getTransactions().size());
+        assertEquals(220L, report.getSummary().getTotalCents());
+        assertEquals(report, cache.get(first, first));
+
+        // A back-dated one: the report built from the rows is returned but not cached
+        cache.clear();
+        report = cache.put(ReportCache.build(first, first, action -> rows.forEach(action)),
+                List.of(at(first, 13, 1), at(first, 10, 1)));
+        assertEquals(2, report.getTransactions().size());
+        assertEquals(null, cache.get(first, first));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void leastRecentlyShownReportsAreEvictedFirst() {
+        ReportCache cache = new ReportCache(2, 5);
+        LocalDate[] days = {first, first.plusDays(1), first.plusDays(2)};
+        for (LocalDate day : days) {
+            List<Transaction> rows = List.of(at(day, 9, 1), at(day, 10, 2));
+            cache.put(ReportCache.build(day, day, action -> rows.forEach(action)), List.of());
+            // Showing the first day again keeps it over the second
+            cache.get(days[0], days[0]);
+        }
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(days[0], days[0]) != null);
+        assertEquals(null, cache.get(days[1], days[1]));
+        assertTrue(cache.get(days[2], days[2]) != null);
+
+        // Two more rows go over maxRows, so the least recently shown report goes
+        cache.add(at(days[2], 11, 3));
+        cache.add(at(days[2], 12, 4));
+        assertEquals(1, cache.size());
+        assertEquals(null, cache.get(days[0], days[0]));
+
+        // A report bigger than maxRows on its own is handed out but never cached
+        List<Transaction> rows = new ArrayList<>();
+        for (int hour = 0; hour < 6; hour++) {
+            rows.add(at(days[1], hour, 1));
+        }
+        assertEquals(6, cache.put(ReportCache.build(days[1], days[1], action -> rows.forEach(action)), List.of())
+                .getTransactions().size());
+        assertEquals(null, cache.get(days[1], days[1]));
+    }
+
+    private static Transaction at(LocalDate day, int hour, long cents) {
+        return Transaction.ofCents(day.atTime(hour, 0), "Item", "Shop", cents);
+    }
+
+    // Rows of the range by date/time, equal times in the order they were added
+    private static List<Transaction> rangeOf(List<Transaction> all, LocalDate start, LocalDate end) {
+        List<Transaction> range = new ArrayList<>();
+        for (Transaction transaction : all) {
+            LocalDate date = transaction.getDateTime().toLocalDate();
+            if (!date.isBefore(start) && !date.isAfter(end)) {
+                range.add(transaction);
+            }
+        }
+        range.sort(Comparator.comparing(Transaction::getDateTime));
+        return range;
+    }
+
+    private static Consumer<Consumer<Transaction>> rangeRows(List<Transaction> all, LocalDate start, LocalDate end) {
+        return action -> rangeOf(all, start, end).forEach(action);
+    }
+
+    private static RangeSummary summaryOf(List<Transaction> rows) {
+        long total = 0;
+        long deposits = 0;
+        long payments = 0;
+        for (Transaction transaction : rows) {
+            long cents = transaction.getAmountCents();
+            total += cents;
+            deposits += Math.max(cents, 0);
+            payments += Math.min(cents, 0);
+        }
+        return new RangeSummary(total, deposits, payments, rows.size());
+    }
+
+    private static List<String> lines(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::toString).toList();
+    }
+}
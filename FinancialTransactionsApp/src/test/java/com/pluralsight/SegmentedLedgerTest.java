@@ -0,0 +1,77 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Opening the segments, catching up on the csv file and the directory lock
+class SegmentedLedgerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void catchUpAddsLinesAppendedSinceLastOpen() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.write(csv, List.of(
+                "2024-01-05 10:00:00|Groceries|Market|-20.00",
+                "2024-02-01 09:00:00|Paycheck|Employer|2500.00"), StandardCharsets.UTF_8);
+        try (SegmentedLedger ledger = open(csv)) {
+            assertEquals(2, ledger.getTransactions().size());
+        }
+
+        Files.write(csv, List.of("2024-01-20 18:00:00|Dinner|Bistro|-35.50"), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        try (SegmentedLedger ledger = open(csv)) {
+            assertEquals(3, ledger.getTransactions().size());
+        }
+        // Nothing new, so nothing is added twice
+        try (SegmentedLedger ledger = open(csv)) {
+            assertEquals(3, ledger.getTransactions().size());
+            assertEquals(244450, ledger.getSummary(null, null).getTotalCents());
+        }
+    }
+
+    @Test
+    void incompleteLastLineIsReadOnceItIsComplete() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.writeString(csv, "2024-01-05 10:00:00|Groceries|Market|-20.00\n2024-01-06 11:00:00|Fuel|Sta",
+                StandardCharsets.UTF_8);
+        try (SegmentedLedger ledger = open(csv)) {
+            assertEquals(1, ledger.getTransactions().size());
+        }
+
+        Files.writeString(csv, "tion|-40.00\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        try (SegmentedLedger ledger = open(csv)) {
+            assertEquals(2, ledger.getTransactions().size());
+            assertEquals(-6000, ledger.getSummary(null, null).getTotalCents());
+        }
+    }
+
+    @Test
+    void secondOpenIsRefused() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.write(csv, List.of("2024-01-05 10:00:00|Groceries|Market|-20.00"), StandardCharsets.UTF_8);
+        try (SegmentedLedger ledger = open(csv)) {
+            assertThrows(IOException.class, () -> open(csv));
+            assertEquals(1, ledger.getTransactions().size());
+        }
+        // Released on close
+        try (SegmentedLedger ledger = open(csv)) {
+            assertEquals(1, ledger.getTransactions().size());
+        }
+    }
+
+    private SegmentedLedger open(Path csv) throws IOException {
+        return SegmentedLedger.open(csv.toString(), directory.resolve("segments").toString(),
+                SegmentedLedger.Period.MONTH);
+    }
+}
@@ -0,0 +1,89 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Sorted order with back-dated inserts, snapshots and date range positions, checked against a plain sort
+class TimeIndexTest {
+    private static final long day = 86400;
+
+    @Test
+    void backDatedInsertsEndUpInStableOrder() {
+        Random random = new Random(1);
+        TimeIndex index = new TimeIndex();
+        List<long[]> expected = new ArrayList<>();
+        long latest = 0;
+        for (int row = 0; row < 20_000; row++) {
+            // Mostly in time order, every fifth one back-dated, with plenty of equal keys
+            long key = row % 5 == 0 ? random.nextInt(1000) * 60L : (latest += random.nextInt(3) * 60L);
+            index.insert(key, row);
+            expected.add(new long[] {key, row});
+            // Reading in between sorts the entries added so far, later ones are merged into that
+            if (row % 3001 == 0) {
+                index.keyAt(0);
+            }
+        }
+        expected.sort(Comparator.<long[]>comparingLong(entry -> entry[0]).thenComparingLong(entry -> entry[1]));
+
+        assertEquals(expected.size(), index.size());
+        for (int position = 0; position < expected.size(); position++) {
+            assertEquals(expected.get(position)[0], index.keyAt(position));
+            assertEquals((int) expected.get(position)[1], index.rowAt(position));
+        }
+    }
+
+    @Test
+    void snapshotDoesNotChangeWhenMoreIsInserted() {
+        TimeIndex index = new TimeIndex();
+        for (int row = 0; row < 3000; row++) {
+            index.insert(row * 10L, row);
+        }
+        TimeIndex snapshot = index.snapshot();
+        // Fills the shared arrays past the snapshot, then a back-dated insert makes the index sort again
+        for (int row = 3000; row < 5000; row++) {
+            index.insert(row * 10L, row);
+        }
+        index.insert(5, 5000);
+
+        assertEquals(5001, index.size());
+        assertEquals(5000, index.rowAt(1));
+        assertEquals(3000, snapshot.size());
+        for (int position = 0; position < 3000; position++) {
+            assertEquals(position, snapshot.rowAt(position));
+            assertEquals(position * 10L, snapshot.keyAt(position));
+        }
+    }
+
+    @Test
+    void datePositionsMatchABruteForceCount() {
+        Random random = new Random(7);
+        TimeIndex index = new TimeIndex();
+        List<Long> keys = new ArrayList<>();
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        for (int row = 0; row < 5000; row++) {
+            long key = TimeIndex.startOfDay(first) + random.nextInt(200) * day + random.nextInt((int) day);
+            index.insert(key, row);
+            keys.add(key);
+        }
+
+        for (int i = 0; i < 300; i++) {
+            LocalDate start = first.plusDays(random.nextInt(220) - 10);
+            LocalDate end = start.plusDays(random.nextInt(40));
+            long from = TimeIndex.startOfDay(start);
+            long to = TimeIndex.startOfDay(end.plusDays(1));
+            long before = keys.stream().filter(key -> key < from).count();
+            long inRange = keys.stream().filter(key -> key >= from && key < to).count();
+            assertEquals(before, index.startPosition(start));
+            assertEquals(before + inRange, index.endPosition(end));
+        }
+        assertEquals(0, index.startPosition(null));
+        assertEquals(5000, index.endPosition(null));
+    }
+}
@@ -0,0 +1,136 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Parsing the ledger file: whole lines, offsets, torn and malformed lines
+class TransactionFileReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void malformedLinesAreReportedAndSkipped() throws IOException {
+        Path file = directory.resolve("transactions.csv");
+        Files.writeString(file, String.join("\n",
+                "2024-01-05 10:00:00|Groceries|Market|-20.00",
+                "2024-01-05 11:00:00|Only three|fields",
+                "2024-01-05 25:00:00|No such hour|Market|-1.00",
+                "2024-01-06 10:00:00|Bad amount|Market|12,00",
+                "1850-01-01 10:00:00|Too old|Bank|1.00",
+                "",
+                "2024-01-07 10:00:00|Extra|field|1.00|x",
+                "2024-01-08 10:00:00|Windows|Line end|3\r",
+                "2024-01-09 10:00:00|Half|Cent|-12.5") + "\n", StandardCharsets.UTF_8);
+
+        List<Transaction> read = new ArrayList<>();
+        LoadReport report = new TransactionFileReader().read(file, read::add);
+        assertEquals(List.of("Groceries", "Windows", "Half"),
+                read.stream().map(Transaction::getDescription).toList());
+        assertEquals(300, read.get(1).getAmountCents());
+        assertEquals("Line end", read.get(1).getVendor());
+        assertEquals(-1250, read.get(2).getAmountCents());
+        assertEquals(3, report.getLoadedCount());
+        assertEquals(5, report.getMalformedCount());
+        assertEquals(List.of(2L, 3L, 4L, 5L, 7L),
+                report.getMalformedLines().stream().map(LoadReport.MalformedLine::getLineNumber).toList());
+        assertEquals(List.of("expected 4 fields", "invalid date/time", "invalid amount", "date out of range",
+                "expected 4 fields"), report.getMalformedLines().stream().map(LoadReport.MalformedLine::getReason).toList());
+        assertFalse(report.hasTornLastLine());
+    }
+
+    @Test
+    void dayPastTheEndOfTheMonthMovesToItsLastDay() {
+        // Like DateTimeFormatter's smart resolving, which the line format always went through
+        byte[] text = "2023-02-30 10:15:00".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(LocalDateTime.of(2023, 2, 28, 10, 15), TransactionFileReader.parseDateTime(text, 0, text.length));
+        byte[] leap = "2024-02-31 00:00:00".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0), TransactionFileReader.parseDateTime(leap, 0, leap.length));
+        byte[] noMonth = "2024-13-01 00:00:00".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(null, TransactionFileReader.parseDateTime(noMonth, 0, noMonth.length));
+    }
+
+    @Test
+    void tornLastLineIsSkippedAndReported() throws IOException {
+        Path file = directory.resolve("transactions.csv");
+        Files.writeString(file, "2024-01-05 10:00:00|Groceries|Market|-20.00\n2024-01-06 11:00:00|Fuel|Sta",
+                StandardCharsets.UTF_8);
+
+        List<Transaction> read = new ArrayList<>();
+        LoadReport report = new TransactionFileReader().read(file, read::add);
+        assertEquals(1, read.size());
+        assertTrue(report.hasTornLastLine());
+        assertEquals(0, report.getMalformedCount());
+        assertEquals("Skipped incomplete last line.", report.getSummaryLines(10).get(0));
+    }
+
+    @Test
+    void readFromOffsetNumbersLinesFromThere() throws IOException {
+        String first = "2024-01-05 10:00:00|Groceries|Market|-20.00\n";
+        Path file = directory.resolve("transactions.csv");
+        Files.writeString(file, first + "garbage\n2024-01-07 12:00:00|Lunch|Cafe|-9.50\n", StandardCharsets.UTF_8);
+
+        List<Transaction> read = new ArrayList<>();
+        LoadReport report = new TransactionFileReader().read(file, first.length(), read::add);
+        assertEquals(1, read.size());
+        assertEquals("Lunch", read.get(0).getDescription());
+        assertEquals(1L, report.getMalformedLines().get(0).getLineNumber());
+    }
+
+    @Test
+    void parallelReadMatchesSerialRead() throws IOException {
+        // Big enough to be split into several chunks, with malformed lines spread over the file
+        Path file = directory.resolve("transactions.csv");
+        StringBuilder text = new StringBuilder();
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        for (int i = 0; i < 250_000; i++) {
+            if (i % 20_011 == 0) {
+                text.append("not a transaction ").append(i).append('\n');
+                continue;
+            }
+            text.append(Transaction.ofCents(start.plusMinutes(i), "Purchase number " + i, "Vendor " + (i % 31),
+                    (i % 2 == 0 ? 1 : -1) * (i % 100_000L))).append('\n');
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        assertTrue(Files.size(file) > 8L * 1024 * 1024);
+
+        List<Transaction> serial = new ArrayList<>();
+        LoadReport serialReport = new TransactionFileReader().read(file, serial::add);
+        List<Transaction> parallel = new ArrayList<>();
+        LoadReport parallelReport = TransactionFileReader.readParallel(file, parallel::add);
+        assertEquals(lines(serial), lines(parallel));
+        assertEquals(serialReport.getLoadedCount(), parallelReport.getLoadedCount());
+        assertEquals(serialReport.getMalformedLines().toString(), parallelReport.getMalformedLines().toString());
+    }
+
+    @Test
+    void readStopsAtTheEndOffset() throws IOException {
+        String first = "2024-01-05 10:00:00|Groceries|Market|-20.00\n";
+        String second = "2024-01-06 11:00:00|Fuel|Station|-40.00\n";
+        String third = "2024-01-07 12:00:00|Lunch|Cafe|-9.50\n";
+        Path file = directory.resolve("transactions.csv");
+        Files.writeString(file, first + second + third, StandardCharsets.UTF_8);
+
+        List<Transaction> read = new ArrayList<>();
+        LoadReport report = new TransactionFileReader().read(file, first.length(),
+                first.length() + second.length(), read::add);
+        assertEquals(1, read.size());
+        assertEquals("Fuel", read.get(0).getDescription());
+        assertFalse(report.hasTornLastLine());
+    }
+
+    private static List<String> lines(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::toString).toList();
+    }
+}
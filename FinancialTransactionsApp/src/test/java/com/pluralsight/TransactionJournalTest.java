@@ -0,0 +1,95 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Appending to the transactions file and recovering its last line after a crash
+class TransactionJournalTest {
+    private static final String firstLine = "2024-01-01 10:00:00|Rent|Landlord|-1725.00";
+    private static final String secondLine = "2024-01-02 09:30:00|Paycheck|Employer|2500.00";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendedTransactionsLoadBack() throws IOException {
+        Path file = directory.resolve("transactions.csv");
+        try (TransactionJournal journal = openJournal(file)) {
+            journal.append(Transaction.parsedTransaction(firstLine));
+            journal.appendAll(List.of(Transaction.parsedTransaction(secondLine)));
+        }
+
+        assertEquals(List.of(firstLine, secondLine), Files.readAllLines(file));
+        assertEquals(List.of(firstLine, secondLine), load(file));
+    }
+
+    @Test
+    void keepsCompleteLastLineWithoutNewline() throws IOException {
+        Path file = directory.resolve("transactions.csv");
+        Files.writeString(file, firstLine, StandardCharsets.UTF_8);
+        try (TransactionJournal journal = openJournal(file)) {
+            journal.append(Transaction.parsedTransaction(secondLine));
+        }
+
+        assertEquals(List.of(firstLine, secondLine), load(file));
+    }
+
+    @Test
+    void cutsOffTornLastLine() throws IOException {
+        Path file = directory.resolve("transactions.csv");
+        Files.writeString(file, firstLine + "\n2024-01-0", StandardCharsets.UTF_8);
+        try (TransactionJournal journal = openJournal(file)) {
+            assertEquals(firstLine + "\n", Files.readString(file));
+            journal.append(Transaction.parsedTransaction(secondLine));
+        }
+
+        assertEquals(List.of(firstLine, secondLine), load(file));
+    }
+
+    @Test
+    void secondWriterIsRefused() throws IOException {
+        Path file = directory.resolve("transactions.csv");
+        try (TransactionJournal journal = openJournal(file)) {
+            assertThrows(IOException.class, () -> openJournal(file));
+        }
+        // Closing the first journal releases the lock
+        openJournal(file).close();
+    }
+
+    @Test
+    void compactionKeepsEveryRow() throws IOException {
+        Path file = directory.resolve("transactions.csv");
+        TransactionList transactionList = new TransactionList();
+        try (TransactionJournal journal = openJournal(file)) {
+            for (int day = 1; day <= 20; day++) {
+                Transaction transaction = new Transaction(LocalDateTime.of(2024, 2, day, 12, 0), "Lunch", "Cafe", -12.5);
+                transactionList.addTransaction(transaction);
+                journal.append(transaction);
+            }
+            journal.compact(transactionList);
+            journal.append(Transaction.parsedTransaction(secondLine));
+        }
+
+        assertEquals(21, Files.readAllLines(file).size());
+    }
+
+    private static TransactionJournal openJournal(Path file) throws IOException {
+        return new TransactionJournal(file.toString(), TransactionJournal.FsyncPolicy.NEVER);
+    }
+
+    private static List<String> load(Path file) throws IOException {
+        TransactionList transactionList = new TransactionList();
+        transactionList.loadTransactions(file.toString());
+        return transactionList.getTransactions().stream().map(Transaction::toString).toList();
+    }
+}
@@ -0,0 +1,129 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Filters, sort orders, paging and summaries checked against a scan of every row sorted with a Comparator
+class TransactionQueryTest {
+    private static final String[] descriptions = {"Groceries", "Fuel", "Coffee beans", "Rent", "Paycheck"};
+    private static final String[] vendors = {"Market", "Gas Station", "Cafe", "Landlord", "Employer", "market"};
+    private static final LocalDate first = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void queriesMatchABruteForceScan() {
+        Random random = new Random(5);
+        TransactionList transactionList = new TransactionList();
+        List<Transaction> rows = new ArrayList<>();
+        for (int row = 0; row < 4000; row++) {
+            // Mostly in date order, some back-dated, with repeated date/times and amounts for the ties
+            LocalDateTime dateTime = first.plusDays(row % 9 == 0 ? random.nextInt(120) : row / 33)
+                    .atTime(random.nextInt(3) * 8, 0);
+            Transaction transaction = Transaction.ofCents(dateTime, descriptions[random.nextInt(descriptions.length)],
+                    vendors[random.nextInt(vendors.length)], (random.nextInt(41) - 30) * 500L);
+            transactionList.addTransaction(transaction);
+            rows.add(transaction);
+        }
+
+        TransactionQuery.Sort[] sorts = TransactionQuery.Sort.values();
+        for (int i = 0; i < 400; i++) {
+            LocalDate from = random.nextInt(3) == 0 ? null : first.plusDays(random.nextInt(130) - 5);
+            LocalDate to = random.nextInt(3) == 0 ? null : first.plusDays(random.nextInt(130) - 5);
+            String vendor = random.nextInt(4) == 0 ? vendors[random.nextInt(vendors.length)].toUpperCase() : null;
+            String vendorText = random.nextInt(4) == 0 ? "ar" : random.nextInt(4) == 0 ? "STATION" : null;
+            String descriptionText = random.nextInt(4) == 0 ? "bean" : random.nextInt(5) == 0 ? "ent" : null;
+            int type = random.nextInt(4);
+            Long minCents = random.nextInt(4) == 0 ? (long) (random.nextInt(21) - 10) * 500 : null;
+            Long maxCents = random.nextInt(4) == 0 ? (long) (random.nextInt(21) - 10) * 500 : null;
+            TransactionQuery.Sort sort = sorts[random.nextInt(sorts.length)];
+            int offset = random.nextInt(3) == 0 ? random.nextInt(200) : 0;
+            int limit = random.nextInt(3) == 0 ? Integer.MAX_VALUE : random.nextInt(50);
+
+            TransactionQuery query = transactionList.query().from(from).to(to).vendor(vendor)
+                    .vendorContains(vendorText).descriptionContains(descriptionText).sortBy(sort)
+                    .offset(offset).limit(limit);
+            if (type == 1) {
+                query.deposits();
+            } else if (type == 2) {
+                query.payments();
+            }
+            if (minCents != null) {
+                query.minCents(minCents);
+            }
+            if (maxCents != null) {
+                query.maxCents(maxCents);
+            }
+
+            List<Integer> matches = new ArrayList<>();
+            for (int row = 0; row < rows.size(); row++) {
+                Transaction transaction = rows.get(row);
+                LocalDate date = transaction.getDateTime().toLocalDate();
+                long cents = transaction.getAmountCents();
+                if ((from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to))
+                        && (vendor == null || transaction.getVendor().equalsIgnoreCase(vendor))
+                        && (vendorText == null || transaction.getVendor().toLowerCase().contains(vendorText.toLowerCase()))
+                        && (descriptionText == null || transaction.getDescription().toLowerCase().contains(descriptionText))
+                        && (type != 1 || cents > 0) && (type != 2 || cents <= 0)
+                        && (minCents == null || cents >= minCents) && (maxCents == null || cents <= maxCents)) {
+                    matches.add(row);
+                }
+            }
+
+            RangeSummary expectedSummary = summarize(rows, matches);
+            assertEquals(expectedSummary.toString(), query.summarize().toString());
+            assertEquals(expectedSummary.getCount(), query.count());
+
+            matches.sort(order(rows, sort));
+            List<String> expected = new ArrayList<>();
+            for (int position = offset; position < matches.size() && expected.size() < limit; position++) {
+                expected.add(rows.get(matches.get(position)).toString());
+            }
+            assertEquals(expected, query.toList().stream().map(Transaction::toString).toList());
+            List<String> visited = new ArrayList<>();
+            query.forEach(transaction -> visited.add(transaction.toString()));
+            assertEquals(expected, visited);
+        }
+    }
+
+    @Test
+    void invalidPagingAndSortNamesAreRejected() {
+        TransactionList transactionList = new TransactionList();
+        assertThrows(IllegalArgumentException.class, () -> transactionList.query().offset(-1));
+        assertThrows(IllegalArgumentException.class, () -> transactionList.query().limit(-1));
+        assertThrows(IllegalArgumentException.class, () -> TransactionQuery.Sort.fromName("vendor"));
+        assertEquals(TransactionQuery.Sort.AMOUNT_DESCENDING, TransactionQuery.Sort.fromName(" Amount-Desc "));
+        assertEquals(0, transactionList.query().toList().size());
+    }
+
+    // Ties keep row order, descending orders are the exact reverse of ascending ones
+    private static Comparator<Integer> order(List<Transaction> rows, TransactionQuery.Sort sort) {
+        boolean byAmount = sort == TransactionQuery.Sort.AMOUNT || sort == TransactionQuery.Sort.AMOUNT_DESCENDING;
+        Comparator<Integer> ascending = Comparator.<Integer>comparingLong(row -> byAmount
+                        ? rows.get(row).getAmountCents() : TimeIndex.toKey(rows.get(row).getDateTime()))
+                .thenComparingInt(row -> row);
+        boolean descending = sort == TransactionQuery.Sort.DATE_DESCENDING
+                || sort == TransactionQuery.Sort.AMOUNT_DESCENDING;
+        return descending ? ascending.reversed() : ascending;
+    }
+
+    private static RangeSummary summarize(List<Transaction> rows, List<Integer> matches) {
+        long total = 0;
+        long deposits = 0;
+        long payments = 0;
+        for (int row : matches) {
+            long cents = rows.get(row).getAmountCents();
+            total += cents;
+            deposits += Math.max(cents, 0);
+            payments += Math.min(cents, 0);
+        }
+        return new RangeSummary(total, deposits, payments, matches.size());
+    }
+}
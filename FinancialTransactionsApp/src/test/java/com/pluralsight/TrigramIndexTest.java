@@ -0,0 +1,101 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Trigram candidates must include every row that contains the term, checked against String.contains
+class TrigramIndexTest {
+    @Test
+    void candidatesIncludeEveryMatchingRow() {
+        Random random = new Random(2);
+        TrigramIndex index = new TrigramIndex();
+        List<String> texts = new ArrayList<>();
+        for (int row = 0; row < 3000; row++) {
+            String text = randomText(random, 4 + random.nextInt(20));
+            index.add(row, text);
+            texts.add(text);
+        }
+
+        for (int i = 0; i < 300; i++) {
+            String term = randomText(random, 3 + random.nextInt(3));
+            if (i % 2 == 0) {
+                term = term.toUpperCase();
+            }
+            IntList candidates = index.findCandidates(term);
+            List<Integer> candidateRows = new ArrayList<>();
+            for (int position = 0; position < candidates.size(); position++) {
+                candidateRows.add(candidates.get(position));
+                if (position > 0) {
+                    assertTrue(candidates.get(position - 1) < candidates.get(position));
+                }
+            }
+            for (int row = 0; row < texts.size(); row++) {
+                if (texts.get(row).toLowerCase().contains(term.toLowerCase())) {
+                    assertTrue(candidateRows.contains(row));
+                }
+            }
+        }
+    }
+
+    @Test
+    void shortAndUnknownTerms() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(0, "Groceries");
+        index.add(1, "Gas");
+        assertEquals(null, index.findCandidates("gr"));
+        assertEquals(0, index.findCandidates("xyz").size());
+        assertEquals(1, index.findCandidates("CERIES").size());
+        // A text with a repeated trigram lists its row once
+        index.add(2, "aaaaaa");
+        assertEquals(1, index.findCandidates("aaa").size());
+    }
+
+    @Test
+    void intersectMatchesABruteForceIntersection() {
+        Random random = new Random(8);
+        for (int i = 0; i < 50; i++) {
+            IntList small = sortedRandom(random, random.nextInt(40));
+            IntList big = sortedRandom(random, random.nextInt(400));
+            List<Integer> expected = new ArrayList<>();
+            for (int a = 0; a < small.size(); a++) {
+                for (int b = 0; b < big.size(); b++) {
+                    if (small.get(a) == big.get(b)) {
+                        expected.add(small.get(a));
+                    }
+                }
+            }
+            IntList actual = TrigramIndex.intersect(small, big);
+            List<Integer> actualValues = new ArrayList<>();
+            for (int position = 0; position < actual.size(); position++) {
+                actualValues.add(actual.get(position));
+            }
+            assertEquals(expected, actualValues);
+        }
+    }
+
+    // Few letters, so terms have matches and trigrams show up in other orders too
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append("abcde Z".charAt(random.nextInt(7)));
+        }
+        return text.toString();
+    }
+
+    // Distinct values in increasing order
+    private static IntList sortedRandom(Random random, int count) {
+        IntList list = new IntList();
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            value += 1 + random.nextInt(5);
+            list.add(value);
+        }
+        return list;
+    }
+}
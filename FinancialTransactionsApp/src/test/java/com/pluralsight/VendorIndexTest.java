@@ -0,0 +1,59 @@
+package com.pluralsight;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Vendor rows, counts and totals checked against a scan with String.equalsIgnoreCase
+class VendorIndexTest {
+    @Test
+    void lookupsMatchAnEqualsIgnoreCaseScan() {
+        // Includes vendors that only equalsIgnoreCase's per-character folding treats as equal (dotless i)
+        String[] vendors = {"Market", "MARKET", "market ", "Kılıç", "KILIÇ", "kiliç", "Café", "CAFÉ", "", "Bank"};
+        Random random = new Random(4);
+        VendorIndex index = new VendorIndex();
+        List<String> rowVendors = new ArrayList<>();
+        List<Long> rowAmounts = new ArrayList<>();
+        for (int row = 0; row < 2000; row++) {
+            String vendor = vendors[random.nextInt(vendors.length)];
+            long cents = random.nextInt(20_001) - 10_000;
+            index.add(vendor, row, cents);
+            rowVendors.add(vendor);
+            rowAmounts.add(cents);
+        }
+
+        String[] queries = {"market", "Market ", "kilic", "KİLİÇ", "kılıç", "café", "", "bank", "Nobody"};
+        for (String query : queries) {
+            List<Integer> expectedRows = new ArrayList<>();
+            long expectedTotal = 0;
+            for (int row = 0; row < rowVendors.size(); row++) {
+                if (rowVendors.get(row).equalsIgnoreCase(query)) {
+                    expectedRows.add(row);
+                    expectedTotal += rowAmounts.get(row);
+                }
+            }
+            IntList rows = index.getRows(query);
+            List<Integer> actualRows = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                actualRows.add(rows.get(i));
+            }
+            assertEquals(expectedRows, actualRows);
+            assertEquals(expectedRows.size(), index.getCount(query));
+            assertEquals(expectedTotal, index.getTotalCents(query));
+        }
+    }
+
+    @Test
+    void unknownAndNullVendorsHaveNoRows() {
+        VendorIndex index = new VendorIndex();
+        index.add("Market", 0, 100);
+        assertEquals(0, index.getRows("Bank").size());
+        assertEquals(0, index.getRows(null).size());
+        assertEquals(0, index.getTotalCents(null));
+        assertEquals(1, index.size());
+    }
+}